@@ -18,7 +18,10 @@
 
 package org.eclipse.jetty.client;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -38,6 +41,7 @@ public abstract class AbstractConnectionPool implements ConnectionPool, Dumpable
 
     private final AtomicBoolean closed = new AtomicBoolean();
     private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicInteger pendingCount = new AtomicInteger();
     private final Destination destination;
     private final int maxConnections;
     private final Callback requester;
@@ -61,6 +65,25 @@ public abstract class AbstractConnectionPool implements ConnectionPool, Dumpable
         return connectionCount.get();
     }
 
+    @ManagedAttribute(value = "The number of connections being opened", readonly = true)
+    public int getPendingConnectionCount()
+    {
+        return pendingCount.get();
+    }
+
+    /**
+     * <p>Returns the number of connections that are open and not in use.</p>
+     * <p>This implementation does not track idle connections and returns
+     * {@link #getConnectionCount()}, so that idle connections are not opened
+     * beyond the existing ones; subclasses should override it.</p>
+     *
+     * @return the number of connections that are open and not in use
+     */
+    public int getIdleConnectionCount()
+    {
+        return getConnectionCount();
+    }
+
     @Override
     public boolean isEmpty()
     {
@@ -82,51 +105,100 @@ public abstract class AbstractConnectionPool implements ConnectionPool, Dumpable
         return connection;
     }
 
+    /**
+     * <p>Opens, in background, up to the given number of connections, without
+     * exceeding the {@link #getMaxConnectionCount() max number of connections},
+     * so that they are idle in this pool when requests need them.</p>
+     *
+     * @param connectionCount the number of connections to open
+     * @return a future completed when all the connections have been opened
+     */
+    public CompletableFuture<Void> preCreateConnections(int connectionCount)
+    {
+        List<CompletableFuture<Connection>> futures = new ArrayList<>();
+        for (int i = 0; i < connectionCount; ++i)
+        {
+            int next = reserve();
+            if (next < 0)
+                break;
+            Promise.Completable<Connection> future = new Promise.Completable<>();
+            create(next, future);
+            futures.add(future);
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
     private Connection tryCreate()
+    {
+        int next = reserve();
+        if (next > 0)
+        {
+            create(next, new Promise<Connection>()
+            {
+                @Override
+                public void succeeded(Connection connection)
+                {
+                }
+
+                @Override
+                public void failed(Throwable x)
+                {
+                    requester.failed(x);
+                }
+            });
+        }
+        // Try again the idle connections
+        return activate();
+    }
+
+    private int reserve()
     {
         while (true)
         {
             int current = getConnectionCount();
-            final int next = current + 1;
+            int next = current + 1;
 
             if (next > maxConnections)
             {
                 if (LOG.isDebugEnabled())
                     LOG.debug("Max connections {}/{} reached", current, maxConnections);
-                // Try again the idle connections
-                return activate();
+                return -1;
             }
 
             if (connectionCount.compareAndSet(current, next))
+                return next;
+        }
+    }
+
+    private void create(int next, Promise<Connection> promise)
+    {
+        if (LOG.isDebugEnabled())
+            LOG.debug("Connection {}/{} creation", next, maxConnections);
+
+        pendingCount.incrementAndGet();
+        destination.newConnection(new Promise<Connection>()
+        {
+            @Override
+            public void succeeded(Connection connection)
             {
                 if (LOG.isDebugEnabled())
-                    LOG.debug("Connection {}/{} creation", next, maxConnections);
+                    LOG.debug("Connection {}/{} creation succeeded {}", next, maxConnections, connection);
+                pendingCount.decrementAndGet();
+                onCreated(connection);
+                proceed();
+                promise.succeeded(connection);
+            }
 
-                destination.newConnection(new Promise<Connection>()
-                {
-                    @Override
-                    public void succeeded(Connection connection)
-                    {
-                        if (LOG.isDebugEnabled())
-                            LOG.debug("Connection {}/{} creation succeeded {}", next, maxConnections, connection);
-                        onCreated(connection);
-                        proceed();
-                    }
-
-                    @Override
-                    public void failed(Throwable x)
-                    {
-                        if (LOG.isDebugEnabled())
-                            LOG.debug("Connection " + next + "/" + maxConnections + " creation failed", x);
-                        connectionCount.decrementAndGet();
-                        requester.failed(x);
-                    }
-                });
-
-                // Try again the idle connections
-                return activate();
+            @Override
+            public void failed(Throwable x)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Connection " + next + "/" + maxConnections + " creation failed", x);
+                pendingCount.decrementAndGet();
+                connectionCount.decrementAndGet();
+                promise.failed(x);
             }
-        }
+        });
     }
 
     protected abstract void onCreated(Connection connection);
@@ -0,0 +1,224 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>Limits the number of concurrent exchanges of a {@link HttpDestination},
+ * adapting the limit to the round trip times of the exchanges.</p>
+ * <p>Two moving averages of the round trip time (from when the request is
+ * queued to when the response is complete) are maintained: a short term one
+ * that tracks the current latency, and a long term one that tracks the
+ * baseline latency. When the short term average exceeds the long term
+ * average by the {@link #getTolerance() tolerance}, or when an exchange times
+ * out, the limit is decreased multiplicatively, at most once per round trip
+ * time; otherwise the limit is increased additively when it is being used.</p>
+ * <p>Exchanges exceeding the limit are rejected immediately with
+ * a {@link ConcurrencyLimitException}, rather than being queued.</p>
+ */
+@ManagedObject("Adaptive limiter of concurrent exchanges")
+public class AdaptiveConcurrencyLimiter
+{
+    private static final Logger LOG = Log.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final int minLimit;
+    private final int maxLimit;
+    private volatile int limit;
+    private double tolerance = 2.0D;
+    private double backoffRatio = 0.9D;
+    private double shortRtt;
+    private double longRtt;
+    private long lastDecrease = System.nanoTime();
+
+    /**
+     * @param initialLimit the initial limit
+     * @param minLimit the min limit
+     * @param maxLimit the max limit
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit)
+    {
+        if (minLimit < 1 || maxLimit < minLimit)
+            throw new IllegalArgumentException("Invalid limits " + minLimit + "/" + maxLimit);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    @ManagedAttribute(value = "The current limit of concurrent exchanges", readonly = true)
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    @ManagedAttribute(value = "The min limit of concurrent exchanges", readonly = true)
+    public int getMinLimit()
+    {
+        return minLimit;
+    }
+
+    @ManagedAttribute(value = "The max limit of concurrent exchanges", readonly = true)
+    public int getMaxLimit()
+    {
+        return maxLimit;
+    }
+
+    @ManagedAttribute(value = "The number of concurrent exchanges", readonly = true)
+    public int getInFlightCount()
+    {
+        return inFlight.get();
+    }
+
+    @ManagedAttribute(value = "The number of rejected exchanges", readonly = true)
+    public long getRejectedCount()
+    {
+        return rejected.longValue();
+    }
+
+    @ManagedAttribute(value = "The short term average round trip time, in milliseconds", readonly = true)
+    public synchronized double getRoundTripTime()
+    {
+        return shortRtt / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @ManagedAttribute(value = "The long term average round trip time, in milliseconds", readonly = true)
+    public synchronized double getBaselineRoundTripTime()
+    {
+        return longRtt / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return the ratio between the short and long term round trip times above which the limit is decreased
+     */
+    @ManagedAttribute("The ratio between the short and long term round trip times above which the limit is decreased")
+    public synchronized double getTolerance()
+    {
+        return tolerance;
+    }
+
+    /**
+     * @param tolerance the ratio between the short and long term round trip times above which the limit is decreased
+     */
+    public synchronized void setTolerance(double tolerance)
+    {
+        if (tolerance < 1)
+            throw new IllegalArgumentException("Invalid tolerance " + tolerance);
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @return the ratio the limit is multiplied by when it is decreased
+     */
+    @ManagedAttribute("The ratio the limit is multiplied by when it is decreased")
+    public synchronized double getBackoffRatio()
+    {
+        return backoffRatio;
+    }
+
+    /**
+     * @param backoffRatio the ratio the limit is multiplied by when it is decreased
+     */
+    public synchronized void setBackoffRatio(double backoffRatio)
+    {
+        if (backoffRatio <= 0 || backoffRatio >= 1)
+            throw new IllegalArgumentException("Invalid backoff ratio " + backoffRatio);
+        this.backoffRatio = backoffRatio;
+    }
+
+    /**
+     * @return whether an exchange can proceed, in which case {@link #release(long, boolean)}
+     * must be called when the exchange terminates
+     */
+    public boolean tryAcquire()
+    {
+        while (true)
+        {
+            int current = inFlight.get();
+            if (current >= limit)
+            {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    /**
+     * @param roundTripTime the round trip time of the exchange, in nanoseconds
+     * @param dropped whether the exchange timed out
+     */
+    public void release(long roundTripTime, boolean dropped)
+    {
+        int current = inFlight.getAndDecrement();
+        synchronized (this)
+        {
+            if (longRtt == 0)
+            {
+                shortRtt = roundTripTime;
+                longRtt = roundTripTime;
+            }
+            else
+            {
+                shortRtt += (roundTripTime - shortRtt) / 10;
+                longRtt += (roundTripTime - longRtt) / 100;
+            }
+
+            int newLimit = limit;
+            long now = System.nanoTime();
+            if (dropped || shortRtt > longRtt * tolerance)
+            {
+                // Decrease at most once per round trip time, to give
+                // the decrease the time to have an effect on latency.
+                if (now - lastDecrease > shortRtt)
+                {
+                    lastDecrease = now;
+                    newLimit = Math.max(minLimit, (int)(limit * backoffRatio));
+                }
+            }
+            else if (current * 2 >= limit)
+            {
+                newLimit = Math.min(maxLimit, limit + 1);
+            }
+
+            if (newLimit != limit)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Limit {} -> {}, rtt={}/{} ms, in flight={}", limit, newLimit, getRoundTripTime(), getBaselineRoundTripTime(), current);
+                limit = newLimit;
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[limit=%d,inFlight=%d]", getClass().getSimpleName(), hashCode(), getLimit(), getInFlightCount());
+    }
+}
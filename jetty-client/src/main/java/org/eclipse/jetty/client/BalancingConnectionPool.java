@@ -0,0 +1,475 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import org.eclipse.jetty.client.api.Connection;
+import org.eclipse.jetty.client.api.Destination;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.Sweeper;
+
+/**
+ * <p>A {@link ConnectionPool} for multiplexed connections that spreads
+ * the requests across several connections.</p>
+ * <p>Differently from {@link MultiplexConnectionPool}, that sends requests on
+ * one connection until it reaches the max multiplex, this pool keeps at least
+ * {@link #getMinConnectionCount() min connections} open and sends each request
+ * on the least loaded connection, according to the {@link Balancing}, so that
+ * the loss of a packet stalls only a fraction of the requests.</p>
+ * <p>Connections that have been used for {@link #getMaxUsageCount() max usage}
+ * requests are retired: they are not used for new requests and are closed
+ * (for HTTP/2, sending a {@code GOAWAY} frame) when their last request completes,
+ * so that they are recycled without failing in-flight requests.</p>
+ * <p>For example, to spread HTTP/2 requests across 4 connections:</p>
+ * <pre>
+ * HttpClientTransportOverHTTP2 transport = new HttpClientTransportOverHTTP2(new HTTP2Client());
+ * transport.setConnectionPoolFactory(destination -&gt;
+ *         new BalancingConnectionPool(destination, 8, destination, 100, 4, Balancing.LEAST_STREAMS, 10_000));
+ * </pre>
+ */
+@ManagedObject("The balancing multiplexed connection pool")
+public class BalancingConnectionPool extends AbstractConnectionPool implements Sweeper.Sweepable
+{
+    private static final Logger LOG = Log.getLogger(BalancingConnectionPool.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Holder> connections;
+    private final Balancing balancing;
+    private final int minConnections;
+    private int maxMultiplex;
+    private final int maxUsage;
+    private int next;
+
+    /**
+     * @param destination the destination
+     * @param maxConnections the max number of connections
+     * @param requester the callback to notify when connections are created
+     * @param maxMultiplex the max number of concurrent requests per connection
+     * @param minConnections the number of connections to keep open, to spread the requests onto
+     * @param balancing the criterion to select the connection for a request
+     * @param maxUsage the number of requests after which a connection is retired, or -1 to never retire connections
+     */
+    public BalancingConnectionPool(Destination destination, int maxConnections, Callback requester, int maxMultiplex, int minConnections, Balancing balancing, int maxUsage)
+    {
+        super(destination, maxConnections, requester);
+        this.connections = new ArrayList<>(maxConnections);
+        this.maxMultiplex = maxMultiplex;
+        this.minConnections = Math.min(minConnections, maxConnections);
+        this.balancing = balancing;
+        this.maxUsage = maxUsage;
+    }
+
+    protected void lock()
+    {
+        lock.lock();
+    }
+
+    protected void unlock()
+    {
+        lock.unlock();
+    }
+
+    @ManagedAttribute(value = "The criterion to select the connection for a request", readonly = true)
+    public Balancing getBalancing()
+    {
+        return balancing;
+    }
+
+    @ManagedAttribute(value = "The number of connections kept open", readonly = true)
+    public int getMinConnectionCount()
+    {
+        return minConnections;
+    }
+
+    @ManagedAttribute(value = "The max number of concurrent requests per connection", readonly = true)
+    public int getMaxMultiplex()
+    {
+        lock();
+        try
+        {
+            return maxMultiplex;
+        }
+        finally
+        {
+            unlock();
+        }
+    }
+
+    public void setMaxMultiplex(int maxMultiplex)
+    {
+        lock();
+        try
+        {
+            this.maxMultiplex = maxMultiplex;
+        }
+        finally
+        {
+            unlock();
+        }
+    }
+
+    @ManagedAttribute(value = "The number of requests after which a connection is retired", readonly = true)
+    public int getMaxUsageCount()
+    {
+        return maxUsage;
+    }
+
+    @Override
+    @ManagedAttribute(value = "The number of idle connections", readonly = true)
+    public int getIdleConnectionCount()
+    {
+        lock();
+        try
+        {
+            return (int)connections.stream().filter(holder -> holder.count == 0).count();
+        }
+        finally
+        {
+            unlock();
+        }
+    }
+
+    @ManagedAttribute(value = "The number of connections that are closed when their requests complete", readonly = true)
+    public int getRetiredConnectionCount()
+    {
+        lock();
+        try
+        {
+            return (int)connections.stream().filter(holder -> holder.retired).count();
+        }
+        finally
+        {
+            unlock();
+        }
+    }
+
+    @Override
+    public Connection acquire()
+    {
+        Connection connection = super.acquire();
+        // Open the connections to spread the requests onto.
+        int missing = minConnections - getConnectionCount();
+        if (missing > 0)
+            preCreateConnections(missing);
+        return connection;
+    }
+
+    @Override
+    public boolean isActive(Connection connection)
+    {
+        lock();
+        try
+        {
+            return find(connection) != null;
+        }
+        finally
+        {
+            unlock();
+        }
+    }
+
+    @Override
+    protected void onCreated(Connection connection)
+    {
+        lock();
+        try
+        {
+            connections.add(new Holder(connection));
+        }
+        finally
+        {
+            unlock();
+        }
+
+        idle(connection, false);
+    }
+
+    @Override
+    protected Connection activate()
+    {
+        Holder holder = null;
+        lock();
+        try
+        {
+            // Start from a different connection every time, so
+            // that ties do not always select the same connection.
+            int size = connections.size();
+            int start = size == 0 ? 0 : Math.floorMod(next++, size);
+            long minLoad = Long.MAX_VALUE;
+            for (int i = 0; i < size; ++i)
+            {
+                Holder candidate = connections.get((start + i) % size);
+                if (candidate.retired || candidate.count >= maxMultiplex)
+                    continue;
+                long load = load(candidate);
+                if (load < minLoad)
+                {
+                    minLoad = load;
+                    holder = candidate;
+                }
+            }
+            if (holder == null)
+                return null;
+
+            ++holder.count;
+            if (maxUsage > 0 && ++holder.usage >= maxUsage)
+                holder.retired = true;
+        }
+        finally
+        {
+            unlock();
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Selected {} by {}", holder, balancing);
+        return active(holder.connection);
+    }
+
+    private long load(Holder holder)
+    {
+        if (balancing == Balancing.LEAST_OUTSTANDING_BYTES && holder.connection instanceof OutstandingBytes)
+        {
+            // Break ties, for example between connections
+            // that have no outstanding bytes, by streams.
+            long bytes = ((OutstandingBytes)holder.connection).getOutstandingBytes();
+            return bytes * (maxMultiplex + 1) + holder.count;
+        }
+        return holder.count;
+    }
+
+    @Override
+    public boolean release(Connection connection)
+    {
+        boolean closed = isClosed();
+        boolean retired;
+        lock();
+        try
+        {
+            Holder holder = find(connection);
+            if (holder == null)
+                return false;
+            --holder.count;
+            retired = holder.retired && holder.count == 0;
+        }
+        finally
+        {
+            unlock();
+        }
+
+        released(connection);
+        if (retired)
+        {
+            // The destination closes the connection, which removes it from this pool.
+            if (LOG.isDebugEnabled())
+                LOG.debug("Retired {}", connection);
+            return false;
+        }
+        return idle(connection, closed);
+    }
+
+    @Override
+    public boolean remove(Connection connection)
+    {
+        return remove(connection, false);
+    }
+
+    protected boolean remove(Connection connection, boolean force)
+    {
+        boolean removed;
+        lock();
+        try
+        {
+            Holder holder = find(connection);
+            removed = holder != null && connections.remove(holder);
+        }
+        finally
+        {
+            unlock();
+        }
+
+        if (removed || force)
+        {
+            released(connection);
+            removed(connection);
+        }
+        return removed || force;
+    }
+
+    private Holder find(Connection connection)
+    {
+        for (Holder holder : connections)
+        {
+            if (holder.connection == connection)
+                return holder;
+        }
+        return null;
+    }
+
+    @Override
+    public void close()
+    {
+        super.close();
+
+        List<Connection> toClose;
+        lock();
+        try
+        {
+            toClose = connections.stream().map(holder -> holder.connection).collect(Collectors.toList());
+        }
+        finally
+        {
+            unlock();
+        }
+
+        close(toClose);
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        List<Holder> holders;
+        lock();
+        try
+        {
+            holders = new ArrayList<>(connections);
+        }
+        finally
+        {
+            unlock();
+        }
+
+        ContainerLifeCycle.dumpObject(out, this);
+        ContainerLifeCycle.dump(out, indent, holders);
+    }
+
+    @Override
+    public boolean sweep()
+    {
+        List<Connection> toSweep;
+        lock();
+        try
+        {
+            toSweep = connections.stream()
+                    .filter(holder -> holder.count > 0)
+                    .map(holder -> holder.connection)
+                    .filter(connection -> connection instanceof Sweeper.Sweepable)
+                    .collect(Collectors.toList());
+        }
+        finally
+        {
+            unlock();
+        }
+
+        for (Connection connection : toSweep)
+        {
+            if (((Sweeper.Sweepable)connection).sweep())
+            {
+                boolean removed = remove(connection, true);
+                LOG.warn("Connection swept: {}{}{} from active connections{}{}",
+                        connection,
+                        System.lineSeparator(),
+                        removed ? "Removed" : "Not removed",
+                        System.lineSeparator(),
+                        dump());
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        int size;
+        lock();
+        try
+        {
+            size = connections.size();
+        }
+        finally
+        {
+            unlock();
+        }
+        return String.format("%s@%x[c=%d/%d,o=%d,%s]",
+                getClass().getSimpleName(),
+                hashCode(),
+                getConnectionCount(),
+                getMaxConnectionCount(),
+                size,
+                balancing);
+    }
+
+    /**
+     * The criterion to select the connection for a request.
+     */
+    public enum Balancing
+    {
+        /**
+         * Selects the connection with the least number of active requests.
+         */
+        LEAST_STREAMS,
+        /**
+         * Selects the connection with the least number of {@link OutstandingBytes outstanding bytes},
+         * or with the least number of active requests if the connection does not report them.
+         */
+        LEAST_OUTSTANDING_BYTES
+    }
+
+    /**
+     * <p>Implemented by connections that report the number of bytes they have
+     * in flight, used by {@link Balancing#LEAST_OUTSTANDING_BYTES}.</p>
+     */
+    public interface OutstandingBytes
+    {
+        /**
+         * @return the number of bytes in flight on the connection
+         */
+        public long getOutstandingBytes();
+    }
+
+    private static class Holder
+    {
+        private final Connection connection;
+        private int count;
+        private int usage;
+        private boolean retired;
+
+        private Holder(Connection connection)
+        {
+            this.connection = connection;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s[active=%d,usage=%d,retired=%b]", connection, count, usage, retired);
+        }
+    }
+}
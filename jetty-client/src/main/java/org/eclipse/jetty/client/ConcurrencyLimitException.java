@@ -0,0 +1,36 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.client;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * <p>Thrown when a request is rejected because its destination
+ * has reached the limit of concurrent exchanges.</p>
+ *
+ * @see AdaptiveConcurrencyLimiter
+ */
+public class ConcurrencyLimitException extends RejectedExecutionException
+{
+    public ConcurrencyLimitException(String message)
+    {
+        super(message);
+    }
+}
@@ -29,12 +29,29 @@ public interface ContentDecoder
 {
     /**
      * <p>Decodes the bytes in the given {@code buffer} and returns decoded bytes, if any.</p>
+     * <p>Decoders created by a {@link Factory} may return decoded bytes before
+     * having decoded all the bytes of the given {@code buffer}, so {@link HttpClient}
+     * calls this method repeatedly until it returns an empty buffer and the given
+     * {@code buffer} has been consumed.</p>
      *
      * @param buffer the buffer containing encoded bytes
      * @return a buffer containing decoded bytes, if any
+     * @see #release(ByteBuffer)
      */
     public abstract ByteBuffer decode(ByteBuffer buffer);
 
+    /**
+     * <p>Releases a non-empty buffer returned by {@link #decode(ByteBuffer)},
+     * once its bytes have been consumed by the application.</p>
+     * <p>Implementations that acquire decoded buffers from a
+     * {@link org.eclipse.jetty.io.ByteBufferPool} return them to the pool.</p>
+     *
+     * @param decoded the buffer to release
+     */
+    public default void release(ByteBuffer decoded)
+    {
+    }
+
     /**
      * Factory for {@link ContentDecoder}s; subclasses must implement {@link #newContentDecoder()}.
      * <p>
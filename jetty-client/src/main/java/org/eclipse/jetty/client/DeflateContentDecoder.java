@@ -0,0 +1,192 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.client;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.component.Destroyable;
+
+/**
+ * <p>{@link ContentDecoder} for the "deflate" encoding.</p>
+ * <p>The content is expected in the zlib format, as specified by RFC 7230;
+ * raw deflate content, sent by some non-compliant servers, is detected from
+ * its first two bytes and decoded as well.</p>
+ * <p>Inflated bytes are returned one chunk of {@code bufferSize} bytes at a time,
+ * in buffers acquired from the {@link ByteBufferPool}, if one is configured,
+ * that must be {@link #release(ByteBuffer) released} once consumed.</p>
+ */
+public class DeflateContentDecoder implements ContentDecoder, Destroyable
+{
+    private static final int DEFAULT_BUFFER_SIZE = 2048;
+
+    private final ByteBufferPool byteBufferPool;
+    private final int bufferSize;
+    private Inflater inflater;
+    private int cmf = -1;
+
+    public DeflateContentDecoder()
+    {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public DeflateContentDecoder(int bufferSize)
+    {
+        this(null, bufferSize);
+    }
+
+    public DeflateContentDecoder(ByteBufferPool byteBufferPool, int bufferSize)
+    {
+        this.byteBufferPool = byteBufferPool;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public ByteBuffer decode(ByteBuffer buffer)
+    {
+        try
+        {
+            if (inflater == null)
+            {
+                // The zlib header is detected from its first two bytes,
+                // which may arrive in different buffers.
+                if (cmf < 0)
+                {
+                    if (!buffer.hasRemaining())
+                        return BufferUtil.EMPTY_BUFFER;
+                    cmf = buffer.get() & 0xFF;
+                }
+                if (!buffer.hasRemaining())
+                    return BufferUtil.EMPTY_BUFFER;
+                byte flg = buffer.get();
+                inflater = new Inflater(!isZlibHeader(cmf, flg & 0xFF));
+                inflater.setInput(new byte[]{(byte)cmf, flg});
+            }
+
+            while (true)
+            {
+                if (inflater.finished())
+                {
+                    // Discard bytes after the end of the compressed stream.
+                    buffer.position(buffer.limit());
+                    return BufferUtil.EMPTY_BUFFER;
+                }
+
+                if (inflater.needsInput())
+                {
+                    if (!buffer.hasRemaining())
+                        return BufferUtil.EMPTY_BUFFER;
+                    if (buffer.hasArray())
+                    {
+                        inflater.setInput(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                        buffer.position(buffer.limit());
+                    }
+                    else
+                    {
+                        byte[] input = new byte[buffer.remaining()];
+                        buffer.get(input);
+                        inflater.setInput(input);
+                    }
+                }
+
+                ByteBuffer chunk = acquire(bufferSize);
+                int length = inflater.inflate(chunk.array(), chunk.arrayOffset(), chunk.capacity());
+                chunk.limit(length);
+                if (chunk.hasRemaining())
+                    return chunk;
+                release(chunk);
+
+                if (inflater.needsDictionary())
+                    throw new RuntimeException(new ZipException("Preset dictionary not supported"));
+            }
+        }
+        catch (DataFormatException x)
+        {
+            throw new RuntimeException(new ZipException(x.getMessage()));
+        }
+    }
+
+    private static boolean isZlibHeader(int cmf, int flg)
+    {
+        // CM must be 8 (deflate), CINFO at most 7 (32 KiB window),
+        // and CMF and FLG, as a 16 bit number, a multiple of 31.
+        return (cmf & 0x0F) == 8 && (cmf & 0xF0) <= 0x70 && ((cmf << 8) | flg) % 31 == 0;
+    }
+
+    private ByteBuffer acquire(int capacity)
+    {
+        return byteBufferPool == null ? BufferUtil.allocate(capacity) : byteBufferPool.acquire(capacity, false);
+    }
+
+    @Override
+    public void release(ByteBuffer decoded)
+    {
+        if (byteBufferPool != null && decoded != BufferUtil.EMPTY_BUFFER)
+            byteBufferPool.release(decoded);
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (inflater != null)
+            inflater.end();
+    }
+
+    /**
+     * Specialized {@link ContentDecoder.Factory} for the "deflate" encoding.
+     */
+    public static class Factory extends ContentDecoder.Factory
+    {
+        private final ByteBufferPool byteBufferPool;
+        private final int bufferSize;
+
+        public Factory()
+        {
+            this(DEFAULT_BUFFER_SIZE);
+        }
+
+        public Factory(int bufferSize)
+        {
+            this(null, bufferSize);
+        }
+
+        public Factory(ByteBufferPool byteBufferPool)
+        {
+            this(byteBufferPool, DEFAULT_BUFFER_SIZE);
+        }
+
+        public Factory(ByteBufferPool byteBufferPool, int bufferSize)
+        {
+            super("deflate");
+            this.byteBufferPool = byteBufferPool;
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        public ContentDecoder newContentDecoder()
+        {
+            return new DeflateContentDecoder(byteBufferPool, bufferSize);
+        }
+    }
+}
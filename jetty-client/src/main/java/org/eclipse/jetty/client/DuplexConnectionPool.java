@@ -66,6 +66,7 @@ public class DuplexConnectionPool extends AbstractConnectionPool implements Swee
         lock.unlock();
     }
 
+    @Override
     @ManagedAttribute(value = "The number of idle connections", readonly = true)
     public int getIdleConnectionCount()
     {
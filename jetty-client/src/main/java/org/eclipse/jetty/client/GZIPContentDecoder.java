@@ -18,6 +18,8 @@
 
 package org.eclipse.jetty.client;
 
+import java.nio.ByteBuffer;
+
 import org.eclipse.jetty.io.ByteBufferPool;
 
 /**
@@ -77,7 +79,28 @@ public class GZIPContentDecoder extends org.eclipse.jetty.http.GZIPContentDecode
         @Override
         public ContentDecoder newContentDecoder()
         {
-            return new GZIPContentDecoder(byteBufferPool, bufferSize);
+            return new Chunked(byteBufferPool, bufferSize);
+        }
+    }
+
+    /**
+     * <p>A {@link GZIPContentDecoder} that returns inflated bytes one chunk
+     * at a time, rather than aggregating them by copying into bigger buffers;
+     * callers must call {@link #decode(ByteBuffer)} until it returns an empty
+     * buffer and the compressed buffer has been consumed.</p>
+     */
+    private static class Chunked extends GZIPContentDecoder
+    {
+        private Chunked(ByteBufferPool byteBufferPool, int bufferSize)
+        {
+            super(byteBufferPool, bufferSize);
+        }
+
+        @Override
+        protected boolean decodedChunk(ByteBuffer chunk)
+        {
+            super.decodedChunk(chunk);
+            return true;
         }
     }
 }
@@ -133,6 +133,9 @@ public class HttpClient extends ContainerLifeCycle
     private boolean followRedirects = true;
     private int maxConnectionsPerDestination = 64;
     private int maxRequestsQueuedPerDestination = 1024;
+    private int minIdleConnectionsPerDestination;
+    private long minIdleConnectionsRefreshPeriod = 1000;
+    private boolean adaptiveConcurrencyLimit;
     private int requestBufferSize = 4096;
     private int responseBufferSize = 16384;
     private int maxRedirects = 8;
@@ -440,7 +443,22 @@ public class HttpClient extends ContainerLifeCycle
 
     protected Request copyRequest(HttpRequest oldRequest, URI newURI)
     {
-        Request newRequest = newHttpRequest(oldRequest.getConversation(), newURI);
+        return copyRequest(oldRequest, oldRequest.getConversation(), newURI);
+    }
+
+    /**
+     * <p>Copies the given request into a new request that belongs to the given conversation.</p>
+     * <p>As in {@link #copyRequest(HttpRequest, URI)}, the headers that are
+     * recomputed when the new request is sent, such as cookies, are not copied.</p>
+     *
+     * @param oldRequest the request to copy
+     * @param conversation the conversation of the new request
+     * @param newURI the URI of the new request
+     * @return the request just created
+     */
+    Request copyRequest(HttpRequest oldRequest, HttpConversation conversation, URI newURI)
+    {
+        Request newRequest = newHttpRequest(conversation, newURI);
         newRequest.method(oldRequest.getMethod())
                 .version(oldRequest.getVersion())
                 .content(oldRequest.getContent())
@@ -587,11 +605,22 @@ public class HttpClient extends ContainerLifeCycle
 
             private void connect(List<InetSocketAddress> socketAddresses, int index, Map<String, Object> context)
             {
+                InetSocketAddress socketAddress = socketAddresses.get(index);
                 context.put(HttpClientTransport.HTTP_CONNECTION_PROMISE_CONTEXT_KEY, new Promise.Wrapper<Connection>(promise)
                 {
+                    @Override
+                    public void succeeded(Connection result)
+                    {
+                        if (resolver instanceof SocketAddressResolver.Caching)
+                            ((SocketAddressResolver.Caching)resolver).connectSucceeded(socketAddress);
+                        super.succeeded(result);
+                    }
+
                     @Override
                     public void failed(Throwable x)
                     {
+                        if (resolver instanceof SocketAddressResolver.Caching)
+                            ((SocketAddressResolver.Caching)resolver).connectFailed(socketAddress);
                         int nextIndex = index + 1;
                         if (nextIndex == socketAddresses.size())
                             super.failed(x);
@@ -599,7 +628,7 @@ public class HttpClient extends ContainerLifeCycle
                             connect(socketAddresses, nextIndex, context);
                     }
                 });
-                transport.connect(socketAddresses.get(index), context);
+                transport.connect(socketAddress, context);
             }
         });
     }
@@ -822,6 +851,53 @@ public class HttpClient extends ContainerLifeCycle
         this.maxConnectionsPerDestination = maxConnectionsPerDestination;
     }
 
+    /**
+     * @return the min number of idle connections that this {@link HttpClient} keeps open to {@link Destination}s
+     */
+    @ManagedAttribute("The min number of idle connections per each destination")
+    public int getMinIdleConnectionsPerDestination()
+    {
+        return minIdleConnectionsPerDestination;
+    }
+
+    /**
+     * Sets the min number of idle connections to keep open to each destination.
+     * <p>
+     * When a destination is created, this number of connections is opened in background,
+     * so that the first requests do not pay the latency of the TCP and TLS handshakes;
+     * then, every {@link #getMinIdleConnectionsRefreshPeriod() refresh period}, connections
+     * are opened to replace those that have been closed, for example by the idle timeout.
+     * The number of connections never exceeds {@link #getMaxConnectionsPerDestination()}.
+     *
+     * @param minIdleConnectionsPerDestination the min number of idle connections per destination, or 0 to open connections only on demand
+     */
+    public void setMinIdleConnectionsPerDestination(int minIdleConnectionsPerDestination)
+    {
+        this.minIdleConnectionsPerDestination = minIdleConnectionsPerDestination;
+    }
+
+    /**
+     * @return the average period in milliseconds at which destinations open connections
+     * to restore the {@link #getMinIdleConnectionsPerDestination() min number of idle connections}
+     */
+    @ManagedAttribute("The period in ms at which destinations restore the min number of idle connections")
+    public long getMinIdleConnectionsRefreshPeriod()
+    {
+        return minIdleConnectionsRefreshPeriod;
+    }
+
+    /**
+     * @param minIdleConnectionsRefreshPeriod the average period in milliseconds at which destinations
+     * open connections to restore the {@link #getMinIdleConnectionsPerDestination() min number of idle connections}
+     * @throws IllegalArgumentException if the period is not positive
+     */
+    public void setMinIdleConnectionsRefreshPeriod(long minIdleConnectionsRefreshPeriod)
+    {
+        if (minIdleConnectionsRefreshPeriod <= 0)
+            throw new IllegalArgumentException("Invalid min idle connections refresh period " + minIdleConnectionsRefreshPeriod);
+        this.minIdleConnectionsRefreshPeriod = minIdleConnectionsRefreshPeriod;
+    }
+
     /**
      * @return the max number of requests that may be queued to a {@link Destination}.
      */
@@ -849,6 +925,37 @@ public class HttpClient extends ContainerLifeCycle
         this.maxRequestsQueuedPerDestination = maxRequestsQueuedPerDestination;
     }
 
+    /**
+     * @return whether the number of concurrent exchanges per destination is adaptively limited
+     * @see #setAdaptiveConcurrencyLimit(boolean)
+     */
+    @ManagedAttribute("Whether the number of concurrent exchanges per destination is adaptively limited")
+    public boolean isAdaptiveConcurrencyLimit()
+    {
+        return adaptiveConcurrencyLimit;
+    }
+
+    /**
+     * Sets whether the number of concurrent exchanges per destination is adaptively limited.
+     * <p>
+     * When enabled, each destination adapts the number of exchanges that may be queued or
+     * in progress to the latency of the server: when the server slows down the limit
+     * decreases, and requests that exceed the limit fail immediately with a
+     * {@link ConcurrencyLimitException} rather than waiting in the destination queue
+     * until they time out.
+     * The limit never exceeds the sum of {@link #getMaxConnectionsPerDestination()}
+     * and {@link #getMaxRequestsQueuedPerDestination()}.
+     * <p>
+     * This setting only affects destinations created after it is changed.
+     *
+     * @param adaptiveConcurrencyLimit whether the number of concurrent exchanges per destination is adaptively limited
+     * @see AdaptiveConcurrencyLimiter
+     */
+    public void setAdaptiveConcurrencyLimit(boolean adaptiveConcurrencyLimit)
+    {
+        this.adaptiveConcurrencyLimit = adaptiveConcurrencyLimit;
+    }
+
     /**
      * @return the size of the buffer used to write requests
      */
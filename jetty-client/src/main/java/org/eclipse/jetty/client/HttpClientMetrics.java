@@ -0,0 +1,411 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EventListener;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.io.ClientConnectionFactory;
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.ssl.SslConnection;
+import org.eclipse.jetty.io.ssl.SslHandshakeListener;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
+
+/**
+ * <p>Records latency, queue and connection metrics of the requests sent by a {@link HttpClient},
+ * broken down by {@link Origin}.</p>
+ * <p>Metrics are enabled by adding an instance of this class as a bean to {@link HttpClient},
+ * before sending requests:</p>
+ * <pre>
+ * HttpClient httpClient = new HttpClient();
+ * HttpClientMetrics metrics = new HttpClientMetrics();
+ * httpClient.addBean(metrics);
+ * httpClient.start();
+ * </pre>
+ * <p>For each origin, the {@link Timing times} of the exchanges are recorded in
+ * {@link HistogramStatistic}s, in nanoseconds; the failures of the exchanges are counted
+ * by failure type; the size of the request queue and the usage of the connection pool
+ * are sampled when read.</p>
+ * <p>The metrics of each origin are available via JMX, via {@link #getOriginMetrics(Origin)},
+ * and are notified to {@link Listener}s as they are recorded.</p>
+ */
+@ManagedObject("HttpClient metrics by origin")
+public class HttpClientMetrics extends ContainerLifeCycle
+{
+    private static final Logger LOG = Log.getLogger(HttpClientMetrics.class);
+
+    private final ConcurrentMap<Origin, OriginMetrics> origins = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Listener listener)
+    {
+        listeners.add(listener);
+    }
+
+    public boolean removeListener(Listener listener)
+    {
+        return listeners.remove(listener);
+    }
+
+    /**
+     * @param origin the origin
+     * @return the metrics of the given origin, or null if no request has been sent to the origin
+     */
+    public OriginMetrics getOriginMetrics(Origin origin)
+    {
+        return origins.get(origin);
+    }
+
+    /**
+     * @return the metrics of all the origins requests have been sent to
+     */
+    public Collection<OriginMetrics> getOriginMetrics()
+    {
+        return new ArrayList<>(origins.values());
+    }
+
+    OriginMetrics originMetricsFor(Origin origin)
+    {
+        OriginMetrics metrics = origins.get(origin);
+        if (metrics == null)
+        {
+            metrics = new OriginMetrics(origin);
+            OriginMetrics existing = origins.putIfAbsent(origin, metrics);
+            if (existing != null)
+                return existing;
+            addBean(metrics);
+        }
+        return metrics;
+    }
+
+    @ManagedOperation(value = "Resets the metrics of all origins", impact = "ACTION")
+    public void reset()
+    {
+        origins.values().forEach(OriginMetrics::reset);
+    }
+
+    /**
+     * The times recorded for each exchange.
+     */
+    public enum Timing
+    {
+        /**
+         * The time an exchange waited in the destination queue for a connection.
+         */
+        QUEUED,
+        /**
+         * The time to open a connection, including the TLS handshake
+         * when the HTTP protocol negotiation depends on it.
+         */
+        CONNECT,
+        /**
+         * The time of the TLS handshake, from the creation of the TLS connection.
+         */
+        TLS_HANDSHAKE,
+        /**
+         * The time from when an exchange is sent until the response begins.
+         */
+        TIME_TO_FIRST_BYTE,
+        /**
+         * The time from when a request is sent by the application until its exchange terminates.
+         */
+        TOTAL
+    }
+
+    /**
+     * <p>Listener for metrics, notified every time a metric is recorded.</p>
+     * <p>Listeners are notified from the threads that process requests and responses,
+     * and therefore must not block.</p>
+     */
+    public interface Listener extends EventListener
+    {
+        /**
+         * @param origin the origin of the exchange or connection
+         * @param timing the type of time recorded
+         * @param nanos the time recorded, in nanoseconds
+         */
+        public default void onTiming(Origin origin, Timing timing, long nanos)
+        {
+        }
+
+        /**
+         * @param origin the origin of the exchange
+         * @param failure the failure of the exchange
+         */
+        public default void onFailure(Origin origin, Throwable failure)
+        {
+        }
+    }
+
+    /**
+     * <p>The metrics of one {@link Origin}.</p>
+     */
+    @ManagedObject("The metrics of an origin")
+    public class OriginMetrics
+    {
+        private final HistogramStatistic[] timings = new HistogramStatistic[Timing.values().length];
+        private final ConcurrentMap<String, LongAdder> failures = new ConcurrentHashMap<>();
+        private final AtomicReference<HttpDestination> destination = new AtomicReference<>();
+        private final Origin origin;
+
+        private OriginMetrics(Origin origin)
+        {
+            this.origin = origin;
+            for (int i = 0; i < timings.length; ++i)
+                timings[i] = new HistogramStatistic();
+        }
+
+        public Origin getOrigin()
+        {
+            return origin;
+        }
+
+        @ManagedAttribute(value = "The origin", readonly = true)
+        public String getName()
+        {
+            return origin.asString();
+        }
+
+        /**
+         * @param timing the type of time
+         * @return the histogram of the given type of time, in nanoseconds
+         */
+        public HistogramStatistic getHistogram(Timing timing)
+        {
+            return timings[timing.ordinal()];
+        }
+
+        @ManagedAttribute(value = "The time exchanges waited for a connection, in microseconds", readonly = true)
+        public Map<String, Long> getQueuedTimes()
+        {
+            return summary(Timing.QUEUED);
+        }
+
+        @ManagedAttribute(value = "The time to open connections, in microseconds", readonly = true)
+        public Map<String, Long> getConnectTimes()
+        {
+            return summary(Timing.CONNECT);
+        }
+
+        @ManagedAttribute(value = "The time of TLS handshakes, in microseconds", readonly = true)
+        public Map<String, Long> getTLSHandshakeTimes()
+        {
+            return summary(Timing.TLS_HANDSHAKE);
+        }
+
+        @ManagedAttribute(value = "The time to the first byte of responses, in microseconds", readonly = true)
+        public Map<String, Long> getTimeToFirstByteTimes()
+        {
+            return summary(Timing.TIME_TO_FIRST_BYTE);
+        }
+
+        @ManagedAttribute(value = "The total time of exchanges, in microseconds", readonly = true)
+        public Map<String, Long> getTotalTimes()
+        {
+            return summary(Timing.TOTAL);
+        }
+
+        private Map<String, Long> summary(Timing timing)
+        {
+            HistogramStatistic histogram = getHistogram(timing);
+            Map<String, Long> result = new LinkedHashMap<>();
+            result.put("count", histogram.getCount());
+            result.put("mean", micros((long)histogram.getMean()));
+            result.put("p50", micros(histogram.getValueAtPercentile(50)));
+            result.put("p90", micros(histogram.getValueAtPercentile(90)));
+            result.put("p99", micros(histogram.getValueAtPercentile(99)));
+            result.put("p999", micros(histogram.getValueAtPercentile(99.9)));
+            result.put("max", micros(histogram.getMax()));
+            return result;
+        }
+
+        private long micros(long nanos)
+        {
+            return TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+
+        @ManagedAttribute(value = "The number of failed exchanges by failure type", readonly = true)
+        public Map<String, Long> getFailures()
+        {
+            Map<String, Long> result = new TreeMap<>();
+            failures.forEach((type, count) -> result.put(type, count.sum()));
+            return result;
+        }
+
+        @ManagedAttribute(value = "The number of queued requests", readonly = true)
+        public int getQueuedRequestCount()
+        {
+            HttpDestination destination = this.destination.get();
+            return destination == null ? 0 : destination.getQueuedRequestCount();
+        }
+
+        @ManagedAttribute(value = "The number of connections", readonly = true)
+        public int getConnectionCount()
+        {
+            AbstractConnectionPool pool = getConnectionPool();
+            return pool == null ? 0 : pool.getConnectionCount();
+        }
+
+        @ManagedAttribute(value = "The number of idle connections", readonly = true)
+        public int getIdleConnectionCount()
+        {
+            AbstractConnectionPool pool = getConnectionPool();
+            return pool == null ? 0 : pool.getIdleConnectionCount();
+        }
+
+        @ManagedAttribute(value = "The ratio of in use connections to max connections", readonly = true)
+        public double getConnectionPoolUtilization()
+        {
+            AbstractConnectionPool pool = getConnectionPool();
+            if (pool == null)
+                return 0.0;
+            int inUse = pool.getConnectionCount() - pool.getIdleConnectionCount();
+            return (double)Math.max(0, inUse) / pool.getMaxConnectionCount();
+        }
+
+        private AbstractConnectionPool getConnectionPool()
+        {
+            HttpDestination destination = this.destination.get();
+            if (destination == null)
+                return null;
+            ConnectionPool pool = destination.getConnectionPool();
+            return pool instanceof AbstractConnectionPool ? (AbstractConnectionPool)pool : null;
+        }
+
+        @ManagedOperation(value = "Resets the metrics", impact = "ACTION")
+        public void reset()
+        {
+            for (HistogramStatistic histogram : timings)
+                histogram.reset();
+            failures.clear();
+        }
+
+        void attach(HttpDestination destination)
+        {
+            this.destination.set(destination);
+        }
+
+        void detach(HttpDestination destination)
+        {
+            this.destination.compareAndSet(destination, null);
+        }
+
+        void record(Timing timing, long nanos)
+        {
+            getHistogram(timing).record(nanos);
+            for (Listener listener : listeners)
+            {
+                try
+                {
+                    listener.onTiming(origin, timing, nanos);
+                }
+                catch (Throwable x)
+                {
+                    LOG.info("Exception while notifying listener " + listener, x);
+                }
+            }
+        }
+
+        void failed(Throwable failure)
+        {
+            failures.computeIfAbsent(failure.getClass().getSimpleName(), type -> new LongAdder()).increment();
+            for (Listener listener : listeners)
+            {
+                try
+                {
+                    listener.onFailure(origin, failure);
+                }
+                catch (Throwable x)
+                {
+                    LOG.info("Exception while notifying listener " + listener, x);
+                }
+            }
+        }
+
+        ClientConnectionFactory newTLSHandshakeTimer(ClientConnectionFactory sslConnectionFactory)
+        {
+            return new TLSHandshakeTimer(sslConnectionFactory);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x[%s]", getClass().getSimpleName(), hashCode(), getName());
+        }
+
+        /**
+         * <p>Records the time of the TLS handshake of the connections
+         * created by the wrapped TLS connection factory.</p>
+         */
+        private class TLSHandshakeTimer implements ClientConnectionFactory
+        {
+            private final ClientConnectionFactory connectionFactory;
+
+            private TLSHandshakeTimer(ClientConnectionFactory connectionFactory)
+            {
+                this.connectionFactory = connectionFactory;
+            }
+
+            @Override
+            public Connection newConnection(EndPoint endPoint, Map<String, Object> context) throws IOException
+            {
+                Connection connection = connectionFactory.newConnection(endPoint, context);
+                if (connection instanceof SslConnection)
+                {
+                    long begin = System.nanoTime();
+                    ((SslConnection)connection).addHandshakeListener(new SslHandshakeListener()
+                    {
+                        @Override
+                        public void handshakeSucceeded(Event event)
+                        {
+                            record(Timing.TLS_HANDSHAKE, System.nanoTime() - begin);
+                        }
+                    });
+                }
+                return connection;
+            }
+
+            @Override
+            public Connection customize(Connection connection, Map<String, Object> context)
+            {
+                return connectionFactory.customize(connection, context);
+            }
+        }
+    }
+}
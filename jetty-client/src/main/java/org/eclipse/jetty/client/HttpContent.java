@@ -19,11 +19,15 @@
 package org.eclipse.jetty.client;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.Iterator;
 
 import org.eclipse.jetty.client.api.ContentProvider;
+import org.eclipse.jetty.client.util.PathContentProvider;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.ChannelEndPoint;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.log.Log;
@@ -76,9 +80,24 @@ public class HttpContent implements Callback, Closeable
     private boolean last;
 
     public HttpContent(ContentProvider provider)
+    {
+        this(provider, null);
+    }
+
+    /**
+     * @param provider the content provider, or null
+     * @param byteBufferPool the pool that a {@link PathContentProvider} without
+     * its own pool reads the file into buffers from, when they cannot be transferred
+     */
+    public HttpContent(ContentProvider provider, ByteBufferPool byteBufferPool)
     {
         this.provider = provider;
-        this.iterator = provider == null ? Collections.<ByteBuffer>emptyIterator() : provider.iterator();
+        if (provider == null)
+            this.iterator = Collections.<ByteBuffer>emptyIterator();
+        else if (provider instanceof PathContentProvider)
+            this.iterator = ((PathContentProvider)provider).iterator(byteBufferPool);
+        else
+            this.iterator = provider.iterator();
     }
 
     /**
@@ -174,6 +193,30 @@ public class HttpContent implements Callback, Closeable
         }
     }
 
+    /**
+     * @return whether the content that follows the cursor's position can be
+     * {@link #transferTo(ChannelEndPoint) transferred} without copying
+     */
+    public boolean isTransferable()
+    {
+        return iterator instanceof Transferable;
+    }
+
+    /**
+     * <p>Transfers the content that follows the cursor's position directly to the given endpoint.</p>
+     * <p>The cursor does not move, but the next call to {@link #advance()} will skip the
+     * bytes that have been transferred.</p>
+     *
+     * @param endPoint the endpoint to transfer the content to
+     * @return the number of bytes transferred, possibly zero
+     * @throws IOException if the transfer fails
+     * @see #isTransferable()
+     */
+    public long transferTo(ChannelEndPoint endPoint) throws IOException
+    {
+        return ((Transferable)iterator).transferTo(endPoint);
+    }
+
     /**
      * @return whether the cursor has been advanced past the {@link #isLast() last} position.
      */
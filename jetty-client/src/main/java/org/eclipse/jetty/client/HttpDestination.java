@@ -26,11 +26,15 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.jetty.client.api.Connection;
 import org.eclipse.jetty.client.api.Destination;
 import org.eclipse.jetty.client.api.Request;
 import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.io.ClientConnectionFactory;
@@ -45,6 +49,7 @@ import org.eclipse.jetty.util.component.Dumpable;
 import org.eclipse.jetty.util.component.DumpableCollection;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.Scheduler;
 import org.eclipse.jetty.util.thread.Sweeper;
 
 @ManagedObject
@@ -60,6 +65,9 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
     private final ProxyConfiguration.Proxy proxy;
     private final ClientConnectionFactory connectionFactory;
     private final HttpField hostField;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final HttpClientMetrics.OriginMetrics metrics;
+    private final MinIdleConnections minIdleConnections = new MinIdleConnections();
     private ConnectionPool connectionPool;
 
     public HttpDestination(HttpClient client, Origin origin)
@@ -72,6 +80,9 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
         this.requestNotifier = new RequestNotifier(client);
         this.responseNotifier = new ResponseNotifier();
 
+        HttpClientMetrics clientMetrics = client.getBean(HttpClientMetrics.class);
+        this.metrics = clientMetrics == null ? null : clientMetrics.originMetricsFor(origin);
+
         ProxyConfiguration proxyConfig = client.getProxyConfiguration();
         proxy = proxyConfig.match(origin);
         ClientConnectionFactory connectionFactory = client.getTransport();
@@ -92,6 +103,10 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
         if (!client.isDefaultPort(getScheme(), getPort()))
             host += ":" + getPort();
         hostField = new HttpField(HttpHeader.HOST, host);
+
+        this.concurrencyLimiter = newConcurrencyLimiter(client);
+        if (concurrencyLimiter != null)
+            addBean(concurrencyLimiter);
     }
 
     @Override
@@ -100,14 +115,21 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
         this.connectionPool = newConnectionPool(client);
         addBean(connectionPool);
         super.doStart();
+        if (metrics != null)
+            metrics.attach(this);
         Sweeper sweeper = client.getBean(Sweeper.class);
         if (sweeper != null && connectionPool instanceof Sweeper.Sweepable)
             sweeper.offer((Sweeper.Sweepable)connectionPool);
+        if (client.getMinIdleConnectionsPerDestination() > 0 && connectionPool instanceof AbstractConnectionPool)
+            minIdleConnections.run();
     }
 
     @Override
     protected void doStop() throws Exception
     {
+        minIdleConnections.cancel();
+        if (metrics != null)
+            metrics.detach(this);
         Sweeper sweeper = client.getBean(Sweeper.class);
         if (sweeper != null && connectionPool instanceof Sweeper.Sweepable)
             sweeper.remove((Sweeper.Sweepable)connectionPool);
@@ -125,9 +147,23 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
         return new BlockingArrayQueue<>(client.getMaxRequestsQueuedPerDestination());
     }
 
+    /**
+     * @param client the {@link HttpClient}
+     * @return a limiter of concurrent exchanges for this destination, or null for no limiter
+     * @see HttpClient#isAdaptiveConcurrencyLimit()
+     */
+    protected AdaptiveConcurrencyLimiter newConcurrencyLimiter(HttpClient client)
+    {
+        if (!client.isAdaptiveConcurrencyLimit())
+            return null;
+        int maxLimit = client.getMaxConnectionsPerDestination() + client.getMaxRequestsQueuedPerDestination();
+        return new AdaptiveConcurrencyLimiter(client.getMaxConnectionsPerDestination(), 1, maxLimit);
+    }
+
     protected ClientConnectionFactory newSslClientConnectionFactory(ClientConnectionFactory connectionFactory)
     {
-        return client.newSslClientConnectionFactory(connectionFactory);
+        ClientConnectionFactory sslConnectionFactory = client.newSslClientConnectionFactory(connectionFactory);
+        return metrics == null ? sslConnectionFactory : metrics.newTLSHandshakeTimer(sslConnectionFactory);
     }
 
     public boolean isSecure()
@@ -170,6 +206,23 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
         return connectionFactory;
     }
 
+    /**
+     * @return the limiter of concurrent exchanges for this destination, or null if there is no limiter
+     */
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter()
+    {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * @return the metrics of the origin of this destination, or null if metrics are not enabled
+     * @see HttpClientMetrics
+     */
+    public HttpClientMetrics.OriginMetrics getMetrics()
+    {
+        return metrics;
+    }
+
     @Override
     @ManagedAttribute(value = "The destination scheme", readonly = true)
     public String getScheme()
@@ -241,6 +294,18 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
 
         if (client.isRunning())
         {
+            if (concurrencyLimiter != null)
+            {
+                if (!concurrencyLimiter.tryAcquire())
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Concurrency limit {} exceeded by {} for {}", concurrencyLimiter.getLimit(), request, this);
+                    request.abort(new ConcurrencyLimitException("Concurrency limit " + concurrencyLimiter.getLimit() + " exceeded for " + this));
+                    return;
+                }
+                exchange.acquirePermit();
+            }
+
             if (enqueue(exchanges, exchange))
             {
                 if (!client.isRunning() && exchanges.remove(exchange))
@@ -329,6 +394,10 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
             }
             else
             {
+                long sendNanoTime = System.nanoTime();
+                exchange.setSendNanoTime(sendNanoTime);
+                if (metrics != null)
+                    metrics.record(HttpClientMetrics.Timing.QUEUED, sendNanoTime - exchange.getNanoTime());
                 SendFailure result = send(connection, exchange);
                 if (result != null)
                 {
@@ -349,8 +418,43 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
 
     protected abstract SendFailure send(Connection connection, HttpExchange exchange);
 
+    void responseBegin(HttpExchange exchange)
+    {
+        long sendNanoTime = exchange.getSendNanoTime();
+        if (metrics != null && sendNanoTime != 0)
+            metrics.record(HttpClientMetrics.Timing.TIME_TO_FIRST_BYTE, System.nanoTime() - sendNanoTime);
+    }
+
+    void exchangeTerminated(HttpExchange exchange, Result result)
+    {
+        if (concurrencyLimiter != null && exchange.releasePermit())
+        {
+            long roundTripTime = System.nanoTime() - exchange.getNanoTime();
+            concurrencyLimiter.release(roundTripTime, result.getFailure() instanceof TimeoutException);
+        }
+        if (metrics != null)
+        {
+            metrics.record(HttpClientMetrics.Timing.TOTAL, System.nanoTime() - exchange.getNanoTime());
+            if (result.isFailed())
+                metrics.failed(result.getFailure());
+        }
+    }
+
     public void newConnection(Promise<Connection> promise)
     {
+        if (metrics != null)
+        {
+            long begin = System.nanoTime();
+            promise = new Promise.Wrapper<Connection>(promise)
+            {
+                @Override
+                public void succeeded(Connection result)
+                {
+                    metrics.record(HttpClientMetrics.Timing.CONNECT, System.nanoTime() - begin);
+                    super.succeeded(result);
+                }
+            };
+        }
         createConnection(promise);
     }
 
@@ -470,4 +574,41 @@ public abstract class HttpDestination extends ContainerLifeCycle implements Dest
                 exchanges.size(),
                 connectionPool);
     }
+
+    /**
+     * <p>Opens connections to keep at least {@link HttpClient#getMinIdleConnectionsPerDestination()}
+     * idle connections in the pool, at a jittered period so that destinations do not all open
+     * connections at the same time.</p>
+     */
+    private class MinIdleConnections implements Runnable
+    {
+        private volatile Scheduler.Task task;
+
+        @Override
+        public void run()
+        {
+            if (!isRunning())
+                return;
+
+            AbstractConnectionPool pool = (AbstractConnectionPool)connectionPool;
+            int connections = client.getMinIdleConnectionsPerDestination() - pool.getIdleConnectionCount() - pool.getPendingConnectionCount();
+            if (connections > 0)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Opening {} idle connections for {}", connections, HttpDestination.this);
+                pool.preCreateConnections(connections);
+            }
+
+            long period = client.getMinIdleConnectionsRefreshPeriod();
+            long delay = period / 2 + ThreadLocalRandom.current().nextLong(period + 1);
+            task = client.getScheduler().schedule(this, delay, TimeUnit.MILLISECONDS);
+        }
+
+        private void cancel()
+        {
+            Scheduler.Task task = this.task;
+            if (task != null)
+                task.cancel();
+        }
+    }
 }
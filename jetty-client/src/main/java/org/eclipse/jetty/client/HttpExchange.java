@@ -33,6 +33,9 @@ public class HttpExchange
     private final HttpRequest request;
     private final List<Response.ResponseListener> listeners;
     private final HttpResponse response;
+    private final long nanoTime = System.nanoTime();
+    private volatile long sendNanoTime;
+    private boolean permit;
     private State requestState = State.PENDING;
     private State responseState = State.PENDING;
     private HttpChannel _channel;
@@ -60,6 +63,46 @@ public class HttpExchange
         return request;
     }
 
+    /**
+     * @return the {@link System#nanoTime()} at which this exchange was created
+     */
+    public long getNanoTime()
+    {
+        return nanoTime;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which this exchange was taken
+     * from the destination queue to be sent, or 0 if it has not been sent yet
+     */
+    public long getSendNanoTime()
+    {
+        return sendNanoTime;
+    }
+
+    void setSendNanoTime(long sendNanoTime)
+    {
+        this.sendNanoTime = sendNanoTime;
+    }
+
+    void acquirePermit()
+    {
+        synchronized (this)
+        {
+            permit = true;
+        }
+    }
+
+    boolean releasePermit()
+    {
+        synchronized (this)
+        {
+            boolean result = permit;
+            permit = false;
+            return result;
+        }
+    }
+
     public Throwable getRequestFailure()
     {
         synchronized (this)
@@ -262,11 +305,13 @@ public class HttpExchange
 
     private void notifyFailureComplete(Throwable failure)
     {
+        Result result = new Result(request, failure, response, failure);
+        destination.exchangeTerminated(this, result);
         destination.getRequestNotifier().notifyFailure(request, failure);
         List<Response.ResponseListener> listeners = getConversation().getResponseListeners();
         ResponseNotifier responseNotifier = destination.getResponseNotifier();
         responseNotifier.notifyFailure(listeners, response, failure);
-        responseNotifier.notifyComplete(listeners, new Result(request, failure, response, failure));
+        responseNotifier.notifyComplete(listeners, result);
     }
 
     public void resetResponse()
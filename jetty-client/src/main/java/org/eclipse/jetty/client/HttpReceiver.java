@@ -28,12 +28,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
 
 import org.eclipse.jetty.client.api.Response;
 import org.eclipse.jetty.client.api.Result;
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.CountingCallback;
@@ -56,6 +58,11 @@ import org.eclipse.jetty.util.log.Logger;
  * <li>{@link #responseContent(HttpExchange, ByteBuffer, Callback)}, when HTTP content is available</li>
  * <li>{@link #responseSuccess(HttpExchange)}, when the response is successful</li>
  * </ol>
+ * When the response has {@link Response.DemandedContentListener}s, subclasses must call {@link #hasDemandOrStall()}
+ * before reading more content, and stop reading if it returns false; once they have stopped reading they must call
+ * {@link #stall()} and, if it returns false, continue reading themselves, otherwise reading is resumed via
+ * {@link #receive()} when the application demands more content.
+ * <p>
  * At any time, subclasses may invoke {@link #responseFailure(Throwable)} to indicate that the response has failed
  * (for example, because of I/O exceptions).
  * At any time, user threads may abort the response which will cause {@link #responseFailure(Throwable)} to be
@@ -72,8 +79,11 @@ public abstract class HttpReceiver
 
     private final AtomicReference<ResponseState> responseState = new AtomicReference<>(ResponseState.IDLE);
     private final HttpChannel channel;
+    private final List<Demand> demands = new ArrayList<>(1);
     private ContentDecoder decoder;
     private Throwable failure;
+    private boolean stalling;
+    private boolean stalled;
 
     protected HttpReceiver(HttpChannel channel)
     {
@@ -95,6 +105,119 @@ public abstract class HttpReceiver
         return channel.getHttpDestination();
     }
 
+    /**
+     * <p>Resumes reading the response content, after this receiver
+     * stalled because there was no demand for content.</p>
+     *
+     * @see #hasDemandOrStall()
+     */
+    protected void receive()
+    {
+    }
+
+    /**
+     * <p>Returns whether there is demand for response content.</p>
+     * <p>If there is no demand, this receiver starts stalling: demand that
+     * arrives from now on only accumulates, and the thread that is reading
+     * must call {@link #stall()} once it has stopped reading.</p>
+     *
+     * @return whether there is demand for response content
+     * @see #stall()
+     */
+    protected boolean hasDemandOrStall()
+    {
+        synchronized (this)
+        {
+            if (hasDemand())
+                return true;
+            stalling = true;
+            return false;
+        }
+    }
+
+    /**
+     * <p>Marks this receiver as stalled, after the reading thread has stopped
+     * reading because {@link #hasDemandOrStall()} returned false.</p>
+     * <p>If demand arrived in the meantime, this receiver is not stalled and
+     * the calling thread must continue reading, otherwise {@link #receive()}
+     * is called by the thread that demands more content.</p>
+     *
+     * @return true if reading must stop, false if the calling thread must continue reading
+     */
+    protected boolean stall()
+    {
+        synchronized (this)
+        {
+            if (!stalling)
+                return true;
+            stalling = false;
+            if (hasDemand())
+                return false;
+            stalled = true;
+            return true;
+        }
+    }
+
+    private boolean hasDemand()
+    {
+        for (int i = 0; i < demands.size(); ++i)
+        {
+            if (demands.get(i).demand <= 0)
+                return false;
+        }
+        return true;
+    }
+
+    private void demand(Demand demand, long n)
+    {
+        if (n <= 0)
+            throw new IllegalArgumentException("Invalid demand " + n);
+
+        boolean resume = false;
+        synchronized (this)
+        {
+            // Ignore demand from the listeners of previous responses.
+            if (!demands.contains(demand))
+                return;
+            demand.demand = demand.demand + n < 0 ? Long.MAX_VALUE : demand.demand + n;
+            if (stalled && hasDemand())
+            {
+                stalled = false;
+                resume = true;
+            }
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Response demand {}, resume={} on {}", n, resume, this);
+
+        if (resume)
+            receive();
+    }
+
+    private LongConsumer demandOf(Response.DemandedContentListener listener)
+    {
+        synchronized (this)
+        {
+            for (int i = 0; i < demands.size(); ++i)
+            {
+                Demand demand = demands.get(i);
+                if (demand.listener == listener)
+                    return demand;
+            }
+        }
+        return n -> {};
+    }
+
+    private void resetDemand()
+    {
+        synchronized (this)
+        {
+            demands.clear();
+            stalling = false;
+            stalled = false;
+        }
+    }
+
     /**
      * Method to be invoked when the response status code is available.
      * <p>
@@ -115,6 +238,7 @@ public abstract class HttpReceiver
         HttpResponse response = exchange.getResponse();
         // Probe the protocol handlers
         HttpDestination destination = getHttpDestination();
+        destination.responseBegin(exchange);
         HttpClient client = destination.getHttpClient();
         ProtocolHandler protocolHandler = client.findProtocolHandler(exchange.getRequest(), response);
         Response.Listener handlerListener = null;
@@ -257,7 +381,8 @@ public abstract class HttpReceiver
         if (LOG.isDebugEnabled())
             LOG.debug("Response headers {}{}{}", response, System.lineSeparator(), response.getHeaders().toString().trim());
         ResponseNotifier notifier = getHttpDestination().getResponseNotifier();
-        notifier.notifyHeaders(exchange.getConversation().getResponseListeners(), response);
+        List<Response.ResponseListener> listeners = exchange.getConversation().getResponseListeners();
+        notifier.notifyHeaders(listeners, response);
 
         Enumeration<String> contentEncodings = response.getHeaders().getValues(HttpHeader.CONTENT_ENCODING.asString(), ",");
         if (contentEncodings != null)
@@ -275,6 +400,27 @@ public abstract class HttpReceiver
             }
         }
 
+        List<Demand> demands = null;
+        for (int i = 0; i < listeners.size(); ++i)
+        {
+            Response.ResponseListener listener = listeners.get(i);
+            if (listener instanceof Response.DemandedContentListener)
+            {
+                if (demands == null)
+                    demands = new ArrayList<>(1);
+                demands.add(new Demand((Response.DemandedContentListener)listener));
+            }
+        }
+        if (demands != null)
+        {
+            synchronized (this)
+            {
+                this.demands.addAll(demands);
+            }
+            for (Demand demand : demands)
+                notifier.notifyBeforeContent(demand.listener, response, demand);
+        }
+
         if (updateResponseState(ResponseState.TRANSIENT, ResponseState.HEADERS))
             return true;
 
@@ -321,34 +467,68 @@ public abstract class HttpReceiver
         ResponseNotifier notifier = getHttpDestination().getResponseNotifier();
         List<Response.ResponseListener> listeners = exchange.getConversation().getResponseListeners();
 
+        boolean demanded;
+        synchronized (this)
+        {
+            demanded = !demands.isEmpty();
+            for (int i = 0; i < demands.size(); ++i)
+                --demands.get(i).demand;
+        }
+
         ContentDecoder decoder = this.decoder;
         if (decoder == null)
         {
-            notifier.notifyContent(listeners, response, buffer, callback);
+            notifier.notifyContent(listeners, response, buffer, callback, this::demandOf);
         }
         else
         {
             try
             {
                 List<ByteBuffer> decodeds = new ArrayList<>(2);
-                while (buffer.hasRemaining())
+                while (true)
                 {
+                    // Decoders may produce one chunk at a time while retaining
+                    // compressed input, so they must be drained until they return
+                    // an empty buffer, after which the input buffer is reusable.
                     ByteBuffer decoded = decoder.decode(buffer);
-                    if (!decoded.hasRemaining())
-                        continue;
-                    decodeds.add(decoded);
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("Response content decoded ({}) {}{}{}", decoder, response, System.lineSeparator(), BufferUtil.toDetailString(decoded));
+                    if (decoded.hasRemaining())
+                    {
+                        decodeds.add(decoded);
+                        if (LOG.isDebugEnabled())
+                            LOG.debug("Response content decoded ({}) {}{}{}", decoder, response, System.lineSeparator(), BufferUtil.toDetailString(decoded));
+                    }
+                    else if (!buffer.hasRemaining())
+                    {
+                        break;
+                    }
                 }
 
                 if (decodeds.isEmpty())
                 {
                     callback.succeeded();
                 }
+                else if (demanded)
+                {
+                    // Demand is consumed once per call to this method,
+                    // so the decoded content is notified in one event.
+                    if (decodeds.size() == 1)
+                    {
+                        ByteBuffer decoded = decodeds.get(0);
+                        notifier.notifyContent(listeners, response, decoded, new ReleaseCallback(callback, () -> decoder.release(decoded)), this::demandOf);
+                    }
+                    else
+                    {
+                        ByteBufferPool byteBufferPool = getHttpDestination().getHttpClient().getByteBufferPool();
+                        ByteBuffer merged = merge(byteBufferPool, decodeds);
+                        decodeds.forEach(decoder::release);
+                        notifier.notifyContent(listeners, response, merged, new ReleaseCallback(callback, () -> byteBufferPool.release(merged)), this::demandOf);
+                    }
+                }
                 else
                 {
+                    // The decoded buffers are released when all listeners have consumed them.
                     int size = decodeds.size();
-                    CountingCallback counter = new CountingCallback(callback, size);
+                    CountingCallback counter = new CountingCallback(new ReleaseCallback(callback, () -> decodeds.forEach(decoder::release)), size);
                     for (int i = 0; i < size; ++i)
                         notifier.notifyContent(listeners, response, decodeds.get(i), counter);
                 }
@@ -473,6 +653,7 @@ public abstract class HttpReceiver
     {
         destroyDecoder(decoder);
         decoder = null;
+        resetDemand();
     }
 
     /**
@@ -486,6 +667,20 @@ public abstract class HttpReceiver
     {
         destroyDecoder(decoder);
         decoder = null;
+        resetDemand();
+    }
+
+    private static ByteBuffer merge(ByteBufferPool byteBufferPool, List<ByteBuffer> buffers)
+    {
+        int length = 0;
+        for (ByteBuffer buffer : buffers)
+            length += buffer.remaining();
+        ByteBuffer result = byteBufferPool.acquire(length, false);
+        int position = BufferUtil.flipToFill(result);
+        for (ByteBuffer buffer : buffers)
+            result.put(buffer);
+        BufferUtil.flipToFlush(result, position);
+        return result;
     }
 
     private static void destroyDecoder(ContentDecoder decoder)
@@ -603,4 +798,46 @@ public abstract class HttpReceiver
          */
         FAILURE
     }
+
+    private class Demand implements LongConsumer
+    {
+        private final Response.DemandedContentListener listener;
+        private long demand;
+
+        private Demand(Response.DemandedContentListener listener)
+        {
+            this.listener = listener;
+        }
+
+        @Override
+        public void accept(long n)
+        {
+            demand(this, n);
+        }
+    }
+
+    private static class ReleaseCallback extends Callback.Nested
+    {
+        private final Runnable release;
+
+        private ReleaseCallback(Callback callback, Runnable release)
+        {
+            super(callback);
+            this.release = release;
+        }
+
+        @Override
+        public void succeeded()
+        {
+            release.run();
+            super.succeeded();
+        }
+
+        @Override
+        public void failed(Throwable x)
+        {
+            release.run();
+            super.failed(x);
+        }
+    }
 }
@@ -0,0 +1,602 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.client;
+
+import java.net.HttpCookie;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.FutureResponseListener;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+/**
+ * <p>Utility class that sends hedged requests, to reduce the tail latency of requests.</p>
+ * <p>A request sent via this class is sent normally; if the response has not begun
+ * to arrive within a delay computed from the {@link #getPercentile() percentile} of
+ * the latencies recently observed for the same destination, a copy of the request
+ * is sent, typically on another connection. The first response to begin wins and
+ * is notified to the response listener, while the other request is aborted.</p>
+ * <p>Only requests with an idempotent method and without content are hedged;
+ * other requests are sent normally.
+ * The number of hedged requests is capped, per destination, by a token bucket: each
+ * request adds {@link #getMaxHedgeRatio() hedge ratio} tokens, up to
+ * {@link #getMaxHedgeBurst() hedge burst} tokens, and each hedged request takes one,
+ * so that hedging cannot amplify the load on slow servers beyond that ratio, even
+ * after a long period in which no request has been hedged.</p>
+ * <p>Example usage:</p>
+ * <pre>
+ * HttpRequestHedger hedger = new HttpRequestHedger(httpClient);
+ * Request request = httpClient.newRequest("http://host/path");
+ * ContentResponse response = hedger.send(request);
+ * </pre>
+ * <p>Request listeners are not copied to the hedged request, and the response passed
+ * to the response listener may belong to the hedged request.</p>
+ */
+@ManagedObject("Hedges requests to reduce tail latency")
+public class HttpRequestHedger
+{
+    private static final Logger LOG = Log.getLogger(HttpRequestHedger.class);
+
+    private final ConcurrentMap<Origin, Tracker> trackers = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final HttpClient client;
+    private int percentile = 95;
+    private double maxHedgeRatio = 0.1;
+    private int maxHedgeBurst = 10;
+    private long minDelay = 10;
+    private int minSamples = 20;
+
+    public HttpRequestHedger(HttpClient client)
+    {
+        this.client = client;
+    }
+
+    /**
+     * @return the latency percentile after which a request is hedged
+     */
+    @ManagedAttribute("The latency percentile after which a request is hedged")
+    public int getPercentile()
+    {
+        return percentile;
+    }
+
+    /**
+     * @param percentile the latency percentile after which a request is hedged
+     */
+    public void setPercentile(int percentile)
+    {
+        if (percentile <= 0 || percentile >= 100)
+            throw new IllegalArgumentException("Invalid percentile " + percentile);
+        this.percentile = percentile;
+    }
+
+    /**
+     * @return the max ratio between hedged requests and requests
+     */
+    @ManagedAttribute("The max ratio between hedged requests and requests")
+    public double getMaxHedgeRatio()
+    {
+        return maxHedgeRatio;
+    }
+
+    /**
+     * @param maxHedgeRatio the max ratio between hedged requests and requests
+     */
+    public void setMaxHedgeRatio(double maxHedgeRatio)
+    {
+        this.maxHedgeRatio = maxHedgeRatio;
+    }
+
+    /**
+     * @return the max number of hedged requests that can be sent in a burst to a destination
+     */
+    @ManagedAttribute("The max number of hedged requests that can be sent in a burst to a destination")
+    public int getMaxHedgeBurst()
+    {
+        return maxHedgeBurst;
+    }
+
+    /**
+     * @param maxHedgeBurst the max number of hedged requests that can be sent in a burst to a destination
+     */
+    public void setMaxHedgeBurst(int maxHedgeBurst)
+    {
+        if (maxHedgeBurst < 1)
+            throw new IllegalArgumentException("Invalid max hedge burst " + maxHedgeBurst);
+        this.maxHedgeBurst = maxHedgeBurst;
+    }
+
+    /**
+     * @return the min delay, in milliseconds, before a request is hedged
+     */
+    @ManagedAttribute("The min delay, in milliseconds, before a request is hedged")
+    public long getMinDelay()
+    {
+        return minDelay;
+    }
+
+    /**
+     * @param minDelay the min delay, in milliseconds, before a request is hedged
+     */
+    public void setMinDelay(long minDelay)
+    {
+        this.minDelay = minDelay;
+    }
+
+    /**
+     * @return the min number of latency samples for a destination before its requests are hedged
+     */
+    @ManagedAttribute("The min number of latency samples before requests are hedged")
+    public int getMinSamples()
+    {
+        return minSamples;
+    }
+
+    /**
+     * @param minSamples the min number of latency samples for a destination before its requests are hedged
+     */
+    public void setMinSamples(int minSamples)
+    {
+        this.minSamples = minSamples;
+    }
+
+    @ManagedAttribute(value = "The number of requests sent", readonly = true)
+    public long getRequestCount()
+    {
+        return requests.longValue();
+    }
+
+    @ManagedAttribute(value = "The number of hedged requests sent", readonly = true)
+    public long getHedgeCount()
+    {
+        return hedges.longValue();
+    }
+
+    @ManagedAttribute(value = "The number of hedged requests that won", readonly = true)
+    public long getHedgeWinCount()
+    {
+        return hedgeWins.longValue();
+    }
+
+    /**
+     * @param request the request
+     * @return the delay, in milliseconds, after which the given request would be hedged,
+     * or -1 if the request would not be hedged
+     */
+    public long getHedgeDelay(Request request)
+    {
+        if (!isHedgeable(request))
+            return -1;
+        Tracker tracker = trackers.get(originOf(request));
+        if (tracker == null)
+            return -1;
+        long latency = tracker.percentile(getPercentile(), getMinSamples());
+        if (latency < 0)
+            return -1;
+        return Math.max(getMinDelay(), TimeUnit.NANOSECONDS.toMillis(latency));
+    }
+
+    /**
+     * @param request the request
+     * @return whether the given request can be hedged
+     */
+    protected boolean isHedgeable(Request request)
+    {
+        if (request.getContent() != null)
+            return false;
+        String method = request.getMethod();
+        return HttpMethod.GET.is(method) ||
+                HttpMethod.HEAD.is(method) ||
+                HttpMethod.OPTIONS.is(method) ||
+                HttpMethod.TRACE.is(method);
+    }
+
+    /**
+     * <p>Sends the given request, hedging it if necessary, and waits for the response.</p>
+     *
+     * @param request the request to send
+     * @return the response of the request, or of its hedged copy
+     * @throws InterruptedException if the wait is interrupted
+     * @throws TimeoutException if the request times out
+     * @throws ExecutionException if the request fails
+     * @see Request#send()
+     */
+    public ContentResponse send(Request request) throws InterruptedException, TimeoutException, ExecutionException
+    {
+        FutureResponseListener listener = new FutureResponseListener(request);
+        Hedge hedge = hedge(request, listener);
+
+        try
+        {
+            long timeout = request.getTimeout();
+            if (timeout <= 0)
+                return listener.get();
+
+            return listener.get(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (Throwable x)
+        {
+            // Abort both the request and its hedged copy, if any.
+            hedge.abort(x);
+            throw x;
+        }
+    }
+
+    /**
+     * <p>Sends the given request, hedging it if necessary.</p>
+     *
+     * @param request the request to send
+     * @param listener the listener notified of the response of the request, or of its hedged copy
+     * @see Request#send(Response.CompleteListener)
+     */
+    public void send(Request request, Response.Listener listener)
+    {
+        hedge(request, listener);
+    }
+
+    private Hedge hedge(Request request, Response.Listener listener)
+    {
+        requests.increment();
+        trackerOf(request).deposit(getMaxHedgeRatio(), getMaxHedgeBurst());
+        long delay = getHedgeDelay(request);
+        Hedge hedge = new Hedge(listener);
+        hedge.send(request, false);
+        if (delay >= 0)
+            hedge.schedule(request, delay);
+        return hedge;
+    }
+
+    private boolean acquireHedge(Request request)
+    {
+        if (!trackerOf(request).withdraw())
+            return false;
+        hedges.increment();
+        return true;
+    }
+
+    private Request copy(Request request)
+    {
+        // The copy has its own conversation, so that the response listeners
+        // of the two exchanges do not override each other, and it does not
+        // carry the headers, such as cookies, added when the request was sent.
+        Request copy = client.copyRequest((HttpRequest)request, new HttpConversation(), request.getURI());
+        for (HttpCookie cookie : request.getCookies())
+            copy.cookie(cookie);
+        copy.getAttributes().putAll(request.getAttributes());
+        return copy;
+    }
+
+    private Origin originOf(Request request)
+    {
+        return new Origin(request.getScheme(), request.getHost(), request.getPort());
+    }
+
+    private Tracker trackerOf(Request request)
+    {
+        return trackers.computeIfAbsent(originOf(request), origin -> new Tracker(256));
+    }
+
+    private void onLatency(Request request, long latency)
+    {
+        trackerOf(request).add(latency);
+    }
+
+    /**
+     * <p>The state of a destination: a ring buffer of its most recent latencies,
+     * and the token bucket that holds its budget of hedged requests.</p>
+     * <p>The latency percentile is cached, and only computed again once
+     * a sixteenth of the ring buffer has been overwritten.</p>
+     */
+    private static class Tracker
+    {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLongArray samples;
+        private final int refresh;
+        private volatile Threshold threshold;
+        private double tokens;
+
+        private Tracker(int capacity)
+        {
+            this.samples = new AtomicLongArray(capacity);
+            this.refresh = Math.max(1, capacity / 16);
+        }
+
+        private void add(long latency)
+        {
+            samples.set((int)(count.getAndIncrement() % samples.length()), latency);
+        }
+
+        private long percentile(int percentile, int minSamples)
+        {
+            long count = this.count.get();
+            int size = (int)Math.min(count, samples.length());
+            if (size == 0 || size < minSamples)
+                return -1;
+
+            Threshold threshold = this.threshold;
+            if (threshold != null && threshold.percentile == percentile && count - threshold.count < refresh)
+                return threshold.latency;
+
+            long[] values = new long[size];
+            for (int i = 0; i < size; ++i)
+                values[i] = samples.get(i);
+            Arrays.sort(values);
+            long latency = values[Math.min(size - 1, size * percentile / 100)];
+            this.threshold = new Threshold(count, percentile, latency);
+            return latency;
+        }
+
+        private synchronized void deposit(double ratio, int burst)
+        {
+            tokens = Math.min(burst, tokens + ratio);
+        }
+
+        private synchronized boolean withdraw()
+        {
+            if (tokens < 1)
+                return false;
+            tokens -= 1;
+            return true;
+        }
+    }
+
+    private static class Threshold
+    {
+        private final long count;
+        private final int percentile;
+        private final long latency;
+
+        private Threshold(long count, int percentile, long latency)
+        {
+            this.count = count;
+            this.percentile = percentile;
+            this.latency = latency;
+        }
+    }
+
+    /**
+     * <p>The state of a request and its hedged copy.</p>
+     * <p>The first of the two responses to begin wins, and only its
+     * events are forwarded to the application listener.</p>
+     */
+    private class Hedge
+    {
+        private final long begin = System.nanoTime();
+        private final List<Attempt> attempts = new ArrayList<>(2);
+        private final Response.Listener listener;
+        private Scheduler.Task task;
+        private Attempt winner;
+        private int outstanding;
+        private boolean aborted;
+
+        private Hedge(Response.Listener listener)
+        {
+            this.listener = listener;
+        }
+
+        private void send(Request request, boolean hedged)
+        {
+            Attempt attempt = new Attempt(request, hedged);
+            synchronized (this)
+            {
+                // Do not send the hedged request if the race is already over.
+                if (hedged && (winner != null || outstanding == 0 || aborted))
+                    return;
+                attempts.add(attempt);
+                ++outstanding;
+            }
+            request.send(attempt);
+        }
+
+        private void schedule(Request request, long delay)
+        {
+            Scheduler.Task task = client.getScheduler().schedule(() -> hedge(request), delay, TimeUnit.MILLISECONDS);
+            synchronized (this)
+            {
+                this.task = task;
+            }
+        }
+
+        private void hedge(Request request)
+        {
+            synchronized (this)
+            {
+                if (winner != null || outstanding == 0 || aborted)
+                    return;
+            }
+            if (!acquireHedge(request))
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Hedge budget exhausted for {}", request);
+                return;
+            }
+            if (LOG.isDebugEnabled())
+                LOG.debug("Hedging {}", request);
+            send(copy(request), true);
+        }
+
+        private boolean win(Attempt attempt)
+        {
+            List<Attempt> losers;
+            Scheduler.Task task;
+            synchronized (this)
+            {
+                if (winner != null)
+                    return winner == attempt;
+                winner = attempt;
+                losers = new ArrayList<>(attempts);
+                losers.remove(attempt);
+                task = this.task;
+            }
+            if (task != null)
+                task.cancel();
+            if (attempt.hedged)
+                hedgeWins.increment();
+            for (Attempt loser : losers)
+                loser.request.abort(new HttpRequestException("Hedged request lost", loser.request));
+            return true;
+        }
+
+        private void abort(Throwable failure)
+        {
+            List<Attempt> attempts;
+            Scheduler.Task task;
+            synchronized (this)
+            {
+                aborted = true;
+                attempts = new ArrayList<>(this.attempts);
+                task = this.task;
+            }
+            if (task != null)
+                task.cancel();
+            for (Attempt attempt : attempts)
+                attempt.request.abort(failure);
+        }
+
+        private boolean lose(Attempt attempt)
+        {
+            // Called when an attempt failed before its response began:
+            // the failure is notified only if no other attempt is in flight.
+            synchronized (this)
+            {
+                --outstanding;
+                if (winner != null)
+                    return winner != attempt;
+                if (outstanding > 0)
+                    return true;
+            }
+            return !win(attempt);
+        }
+
+        private class Attempt implements Response.Listener
+        {
+            private final Request request;
+            private final boolean hedged;
+            private boolean won;
+
+            private Attempt(Request request, boolean hedged)
+            {
+                this.request = request;
+                this.hedged = hedged;
+            }
+
+            @Override
+            public void onBegin(Response response)
+            {
+                won = win(this);
+                if (won)
+                {
+                    // Sample the latency seen by the application, from the send
+                    // of the original request, once for each hedged request,
+                    // so that the slow attempts that lost are accounted for.
+                    onLatency(request, System.nanoTime() - begin);
+                    listener.onBegin(response);
+                }
+            }
+
+            @Override
+            public boolean onHeader(Response response, HttpField field)
+            {
+                return !won || listener.onHeader(response, field);
+            }
+
+            @Override
+            public void onHeaders(Response response)
+            {
+                if (won)
+                    listener.onHeaders(response);
+            }
+
+            @Override
+            public void onContent(Response response, ByteBuffer content)
+            {
+                if (won)
+                    listener.onContent(response, content);
+            }
+
+            @Override
+            public void onContent(Response response, ByteBuffer content, Callback callback)
+            {
+                if (won)
+                    listener.onContent(response, content, callback);
+                else
+                    callback.succeeded();
+            }
+
+            @Override
+            public void onSuccess(Response response)
+            {
+                if (won)
+                    listener.onSuccess(response);
+            }
+
+            @Override
+            public void onFailure(Response response, Throwable failure)
+            {
+                if (won)
+                    listener.onFailure(response, failure);
+            }
+
+            @Override
+            public void onComplete(Result result)
+            {
+                if (!won && result.isFailed())
+                {
+                    if (lose(this))
+                        return;
+                    won = true;
+                    listener.onFailure(result.getResponse(), result.getFailure());
+                }
+                else
+                {
+                    synchronized (Hedge.this)
+                    {
+                        --outstanding;
+                    }
+                }
+                if (won)
+                    listener.onComplete(result);
+            }
+        }
+    }
+}
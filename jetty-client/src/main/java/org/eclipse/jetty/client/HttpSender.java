@@ -28,6 +28,7 @@ import org.eclipse.jetty.client.api.Result;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpHeaderValue;
+import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.IteratingCallback;
@@ -170,7 +171,8 @@ public abstract class HttpSender implements AsyncContentProvider.Listener
 
         Request request = exchange.getRequest();
         ContentProvider contentProvider = request.getContent();
-        HttpContent content = this.content = new HttpContent(contentProvider);
+        ByteBufferPool byteBufferPool = getHttpChannel().getHttpDestination().getHttpClient().getByteBufferPool();
+        HttpContent content = this.content = new HttpContent(contentProvider, byteBufferPool);
 
         SenderState newSenderState = SenderState.SENDING;
         if (expects100Continue(request))
@@ -30,6 +30,8 @@ public abstract class MultiplexHttpDestination extends HttpDestination
         ConnectionPool connectionPool = getConnectionPool();
         if (connectionPool instanceof MultiplexConnectionPool)
             return ((MultiplexConnectionPool)connectionPool).getMaxMultiplex();
+        if (connectionPool instanceof BalancingConnectionPool)
+            return ((BalancingConnectionPool)connectionPool).getMaxMultiplex();
         return 1;
     }
 
@@ -38,5 +40,7 @@ public abstract class MultiplexHttpDestination extends HttpDestination
         ConnectionPool connectionPool = getConnectionPool();
         if (connectionPool instanceof MultiplexConnectionPool)
             ((MultiplexConnectionPool)connectionPool).setMaxMultiplex(maxRequestsPerConnection);
+        else if (connectionPool instanceof BalancingConnectionPool)
+            ((BalancingConnectionPool)connectionPool).setMaxMultiplex(maxRequestsPerConnection);
     }
 }
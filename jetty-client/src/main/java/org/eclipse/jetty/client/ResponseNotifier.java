@@ -21,6 +21,8 @@ package org.eclipse.jetty.client;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
 
 import org.eclipse.jetty.client.api.ContentResponse;
 import org.eclipse.jetty.client.api.Request;
@@ -35,6 +37,7 @@ import org.eclipse.jetty.util.log.Logger;
 public class ResponseNotifier
 {
     private static final Logger LOG = Log.getLogger(ResponseNotifier.class);
+    private static final LongConsumer NO_DEMAND = n -> {};
 
     public void notifyBegin(List<Response.ResponseListener> listeners, Response response)
     {
@@ -108,15 +111,52 @@ public class ResponseNotifier
         }
     }
 
+    public void notifyBeforeContent(Response.DemandedContentListener listener, Response response, LongConsumer demand)
+    {
+        try
+        {
+            listener.onBeforeContent(response, demand);
+        }
+        catch (Throwable x)
+        {
+            LOG.info("Exception while notifying listener " + listener, x);
+        }
+    }
+
     public void notifyContent(List<Response.ResponseListener> listeners, Response response, ByteBuffer buffer, Callback callback)
+    {
+        notifyContent(listeners, response, buffer, callback, null);
+    }
+
+    /**
+     * @param listeners the listeners to notify
+     * @param response the response
+     * @param buffer the content
+     * @param callback the callback to complete when all the listeners have consumed the content
+     * @param demands the function that returns the demand object of a {@link Response.DemandedContentListener},
+     * or null if demand is not tracked
+     */
+    public void notifyContent(List<Response.ResponseListener> listeners, Response response, ByteBuffer buffer, Callback callback, Function<Response.DemandedContentListener, LongConsumer> demands)
     {
         // Here we use an IteratingNestedCallback not to avoid the stack overflow, but to
         // invoke the listeners one after the other. When all of them have invoked the
         // callback they got passed, the callback passed to this method is finally invoked.
-        ContentCallback contentCallback = new ContentCallback(listeners, response, buffer, callback);
+        ContentCallback contentCallback = new ContentCallback(listeners, response, buffer, callback, demands);
         contentCallback.iterate();
     }
 
+    private void notifyContent(Response.DemandedContentListener listener, Response response, LongConsumer demand, ByteBuffer buffer, Callback callback)
+    {
+        try
+        {
+            listener.onContent(response, demand, buffer, callback);
+        }
+        catch (Throwable x)
+        {
+            LOG.info("Exception while notifying listener " + listener, x);
+        }
+    }
+
     private void notifyContent(Response.AsyncContentListener listener, Response response, ByteBuffer buffer, Callback callback)
     {
         try
@@ -208,6 +248,7 @@ public class ResponseNotifier
                 iterator.remove();
         }
         notifyHeaders(listeners, response);
+        notifyBeforeContent(listeners, response);
         if (response instanceof ContentResponse)
             notifyContent(listeners, response, ByteBuffer.wrap(((ContentResponse)response).getContent()), Callback.NOOP);
         notifySuccess(listeners, response);
@@ -229,6 +270,7 @@ public class ResponseNotifier
                 iterator.remove();
         }
         notifyHeaders(listeners, response);
+        notifyBeforeContent(listeners, response);
         if (response instanceof ContentResponse)
             notifyContent(listeners, response, ByteBuffer.wrap(((ContentResponse)response).getContent()), Callback.NOOP);
         notifyFailure(listeners, response, failure);
@@ -240,18 +282,31 @@ public class ResponseNotifier
         notifyComplete(listeners, new Result(request, requestFailure, response, responseFailure));
     }
 
+    private void notifyBeforeContent(List<Response.ResponseListener> listeners, Response response)
+    {
+        // The forwarded content is already available, so demand is ignored.
+        for (int i = 0; i < listeners.size(); ++i)
+        {
+            Response.ResponseListener listener = listeners.get(i);
+            if (listener instanceof Response.DemandedContentListener)
+                notifyBeforeContent((Response.DemandedContentListener)listener, response, NO_DEMAND);
+        }
+    }
+
     private class ContentCallback extends IteratingNestedCallback
     {
         private final List<Response.ResponseListener> listeners;
         private final Response response;
         private final ByteBuffer buffer;
+        private final Function<Response.DemandedContentListener, LongConsumer> demands;
         private int index;
 
-        private ContentCallback(List<Response.ResponseListener> listeners, Response response, ByteBuffer buffer, Callback callback)
+        private ContentCallback(List<Response.ResponseListener> listeners, Response response, ByteBuffer buffer, Callback callback, Function<Response.DemandedContentListener, LongConsumer> demands)
         {
             super(callback);
             this.listeners = listeners;
             this.response = response;
+            this.demands = demands;
             // Slice the buffer to avoid that listeners peek into data they should not look at.
             this.buffer = buffer.slice();
         }
@@ -263,7 +318,15 @@ public class ResponseNotifier
                 return Action.SUCCEEDED;
 
             Response.ResponseListener listener = listeners.get(index);
-            if (listener instanceof Response.AsyncContentListener)
+            if (listener instanceof Response.DemandedContentListener)
+            {
+                buffer.clear();
+                Response.DemandedContentListener demandedListener = (Response.DemandedContentListener)listener;
+                LongConsumer demand = demands == null ? NO_DEMAND : demands.apply(demandedListener);
+                ResponseNotifier.this.notifyContent(demandedListener, response, demand, buffer, this);
+                return Action.SCHEDULED;
+            }
+            else if (listener instanceof Response.AsyncContentListener)
             {
                 // The buffer was sliced, so we always clear it
                 // (clear => position=0, limit=capacity) before
@@ -0,0 +1,352 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.client.api.Connection;
+import org.eclipse.jetty.client.api.Destination;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.statistic.SampleStatistic;
+import org.eclipse.jetty.util.thread.Sweeper;
+
+/**
+ * <p>A lock-free {@link ConnectionPool} for duplex connections.</p>
+ * <p>Connections are held in a fixed array of slots, one per connection,
+ * and are acquired and released by atomically flipping the state of
+ * their slot, so that concurrent requests never wait on each other.</p>
+ * <p>The {@link Strategy} determines which idle connection is acquired:</p>
+ * <ul>
+ * <li>{@link Strategy#LIFO} acquires the most recently released connection,
+ * so that a few warm connections serve most requests and the others idle out</li>
+ * <li>{@link Strategy#ROUND_ROBIN} acquires the connections in turn, to spread
+ * the load across the server's keep-alive connections</li>
+ * <li>{@link Strategy#RANDOM} acquires a random idle connection</li>
+ * </ul>
+ */
+@ManagedObject("The lock-free connection pool")
+public class SlotConnectionPool extends AbstractConnectionPool implements Sweeper.Sweepable
+{
+    private static final Logger LOG = Log.getLogger(SlotConnectionPool.class);
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final Map<Connection, Slot> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger index = new AtomicInteger();
+    private final LongAdder contentions = new LongAdder();
+    private final SampleStatistic acquireTimes = new SampleStatistic();
+    private final Strategy strategy;
+
+    public SlotConnectionPool(Destination destination, int maxConnections, Callback requester, Strategy strategy)
+    {
+        super(destination, maxConnections, requester);
+        this.slots = new AtomicReferenceArray<>(maxConnections);
+        this.strategy = strategy;
+    }
+
+    @ManagedAttribute(value = "The strategy used to select idle connections", readonly = true)
+    public Strategy getStrategy()
+    {
+        return strategy;
+    }
+
+    @Override
+    @ManagedAttribute(value = "The number of idle connections", readonly = true)
+    public int getIdleConnectionCount()
+    {
+        int result = 0;
+        for (Slot slot : connections.values())
+        {
+            if (!slot.active.get())
+                ++result;
+        }
+        return result;
+    }
+
+    @ManagedAttribute(value = "The number of active connections", readonly = true)
+    public int getActiveConnectionCount()
+    {
+        int result = 0;
+        for (Slot slot : connections.values())
+        {
+            if (slot.active.get())
+                ++result;
+        }
+        return result;
+    }
+
+    @ManagedAttribute(value = "The number of connection acquisitions", readonly = true)
+    public long getAcquireCount()
+    {
+        return acquireTimes.getCount();
+    }
+
+    @ManagedAttribute(value = "The mean time in ns to acquire a connection", readonly = true)
+    public double getAcquireTimeMean()
+    {
+        return acquireTimes.getMean();
+    }
+
+    @ManagedAttribute(value = "The max time in ns to acquire a connection", readonly = true)
+    public long getAcquireTimeMax()
+    {
+        return acquireTimes.getMax();
+    }
+
+    @ManagedAttribute(value = "The number of times an idle connection was acquired concurrently by another request", readonly = true)
+    public long getContentionCount()
+    {
+        return contentions.sum();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        acquireTimes.reset();
+        contentions.reset();
+    }
+
+    @Override
+    public boolean isActive(Connection connection)
+    {
+        Slot slot = connections.get(connection);
+        return slot != null && slot.active.get();
+    }
+
+    @Override
+    protected void onCreated(Connection connection)
+    {
+        // The connection count guarantees that there is a
+        // free slot, unless this pool has been closed.
+        for (int i = 0; i < slots.length(); ++i)
+        {
+            Slot slot = new Slot(i, connection);
+            // Map the connection before publishing the slot, since
+            // once published it may be acquired, then released, by
+            // another thread that looks the slot up by connection.
+            connections.put(connection, slot);
+            if (slots.compareAndSet(i, null, slot))
+            {
+                idle(connection, false);
+                return;
+            }
+        }
+        connections.remove(connection);
+        if (LOG.isDebugEnabled())
+            LOG.debug("No free slot for {} in {}", connection, this);
+        connection.close();
+    }
+
+    @Override
+    protected Connection activate()
+    {
+        long begin = System.nanoTime();
+        try
+        {
+            while (true)
+            {
+                Slot slot = select();
+                if (slot == null)
+                    return null;
+                if (slot.active.compareAndSet(false, true))
+                    return active(slot.connection);
+                // Another request acquired the connection first.
+                contentions.increment();
+            }
+        }
+        finally
+        {
+            acquireTimes.set(System.nanoTime() - begin);
+        }
+    }
+
+    private Slot select()
+    {
+        int length = slots.length();
+        if (strategy == Strategy.LIFO)
+        {
+            Slot result = null;
+            for (int i = 0; i < length; ++i)
+            {
+                Slot slot = slots.get(i);
+                if (slot != null && !slot.active.get() && (result == null || slot.released - result.released > 0))
+                    result = slot;
+            }
+            return result;
+        }
+
+        int start = strategy == Strategy.ROUND_ROBIN ?
+                Math.floorMod(index.getAndIncrement(), length) : ThreadLocalRandom.current().nextInt(length);
+        for (int i = 0; i < length; ++i)
+        {
+            Slot slot = slots.get((start + i) % length);
+            if (slot != null && !slot.active.get())
+                return slot;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean release(Connection connection)
+    {
+        boolean closed = isClosed();
+        Slot slot = connections.get(connection);
+        if (slot == null || !slot.active.get())
+            return false;
+        slot.released = System.nanoTime();
+        if (!slot.active.compareAndSet(true, false))
+            return false;
+        released(connection);
+        return idle(connection, closed);
+    }
+
+    @Override
+    public boolean remove(Connection connection)
+    {
+        return remove(connection, false);
+    }
+
+    protected boolean remove(Connection connection, boolean force)
+    {
+        Slot slot = connections.remove(connection);
+        boolean removed = slot != null && slots.compareAndSet(slot.index, slot, null);
+        boolean activeRemoved = removed && slot.active.get();
+        if (activeRemoved || force)
+            released(connection);
+        removed |= force;
+        if (removed)
+            removed(connection);
+        return removed;
+    }
+
+    @Override
+    public void close()
+    {
+        super.close();
+        List<Connection> toClose = new ArrayList<>();
+        for (int i = 0; i < slots.length(); ++i)
+        {
+            Slot slot = slots.getAndSet(i, null);
+            if (slot != null)
+                toClose.add(slot.connection);
+        }
+        connections.clear();
+        close(toClose);
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        ContainerLifeCycle.dumpObject(out, this);
+        ContainerLifeCycle.dump(out, indent, new ArrayList<>(connections.keySet()));
+    }
+
+    @Override
+    public boolean sweep()
+    {
+        for (Slot slot : connections.values())
+        {
+            Connection connection = slot.connection;
+            if (slot.active.get() && connection instanceof Sweeper.Sweepable && ((Sweeper.Sweepable)connection).sweep())
+            {
+                boolean removed = remove(connection, true);
+                LOG.warn("Connection swept: {}{}{} from active connections{}{}",
+                        connection,
+                        System.lineSeparator(),
+                        removed ? "Removed" : "Not removed",
+                        System.lineSeparator(),
+                        dump());
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[%s,c=%d/%d,a=%d,i=%d]",
+                getClass().getSimpleName(),
+                hashCode(),
+                strategy,
+                getConnectionCount(),
+                getMaxConnectionCount(),
+                getActiveConnectionCount(),
+                getIdleConnectionCount());
+    }
+
+    /**
+     * <p>The strategies to select an idle connection.</p>
+     */
+    public enum Strategy
+    {
+        LIFO, ROUND_ROBIN, RANDOM
+    }
+
+    /**
+     * <p>A {@link ConnectionPool.Factory} of {@link SlotConnectionPool}s,
+     * to be set on a {@link HttpClientTransport} that uses duplex connections:</p>
+     * <pre>
+     * transport.setConnectionPoolFactory(new SlotConnectionPool.Factory(SlotConnectionPool.Strategy.ROUND_ROBIN));
+     * </pre>
+     */
+    public static class Factory implements ConnectionPool.Factory
+    {
+        private final Strategy strategy;
+
+        public Factory(Strategy strategy)
+        {
+            this.strategy = strategy;
+        }
+
+        @Override
+        public ConnectionPool newConnectionPool(HttpDestination destination)
+        {
+            return new SlotConnectionPool(destination, destination.getHttpClient().getMaxConnectionsPerDestination(), destination, strategy);
+        }
+    }
+
+    private static class Slot
+    {
+        private final AtomicBoolean active = new AtomicBoolean();
+        private final int index;
+        private final Connection connection;
+        private volatile long released = System.nanoTime();
+
+        private Slot(int index, Connection connection)
+        {
+            this.index = index;
+            this.connection = connection;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.client;
+
+import java.io.IOException;
+
+import org.eclipse.jetty.io.ChannelEndPoint;
+
+/**
+ * <p>Implemented by {@link org.eclipse.jetty.client.api.ContentProvider} iterators
+ * that can write their remaining content directly to a {@link ChannelEndPoint},
+ * without copying it into {@link java.nio.ByteBuffer}s first:</p>
+ * <pre>
+ * if (iterator instanceof Transferable)
+ * {
+ *     while (iterator.hasNext())
+ *     {
+ *         if (((Transferable)iterator).transferTo(endPoint) == 0)
+ *             break;
+ *     }
+ * }
+ * </pre>
+ * <p>Bytes transferred this way are consumed: the iterator resumes
+ * returning content from the position after the transferred bytes.</p>
+ *
+ * @see ChannelEndPoint#transferFrom(java.nio.channels.FileChannel, long, long)
+ */
+public interface Transferable
+{
+    /**
+     * <p>Transfers as much of the remaining content as the given endpoint accepts
+     * without blocking.</p>
+     *
+     * @param endPoint the endpoint to transfer the content to
+     * @return the number of bytes transferred, possibly zero
+     * @throws IOException if the transfer fails
+     */
+    public long transferTo(ChannelEndPoint endPoint) throws IOException;
+}
@@ -21,6 +21,7 @@ package org.eclipse.jetty.client.api;
 import java.nio.ByteBuffer;
 import java.util.EventListener;
 import java.util.List;
+import java.util.function.LongConsumer;
 
 import org.eclipse.jetty.client.util.BufferingResponseListener;
 import org.eclipse.jetty.http.HttpField;
@@ -160,6 +161,40 @@ public interface Response
         public void onContent(Response response, ByteBuffer content, Callback callback);
     }
 
+    /**
+     * <p>Listener for the response content events, with explicit demand for content.</p>
+     * <p>Content is only delivered when there is demand for it: the listener requests
+     * content by calling {@code demand.accept(n)}, first from {@link #onBeforeContent(Response, LongConsumer)}
+     * and then whenever it is ready to receive more content, possibly from another thread.
+     * When there is no demand, the transport stops reading from the network.</p>
+     * <p>The {@code content} buffer is not copied, and it is only valid until the
+     * {@code callback} is completed, which must happen even if the listener is not
+     * interested in the content. Transports may wait for the callback to be completed
+     * before reading more content, even if there is demand.</p>
+     */
+    public interface DemandedContentListener extends ResponseListener
+    {
+        /**
+         * Callback method invoked after the response headers have been received and
+         * before any response content. Implementations must call {@code demand.accept(n)}
+         * to receive response content; responses are only completed when there is demand.
+         *
+         * @param response the response containing the response line data and the headers
+         * @param demand the object to request content
+         */
+        public void onBeforeContent(Response response, LongConsumer demand);
+
+        /**
+         * Callback method invoked when response content has been received and there is demand for it.
+         *
+         * @param response the response containing the response line data and the headers
+         * @param demand the object to request more content
+         * @param content the content bytes received
+         * @param callback the callback to call when the content is consumed
+         */
+        public void onContent(Response response, LongConsumer demand, ByteBuffer content, Callback callback);
+    }
+
     /**
      * Listener for the response succeeded event.
      */
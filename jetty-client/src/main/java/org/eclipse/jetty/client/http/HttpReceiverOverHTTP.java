@@ -63,6 +63,7 @@ public class HttpReceiverOverHTTP extends HttpReceiver implements HttpParser.Res
         return buffer;
     }
 
+    @Override
     public void receive()
     {
         if (buffer == null)
@@ -120,7 +121,13 @@ public class HttpReceiverOverHTTP extends HttpReceiver implements HttpParser.Res
                 }
 
                 if (parse())
-                    return;
+                {
+                    // Only stall once the parser has returned, otherwise
+                    // a concurrent demand could resume parsing in parallel.
+                    if (stall())
+                        return;
+                    continue;
+                }
 
                 int read = endPoint.fill(buffer);
                 if (LOG.isDebugEnabled())
@@ -128,7 +135,7 @@ public class HttpReceiverOverHTTP extends HttpReceiver implements HttpParser.Res
 
                 if (read > 0)
                 {
-                    if (parse())
+                    if (parse() && stall())
                         return;
                 }
                 else if (read == 0)
@@ -240,7 +247,9 @@ public class HttpReceiverOverHTTP extends HttpReceiver implements HttpParser.Res
         if (exchange == null)
             return false;
 
-        return !responseHeaders(exchange);
+        // Stop parsing if there is no demand for content;
+        // receive() will be called when there is demand.
+        return !responseHeaders(exchange) || !hasDemandOrStall();
     }
 
     @Override
@@ -257,7 +266,8 @@ public class HttpReceiverOverHTTP extends HttpReceiver implements HttpParser.Res
             {
                 if (LOG.isDebugEnabled())
                     LOG.debug("Content consumed asynchronously, resuming processing");
-                process();
+                if (hasDemandOrStall() || !stall())
+                    process();
             }
 
             public void abort(Throwable x)
@@ -268,7 +278,11 @@ public class HttpReceiverOverHTTP extends HttpReceiver implements HttpParser.Res
         // Do not short circuit these calls.
         boolean proceed = responseContent(exchange, buffer, callback);
         boolean async = callback.tryComplete();
-        return !proceed || async;
+        if (!proceed || async)
+            return true;
+        // Stop parsing if there is no demand for content;
+        // receive() will be called when there is demand.
+        return !hasDemandOrStall();
     }
 
     @Override
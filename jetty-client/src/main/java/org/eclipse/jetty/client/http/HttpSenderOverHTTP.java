@@ -27,10 +27,12 @@ import org.eclipse.jetty.client.HttpRequest;
 import org.eclipse.jetty.client.HttpRequestException;
 import org.eclipse.jetty.client.HttpSender;
 import org.eclipse.jetty.client.api.ContentProvider;
+import org.eclipse.jetty.client.api.Request;
 import org.eclipse.jetty.http.HttpGenerator;
 import org.eclipse.jetty.http.HttpURI;
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.ChannelEndPoint;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
@@ -102,6 +104,8 @@ public class HttpSenderOverHTTP extends HttpSender
                         EndPoint endPoint = getHttpChannel().getHttpConnection().getEndPoint();
                         if (chunk != null)
                             endPoint.write(new ByteBufferRecyclerCallback(callback, bufferPool, chunk), chunk, contentBuffer);
+                        else if (!lastContent && isTransferable(exchange, content, endPoint))
+                            endPoint.write(new TransferCallback(callback, content, (ChannelEndPoint)endPoint), contentBuffer);
                         else
                             endPoint.write(callback, contentBuffer);
                         return;
@@ -138,6 +142,19 @@ public class HttpSenderOverHTTP extends HttpSender
         }
     }
 
+    private boolean isTransferable(HttpExchange exchange, HttpContent content, EndPoint endPoint)
+    {
+        // Only a plain socket can be written directly, since
+        // TLS must encrypt the content and therefore copy it.
+        if (!content.isTransferable() || !(endPoint instanceof ChannelEndPoint))
+            return false;
+        // Transferred content is never copied into a buffer,
+        // so it cannot be notified to request content listeners.
+        HttpRequest request = exchange.getRequest();
+        return request.getRequestListeners(Request.ContentListener.class).isEmpty() &&
+                httpClient.getRequestListeners().isEmpty();
+    }
+
     @Override
     protected void sendTrailers(HttpExchange exchange, Callback callback)
     {
@@ -401,6 +418,49 @@ public class HttpSenderOverHTTP extends HttpSender
         }
     }
 
+    /**
+     * <p>After the current content buffer has been written, transfers the remaining
+     * content directly to the endpoint, until either the content is exhausted or the
+     * endpoint cannot accept more bytes without blocking.</p>
+     * <p>In the latter case the content cursor is advanced normally, so that the next
+     * buffer is written via {@link EndPoint#write(Callback, ByteBuffer...)}, which waits
+     * for the endpoint to be writable before the transfer resumes.</p>
+     */
+    private class TransferCallback extends Callback.Nested
+    {
+        private final HttpContent content;
+        private final ChannelEndPoint endPoint;
+
+        private TransferCallback(Callback callback, HttpContent content, ChannelEndPoint endPoint)
+        {
+            super(callback);
+            this.content = content;
+            this.endPoint = endPoint;
+        }
+
+        @Override
+        public void succeeded()
+        {
+            try
+            {
+                long transferred;
+                do
+                {
+                    transferred = content.transferTo(endPoint);
+                }
+                while (transferred > 0);
+            }
+            catch (Throwable x)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug(x);
+                super.failed(x);
+                return;
+            }
+            super.succeeded();
+        }
+    }
+
     private class ByteBufferRecyclerCallback extends Callback.Nested
     {
         private final ByteBufferPool pool;
@@ -21,7 +21,7 @@ package org.eclipse.jetty.client.util;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.FileChannel;
 import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
@@ -30,8 +30,10 @@ import java.nio.file.StandardOpenOption;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+import org.eclipse.jetty.client.Transferable;
 import org.eclipse.jetty.client.api.ContentProvider;
 import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.ChannelEndPoint;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
@@ -41,7 +43,13 @@ import org.eclipse.jetty.util.log.Logger;
  * content from the stream, by default 4096 bytes.
  * If a {@link ByteBufferPool} is provided via {@link #setByteBufferPool(ByteBufferPool)},
  * the buffer will be allocated from that pool, otherwise one buffer will be
- * allocated and used to read the file.</p>
+ * allocated and used to read the file.
+ * When this provider is sent by {@link org.eclipse.jetty.client.HttpClient}, the
+ * client's {@link ByteBufferPool} is used if none has been provided.</p>
+ * <p>When the request is sent over a clear-text HTTP/1.1 connection, the file content
+ * is {@link Transferable transferred} to the socket via
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+ * without being copied into the buffer.</p>
  */
 public class PathContentProvider extends AbstractTypedContentProvider
 {
@@ -98,15 +106,32 @@ public class PathContentProvider extends AbstractTypedContentProvider
     @Override
     public Iterator<ByteBuffer> iterator()
     {
-        return new PathIterator();
+        return iterator(null);
     }
 
-    private class PathIterator implements Iterator<ByteBuffer>, Closeable
+    /**
+     * @param byteBufferPool the pool to read the file into buffers from,
+     * if no pool has been {@link #setByteBufferPool(ByteBufferPool) set} on this provider
+     * @return an iterator over the content of the file
+     */
+    public Iterator<ByteBuffer> iterator(ByteBufferPool byteBufferPool)
     {
+        ByteBufferPool bufferPool = this.bufferPool;
+        return new PathIterator(bufferPool == null ? byteBufferPool : bufferPool);
+    }
+
+    private class PathIterator implements Iterator<ByteBuffer>, Transferable, Closeable
+    {
+        private final ByteBufferPool bufferPool;
         private ByteBuffer buffer;
-        private SeekableByteChannel channel;
+        private FileChannel channel;
         private long position;
 
+        private PathIterator(ByteBufferPool bufferPool)
+        {
+            this.bufferPool = bufferPool;
+        }
+
         @Override
         public boolean hasNext()
         {
@@ -118,18 +143,15 @@ public class PathContentProvider extends AbstractTypedContentProvider
         {
             try
             {
-                if (channel == null)
+                if (buffer == null)
                 {
                     buffer = bufferPool == null ?
                             ByteBuffer.allocateDirect(bufferSize) :
                             bufferPool.acquire(bufferSize, true);
-                    channel = Files.newByteChannel(filePath, StandardOpenOption.READ);
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("Opened file {}", filePath);
                 }
 
                 buffer.clear();
-                int read = channel.read(buffer);
+                int read = open().read(buffer, position);
                 if (read < 0)
                     throw new NoSuchElementException();
 
@@ -153,6 +175,29 @@ public class PathContentProvider extends AbstractTypedContentProvider
             }
         }
 
+        @Override
+        public long transferTo(ChannelEndPoint endPoint) throws IOException
+        {
+            long transferred = endPoint.transferFrom(open(), position, getLength() - position);
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("Transferred {} bytes from {}", transferred, filePath);
+
+            position += transferred;
+            return transferred;
+        }
+
+        private FileChannel open() throws IOException
+        {
+            if (channel == null)
+            {
+                channel = FileChannel.open(filePath, StandardOpenOption.READ);
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Opened file {}", filePath);
+            }
+            return channel;
+        }
+
         @Override
         public void close()
         {
@@ -0,0 +1,99 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimiterTest
+{
+    @Test
+    public void testLimitIsEnforced() throws Exception
+    {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertFalse(limiter.tryAcquire());
+        Assert.assertEquals(1, limiter.getRejectedCount());
+        Assert.assertEquals(2, limiter.getInFlightCount());
+
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+        Assert.assertEquals(1, limiter.getInFlightCount());
+        Assert.assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testLimitIncreasesWhenUsed() throws Exception
+    {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 4);
+        long rtt = TimeUnit.MILLISECONDS.toNanos(1);
+        for (int i = 0; i < 10; ++i)
+        {
+            while (limiter.tryAcquire())
+            {
+                // Saturate the limit.
+            }
+            int inFlight = limiter.getInFlightCount();
+            for (int j = 0; j < inFlight; ++j)
+                limiter.release(rtt, false);
+        }
+        Assert.assertEquals(4, limiter.getLimit());
+        Assert.assertEquals(1, limiter.getRoundTripTime(), 0.001);
+    }
+
+    @Test
+    public void testLimitDecreasesWhenLatencyIncreases() throws Exception
+    {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 1, 100);
+        long rtt = TimeUnit.MICROSECONDS.toNanos(100);
+        for (int i = 0; i < 100; ++i)
+        {
+            Assert.assertTrue(limiter.tryAcquire());
+            limiter.release(rtt, false);
+        }
+        Assert.assertEquals(100, limiter.getLimit());
+
+        // Latency increases 10x.
+        for (int i = 0; i < 20; ++i)
+        {
+            Assert.assertTrue(limiter.tryAcquire());
+            limiter.release(10 * rtt, false);
+            Thread.sleep(1);
+        }
+        Assert.assertTrue(limiter.getLimit() < 100);
+        Assert.assertTrue(limiter.getRoundTripTime() > limiter.getBaselineRoundTripTime());
+    }
+
+    @Test
+    public void testLimitDecreasesOnTimeouts() throws Exception
+    {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 10);
+        long rtt = TimeUnit.MICROSECONDS.toNanos(100);
+        for (int i = 0; i < 50; ++i)
+        {
+            Assert.assertTrue(limiter.tryAcquire());
+            limiter.release(rtt, true);
+            Thread.sleep(1);
+        }
+        Assert.assertEquals(2, limiter.getLimit());
+    }
+}
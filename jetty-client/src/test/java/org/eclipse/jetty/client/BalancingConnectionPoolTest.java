@@ -0,0 +1,176 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.client;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jetty.client.api.Connection;
+import org.eclipse.jetty.client.api.Destination;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.Promise;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BalancingConnectionPoolTest
+{
+    private BalancingConnectionPool newConnectionPool(int maxConnections, int maxMultiplex, int minConnections, BalancingConnectionPool.Balancing balancing, int maxUsage)
+    {
+        Destination destination = new Destination()
+        {
+            @Override
+            public String getScheme()
+            {
+                return "http";
+            }
+
+            @Override
+            public String getHost()
+            {
+                return "localhost";
+            }
+
+            @Override
+            public int getPort()
+            {
+                return 8080;
+            }
+
+            @Override
+            public void newConnection(Promise<Connection> promise)
+            {
+                promise.succeeded(new TestConnection());
+            }
+        };
+        return new BalancingConnectionPool(destination, maxConnections, Callback.NOOP, maxMultiplex, minConnections, balancing, maxUsage);
+    }
+
+    @Test
+    public void testMinConnectionsAreOpenedAndRequestsSpread() throws Exception
+    {
+        BalancingConnectionPool pool = newConnectionPool(8, 100, 4, BalancingConnectionPool.Balancing.LEAST_STREAMS, -1);
+
+        // The first acquire opens the min number of connections.
+        Assert.assertNotNull(pool.acquire());
+        Assert.assertEquals(4, pool.getConnectionCount());
+
+        Set<Connection> used = new HashSet<>();
+        for (int i = 1; i < 4; ++i)
+            used.add(pool.acquire());
+        Assert.assertEquals(3, used.size());
+        Assert.assertEquals(0, pool.getIdleConnectionCount());
+        Assert.assertEquals(4, pool.getConnectionCount());
+    }
+
+    @Test
+    public void testLeastStreamsAfterRelease() throws Exception
+    {
+        BalancingConnectionPool pool = newConnectionPool(2, 100, 2, BalancingConnectionPool.Balancing.LEAST_STREAMS, -1);
+        Connection connection1 = pool.acquire();
+        Connection connection2 = pool.acquire();
+        Assert.assertNotSame(connection1, connection2);
+        Connection connection3 = pool.acquire();
+        Assert.assertTrue(pool.release(connection1 == connection3 ? connection2 : connection1));
+        Connection connection4 = pool.acquire();
+        Assert.assertNotSame(connection3, connection4);
+    }
+
+    @Test
+    public void testLeastOutstandingBytes() throws Exception
+    {
+        BalancingConnectionPool pool = newConnectionPool(2, 100, 2, BalancingConnectionPool.Balancing.LEAST_OUTSTANDING_BYTES, -1);
+        TestConnection connection1 = (TestConnection)pool.acquire();
+        TestConnection connection2 = (TestConnection)pool.acquire();
+        Assert.assertNotSame(connection1, connection2);
+
+        connection1.outstandingBytes = 1024;
+        // Despite having the same number of streams, the connection with no outstanding bytes is selected.
+        Assert.assertSame(connection2, pool.acquire());
+        Assert.assertSame(connection2, pool.acquire());
+        connection2.outstandingBytes = 2048;
+        Assert.assertSame(connection1, pool.acquire());
+    }
+
+    @Test
+    public void testMaxMultiplex() throws Exception
+    {
+        BalancingConnectionPool pool = newConnectionPool(1, 2, 1, BalancingConnectionPool.Balancing.LEAST_STREAMS, -1);
+        Connection connection = pool.acquire();
+        Assert.assertSame(connection, pool.acquire());
+        Assert.assertNull(pool.acquire());
+
+        Assert.assertTrue(pool.release(connection));
+        Assert.assertSame(connection, pool.acquire());
+    }
+
+    @Test
+    public void testConnectionIsRetiredAfterMaxUsage() throws Exception
+    {
+        BalancingConnectionPool pool = newConnectionPool(2, 100, 1, BalancingConnectionPool.Balancing.LEAST_STREAMS, 2);
+        Connection connection1 = pool.acquire();
+        Assert.assertSame(connection1, pool.acquire());
+        Assert.assertEquals(1, pool.getRetiredConnectionCount());
+
+        // A retired connection is not used for new requests.
+        Connection connection2 = pool.acquire();
+        Assert.assertNotNull(connection2);
+        Assert.assertNotSame(connection1, connection2);
+
+        // The retired connection is still used by one request.
+        Assert.assertTrue(pool.release(connection1));
+        Assert.assertTrue(pool.isActive(connection1));
+        // When its last request completes, it must be closed.
+        Assert.assertFalse(pool.release(connection1));
+        Assert.assertTrue(pool.remove(connection1));
+        Assert.assertEquals(0, pool.getRetiredConnectionCount());
+        Assert.assertEquals(1, pool.getConnectionCount());
+    }
+
+    private static class TestConnection implements Connection, BalancingConnectionPool.OutstandingBytes
+    {
+        private volatile long outstandingBytes;
+        private volatile boolean closed;
+
+        @Override
+        public void send(Request request, Response.CompleteListener listener)
+        {
+        }
+
+        @Override
+        public long getOutstandingBytes()
+        {
+            return outstandingBytes;
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+
+        @Override
+        public boolean isClosed()
+        {
+            return closed;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HttpClientDemandTest extends AbstractHttpClientServerTest
+{
+    public HttpClientDemandTest(SslContextFactory sslContextFactory)
+    {
+        super(sslContextFactory);
+    }
+
+    @Test
+    public void testContentIsDeliveredOnlyWhenDemanded() throws Exception
+    {
+        int chunks = 3;
+        CountDownLatch serverLatch = new CountDownLatch(1);
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                ServletOutputStream output = response.getOutputStream();
+                for (int i = 0; i < chunks; ++i)
+                {
+                    output.write(new byte[]{(byte)('a' + i)});
+                    output.flush();
+                }
+                serverLatch.countDown();
+            }
+        });
+
+        AtomicReference<LongConsumer> demandRef = new AtomicReference<>();
+        BlockingQueue<String> contents = new LinkedBlockingQueue<>();
+        CountDownLatch completeLatch = new CountDownLatch(1);
+        client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scheme)
+                .onResponseContentDemanded(new Response.DemandedContentListener()
+                {
+                    @Override
+                    public void onBeforeContent(Response response, LongConsumer demand)
+                    {
+                        demandRef.set(demand);
+                        demand.accept(1);
+                    }
+
+                    @Override
+                    public void onContent(Response response, LongConsumer demand, ByteBuffer content, Callback callback)
+                    {
+                        contents.offer(BufferUtil.toString(content));
+                        callback.succeeded();
+                    }
+                })
+                .send(result ->
+                {
+                    if (result.isSucceeded())
+                        completeLatch.countDown();
+                });
+
+        Assert.assertTrue(serverLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals("a", contents.poll(5, TimeUnit.SECONDS));
+        // No demand, no content.
+        Assert.assertNull(contents.poll(500, TimeUnit.MILLISECONDS));
+
+        demandRef.get().accept(1);
+        Assert.assertEquals("b", contents.poll(5, TimeUnit.SECONDS));
+        Assert.assertNull(contents.poll(500, TimeUnit.MILLISECONDS));
+
+        demandRef.get().accept(Long.MAX_VALUE);
+        Assert.assertEquals("c", contents.poll(5, TimeUnit.SECONDS));
+        Assert.assertTrue(completeLatch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testContentReleasedAsynchronously() throws Exception
+    {
+        byte[] bytes = new byte[1024];
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                response.getOutputStream().write(bytes);
+            }
+        });
+
+        BlockingQueue<Callback> callbacks = new LinkedBlockingQueue<>();
+        CountDownLatch completeLatch = new CountDownLatch(1);
+        client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scheme)
+                .onResponseContentDemanded(new Response.DemandedContentListener()
+                {
+                    @Override
+                    public void onBeforeContent(Response response, LongConsumer demand)
+                    {
+                        demand.accept(1);
+                    }
+
+                    @Override
+                    public void onContent(Response response, LongConsumer demand, ByteBuffer content, Callback callback)
+                    {
+                        // Hold the buffer, demanding more content.
+                        callbacks.offer(callback);
+                        demand.accept(1);
+                    }
+                })
+                .send(result ->
+                {
+                    if (result.isSucceeded())
+                        completeLatch.countDown();
+                });
+
+        Callback callback = callbacks.poll(5, TimeUnit.SECONDS);
+        Assert.assertNotNull(callback);
+        Assert.assertFalse(completeLatch.await(500, TimeUnit.MILLISECONDS));
+
+        // Releasing the content resumes reading.
+        while (callback != null)
+        {
+            callback.succeeded();
+            callback = callbacks.poll(1, TimeUnit.SECONDS);
+        }
+        Assert.assertTrue(completeLatch.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -21,9 +21,14 @@ package org.eclipse.jetty.client;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletException;
@@ -32,9 +37,12 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.handler.AbstractHandler;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -224,6 +232,132 @@ public class HttpClientGZIPTest extends AbstractHttpClientServerTest
         Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void testGZIPLargeContentDecodedIntoPooledBuffers() throws Exception
+    {
+        final byte[] data = new byte[512 * 1024];
+        for (int i = 0; i < data.length; ++i)
+            data[i] = (byte)(i % 31);
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                response.setHeader("Content-Encoding", "gzip");
+                GZIPOutputStream gzipOutput = new GZIPOutputStream(response.getOutputStream());
+                gzipOutput.write(data);
+                gzipOutput.finish();
+            }
+        });
+
+        AtomicInteger acquired = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+        ByteBufferPool byteBufferPool = new MappedByteBufferPool()
+        {
+            @Override
+            public ByteBuffer acquire(int size, boolean direct)
+            {
+                acquired.incrementAndGet();
+                return super.acquire(size, direct);
+            }
+
+            @Override
+            public void release(ByteBuffer buffer)
+            {
+                released.incrementAndGet();
+                super.release(buffer);
+            }
+        };
+        client.getContentDecoderFactories().clear();
+        client.getContentDecoderFactories().add(new GZIPContentDecoder.Factory(byteBufferPool, 1024));
+
+        ContentResponse response = client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scheme)
+                .timeout(5, TimeUnit.SECONDS)
+                .send();
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertArrayEquals(data, response.getContent());
+        // Every chunk of inflated bytes has been returned to the pool.
+        Assert.assertThat(acquired.get(), Matchers.greaterThanOrEqualTo(data.length / 1024));
+        Assert.assertEquals(acquired.get(), released.get());
+    }
+
+    @Test
+    public void testDeflateContentEncoding() throws Exception
+    {
+        testDeflateContentEncoding(false);
+    }
+
+    @Test
+    public void testRawDeflateContentEncoding() throws Exception
+    {
+        testDeflateContentEncoding(true);
+    }
+
+    private void testDeflateContentEncoding(boolean raw) throws Exception
+    {
+        final byte[] data = new byte[64 * 1024];
+        for (int i = 0; i < data.length; ++i)
+            data[i] = (byte)(i % 17);
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                response.setHeader("Content-Encoding", "deflate");
+                DeflaterOutputStream deflateOutput = new DeflaterOutputStream(response.getOutputStream(), new Deflater(Deflater.DEFAULT_COMPRESSION, raw));
+                deflateOutput.write(data);
+                deflateOutput.finish();
+            }
+        });
+        client.getContentDecoderFactories().add(new DeflateContentDecoder.Factory(client.getByteBufferPool()));
+
+        ContentResponse response = client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scheme)
+                .timeout(5, TimeUnit.SECONDS)
+                .send();
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertArrayEquals(data, response.getContent());
+    }
+
+    @Test
+    public void testRawDeflateContentLookingLikeZlibOneByteAtATime() throws Exception
+    {
+        final byte[] data = "hello".getBytes(StandardCharsets.UTF_8);
+        // A raw deflate stored block, whose first byte is also a valid zlib CMF,
+        // followed by an empty final stored block.
+        final byte[] deflateBytes = {0x08, 0x05, 0x00, (byte)0xFA, (byte)0xFF, 'h', 'e', 'l', 'l', 'o', 0x01, 0x00, 0x00, (byte)0xFF, (byte)0xFF};
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                response.setHeader("Content-Encoding", "deflate");
+                ServletOutputStream output = response.getOutputStream();
+                for (byte deflateByte : deflateBytes)
+                {
+                    output.write(deflateByte);
+                    output.flush();
+                    sleep(100);
+                }
+            }
+        });
+        client.getContentDecoderFactories().add(new DeflateContentDecoder.Factory());
+
+        ContentResponse response = client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scheme)
+                .timeout(5, TimeUnit.SECONDS)
+                .send();
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertArrayEquals(data, response.getContent());
+    }
+
     private static void sleep(long ms) throws IOException
     {
         try
@@ -0,0 +1,138 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.client;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HttpClientMetricsTest extends AbstractHttpClientServerTest
+{
+    public HttpClientMetricsTest(SslContextFactory sslContextFactory)
+    {
+        super(sslContextFactory);
+    }
+
+    @Test
+    public void testTimingsAreRecordedByOrigin() throws Exception
+    {
+        start(new EmptyServerHandler());
+        HttpClientMetrics metrics = new HttpClientMetrics();
+        Map<HttpClientMetrics.Timing, AtomicInteger> notified = new ConcurrentHashMap<>();
+        metrics.addListener(new HttpClientMetrics.Listener()
+        {
+            @Override
+            public void onTiming(Origin origin, HttpClientMetrics.Timing timing, long nanos)
+            {
+                notified.computeIfAbsent(timing, t -> new AtomicInteger()).incrementAndGet();
+            }
+        });
+        client.addBean(metrics);
+
+        int requests = 3;
+        for (int i = 0; i < requests; ++i)
+        {
+            ContentResponse response = client.newRequest("localhost", connector.getLocalPort())
+                    .scheme(scheme)
+                    .timeout(5, TimeUnit.SECONDS)
+                    .send();
+            Assert.assertEquals(200, response.getStatus());
+        }
+
+        HttpDestination destination = (HttpDestination)client.getDestination(scheme, "localhost", connector.getLocalPort());
+        HttpClientMetrics.OriginMetrics originMetrics = metrics.getOriginMetrics(destination.getOrigin());
+        Assert.assertSame(originMetrics, destination.getMetrics());
+        Assert.assertEquals(requests, originMetrics.getHistogram(HttpClientMetrics.Timing.QUEUED).getCount());
+        Assert.assertEquals(requests, originMetrics.getHistogram(HttpClientMetrics.Timing.TIME_TO_FIRST_BYTE).getCount());
+        Assert.assertEquals(requests, originMetrics.getHistogram(HttpClientMetrics.Timing.TOTAL).getCount());
+        Assert.assertEquals(1, originMetrics.getHistogram(HttpClientMetrics.Timing.CONNECT).getCount());
+        Assert.assertEquals(sslContextFactory == null ? 0 : 1, originMetrics.getHistogram(HttpClientMetrics.Timing.TLS_HANDSHAKE).getCount());
+        Assert.assertThat(originMetrics.getHistogram(HttpClientMetrics.Timing.TOTAL).getMax(), Matchers.greaterThan(0L));
+        Assert.assertEquals(requests, notified.get(HttpClientMetrics.Timing.TOTAL).get());
+        Assert.assertEquals(requests, (long)originMetrics.getTotalTimes().get("count"));
+        Assert.assertTrue(originMetrics.getFailures().isEmpty());
+        Assert.assertEquals(1, originMetrics.getConnectionCount());
+        Assert.assertEquals(1, originMetrics.getIdleConnectionCount());
+        Assert.assertEquals(0.0, originMetrics.getConnectionPoolUtilization(), 0.0);
+
+        originMetrics.reset();
+        Assert.assertEquals(0, originMetrics.getHistogram(HttpClientMetrics.Timing.TOTAL).getCount());
+    }
+
+    @Test
+    public void testFailuresAreCountedByType() throws Exception
+    {
+        long timeout = 500;
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                try
+                {
+                    TimeUnit.MILLISECONDS.sleep(2 * timeout);
+                }
+                catch (InterruptedException x)
+                {
+                    throw new ServletException(x);
+                }
+            }
+        });
+        HttpClientMetrics metrics = new HttpClientMetrics();
+        client.addBean(metrics);
+
+        try
+        {
+            client.newRequest("localhost", connector.getLocalPort())
+                    .scheme(scheme)
+                    .timeout(timeout, TimeUnit.MILLISECONDS)
+                    .send();
+            Assert.fail();
+        }
+        catch (TimeoutException expected)
+        {
+        }
+
+        // The exchange may terminate after the application is notified.
+        HttpDestination destination = (HttpDestination)client.getDestination(scheme, "localhost", connector.getLocalPort());
+        HttpClientMetrics.OriginMetrics originMetrics = destination.getMetrics();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (originMetrics.getFailures().isEmpty() && System.nanoTime() < end)
+            Thread.sleep(10);
+        Map<String, Long> failures = originMetrics.getFailures();
+        Assert.assertEquals(1L, (long)failures.get(TimeoutException.class.getSimpleName()));
+    }
+}
@@ -141,6 +141,101 @@ public class HttpClientTest extends AbstractHttpClientServerTest
         Assert.assertFalse(connection.getEndPoint().isOpen());
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testMinIdleConnectionsRefreshPeriodMustBePositive() throws Exception
+    {
+        start(new EmptyServerHandler());
+        client.setMinIdleConnectionsRefreshPeriod(0);
+    }
+
+    @Test
+    public void testMinIdleConnectionsArePreCreated() throws Exception
+    {
+        start(new EmptyServerHandler());
+        client.setMinIdleConnectionsPerDestination(2);
+        client.setMinIdleConnectionsRefreshPeriod(100);
+
+        String host = "localhost";
+        int port = connector.getLocalPort();
+        HttpDestinationOverHTTP destination = (HttpDestinationOverHTTP)client.getDestination(scheme, host, port);
+        DuplexConnectionPool connectionPool = (DuplexConnectionPool)destination.getConnectionPool();
+
+        long start = System.nanoTime();
+        while (connectionPool.getIdleConnectionCount() < 2 && TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5)
+            TimeUnit.MILLISECONDS.sleep(10);
+        Assert.assertEquals(2, connectionPool.getIdleConnectionCount());
+
+        // A closed idle connection is replaced.
+        Connection connection = connectionPool.getIdleConnections().peek();
+        connection.close();
+
+        start = System.nanoTime();
+        while (connectionPool.getIdleConnectionCount() < 2 && TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5)
+            TimeUnit.MILLISECONDS.sleep(10);
+        Assert.assertEquals(2, connectionPool.getIdleConnectionCount());
+        Assert.assertEquals(2, connectionPool.getConnectionCount());
+
+        ContentResponse response = client.newRequest(host, port)
+                .scheme(scheme)
+                .timeout(5, TimeUnit.SECONDS)
+                .send();
+        Assert.assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    public void testAdaptiveConcurrencyLimitRejectsExcessRequests() throws Exception
+    {
+        CountDownLatch handlerLatch = new CountDownLatch(1);
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, org.eclipse.jetty.server.Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                try
+                {
+                    handlerLatch.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException x)
+                {
+                    throw new ServletException(x);
+                }
+            }
+        });
+        client.setAdaptiveConcurrencyLimit(true);
+        client.setMaxConnectionsPerDestination(1);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scheme)
+                .send(result ->
+                {
+                    if (result.isSucceeded() && result.getResponse().getStatus() == 200)
+                        latch.countDown();
+                });
+
+        try
+        {
+            client.newRequest("localhost", connector.getLocalPort())
+                    .scheme(scheme)
+                    .timeout(5, TimeUnit.SECONDS)
+                    .send();
+            Assert.fail();
+        }
+        catch (ExecutionException x)
+        {
+            Assert.assertThat(x.getCause(), Matchers.instanceOf(ConcurrencyLimitException.class));
+        }
+
+        handlerLatch.countDown();
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        HttpDestination destination = (HttpDestination)client.getDestination(scheme, "localhost", connector.getLocalPort());
+        AdaptiveConcurrencyLimiter limiter = destination.getConcurrencyLimiter();
+        Assert.assertEquals(0, limiter.getInFlightCount());
+        Assert.assertEquals(1, limiter.getRejectedCount());
+    }
+
     @Test
     public void test_DestinationCount() throws Exception
     {
@@ -0,0 +1,294 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.client;
+
+import java.io.IOException;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HttpRequestHedgerTest extends AbstractHttpClientServerTest
+{
+    public HttpRequestHedgerTest(SslContextFactory sslContextFactory)
+    {
+        super(sslContextFactory);
+    }
+
+    @Test
+    public void testSlowRequestIsHedged() throws Exception
+    {
+        int warmup = 5;
+        long delay = 5000;
+        AtomicInteger requests = new AtomicInteger();
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                if (requests.incrementAndGet() == warmup + 1)
+                {
+                    try
+                    {
+                        Thread.sleep(delay);
+                    }
+                    catch (InterruptedException x)
+                    {
+                        throw new ServletException(x);
+                    }
+                }
+            }
+        });
+
+        HttpRequestHedger hedger = new HttpRequestHedger(client);
+        hedger.setMinSamples(warmup);
+        hedger.setMaxHedgeRatio(1);
+
+        for (int i = 0; i < warmup; ++i)
+        {
+            ContentResponse response = hedger.send(client.newRequest("localhost", connector.getLocalPort()).scheme(scheme));
+            Assert.assertEquals(200, response.getStatus());
+        }
+        Assert.assertEquals(0, hedger.getHedgeCount());
+
+        long begin = System.nanoTime();
+        ContentResponse response = hedger.send(client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scheme)
+                .timeout(2 * delay, TimeUnit.MILLISECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertTrue(elapsed < delay / 2);
+        Assert.assertEquals(1, hedger.getHedgeCount());
+        Assert.assertEquals(1, hedger.getHedgeWinCount());
+        Assert.assertEquals(warmup + 2, requests.get());
+    }
+
+    @Test
+    public void testHedgedRequestSendsCookiesOnce() throws Exception
+    {
+        int warmup = 5;
+        AtomicBoolean slow = new AtomicBoolean();
+        List<Integer> cookies = new CopyOnWriteArrayList<>();
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                if (!slow.get())
+                    return;
+                cookies.add(Collections.list(request.getHeaders(HttpHeader.COOKIE.asString())).size());
+                if (cookies.size() == 1)
+                    sleep(2000);
+            }
+        });
+
+        HttpRequestHedger hedger = new HttpRequestHedger(client);
+        hedger.setMinSamples(warmup);
+        hedger.setMaxHedgeRatio(1);
+
+        for (int i = 0; i < warmup; ++i)
+        {
+            ContentResponse response = hedger.send(client.newRequest("localhost", connector.getLocalPort()).scheme(scheme));
+            Assert.assertEquals(200, response.getStatus());
+        }
+
+        // The cookie is added to the request headers when the request is sent.
+        client.getCookieStore().add(URI.create(scheme + "://localhost:" + connector.getLocalPort()), new HttpCookie("name", "value"));
+        slow.set(true);
+        ContentResponse response = hedger.send(client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scheme)
+                .timeout(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals(1, hedger.getHedgeWinCount());
+        Assert.assertEquals(2, cookies.size());
+        for (int count : cookies)
+            Assert.assertEquals(1, count);
+    }
+
+    @Test
+    public void testHedgeBudgetLimitsHedgedRequests() throws Exception
+    {
+        start(new EmptyServerHandler());
+
+        HttpRequestHedger hedger = new HttpRequestHedger(client);
+        hedger.setMinSamples(1);
+        hedger.setMaxHedgeRatio(0);
+
+        for (int i = 0; i < 3; ++i)
+        {
+            ContentResponse response = hedger.send(client.newRequest("localhost", connector.getLocalPort()).scheme(scheme));
+            Assert.assertEquals(200, response.getStatus());
+        }
+        Assert.assertEquals(3, hedger.getRequestCount());
+        Assert.assertEquals(0, hedger.getHedgeCount());
+    }
+
+    @Test
+    public void testHedgeBudgetDoesNotAccumulate() throws Exception
+    {
+        int warmup = 20;
+        AtomicBoolean slow = new AtomicBoolean();
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                if (slow.get())
+                    sleep(500);
+            }
+        });
+
+        HttpRequestHedger hedger = new HttpRequestHedger(client);
+        hedger.setMinSamples(warmup);
+        hedger.setMaxHedgeRatio(0.5);
+        hedger.setMaxHedgeBurst(2);
+
+        // A long healthy period must not build up a large budget.
+        for (int i = 0; i < warmup; ++i)
+        {
+            ContentResponse response = hedger.send(client.newRequest("localhost", connector.getLocalPort()).scheme(scheme));
+            Assert.assertEquals(200, response.getStatus());
+        }
+        Assert.assertEquals(0, hedger.getHedgeCount());
+
+        slow.set(true);
+        for (int i = 0; i < 4; ++i)
+        {
+            ContentResponse response = hedger.send(client.newRequest("localhost", connector.getLocalPort())
+                    .scheme(scheme)
+                    .timeout(5, TimeUnit.SECONDS));
+            Assert.assertEquals(200, response.getStatus());
+        }
+
+        // The bucket holds 2 tokens, and each slow request adds half a token.
+        Assert.assertEquals(3, hedger.getHedgeCount());
+    }
+
+    @Test
+    public void testTimeoutAbortsHedgedRequest() throws Exception
+    {
+        int warmup = 5;
+        AtomicBoolean slow = new AtomicBoolean();
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                if (slow.get())
+                    sleep(2000);
+            }
+        });
+
+        HttpRequestHedger hedger = new HttpRequestHedger(client);
+        hedger.setMinSamples(warmup);
+        hedger.setMaxHedgeRatio(1);
+        hedger.setMinDelay(200);
+
+        for (int i = 0; i < warmup; ++i)
+        {
+            ContentResponse response = hedger.send(client.newRequest("localhost", connector.getLocalPort()).scheme(scheme));
+            Assert.assertEquals(200, response.getStatus());
+        }
+
+        List<org.eclipse.jetty.client.api.Request> sent = new CopyOnWriteArrayList<>();
+        client.getRequestListeners().add(new org.eclipse.jetty.client.api.Request.Listener.Adapter()
+        {
+            @Override
+            public void onBegin(org.eclipse.jetty.client.api.Request request)
+            {
+                sent.add(request);
+            }
+        });
+        slow.set(true);
+
+        try
+        {
+            hedger.send(client.newRequest("localhost", connector.getLocalPort())
+                    .scheme(scheme)
+                    .timeout(500, TimeUnit.MILLISECONDS));
+            Assert.fail();
+        }
+        catch (TimeoutException x)
+        {
+            // Expected.
+        }
+
+        // The hedged copy, sent 200 ms later, must not wait for its own timeout.
+        Assert.assertEquals(1, hedger.getHedgeCount());
+        Assert.assertEquals(2, sent.size());
+        for (org.eclipse.jetty.client.api.Request request : sent)
+            Assert.assertNotNull(request.getAbortCause());
+    }
+
+    private static void sleep(long millis) throws ServletException
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException x)
+        {
+            throw new ServletException(x);
+        }
+    }
+
+    @Test
+    public void testNonIdempotentRequestIsNotHedged() throws Exception
+    {
+        start(new EmptyServerHandler());
+
+        HttpRequestHedger hedger = new HttpRequestHedger(client);
+        hedger.setMinSamples(1);
+
+        ContentResponse response = hedger.send(client.newRequest("localhost", connector.getLocalPort()).scheme(scheme));
+        Assert.assertEquals(200, response.getStatus());
+
+        org.eclipse.jetty.client.api.Request get = client.newRequest("localhost", connector.getLocalPort()).scheme(scheme);
+        Assert.assertTrue(hedger.getHedgeDelay(get) >= hedger.getMinDelay());
+        org.eclipse.jetty.client.api.Request post = client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scheme)
+                .method(HttpMethod.POST);
+        Assert.assertEquals(-1, hedger.getHedgeDelay(post));
+    }
+}
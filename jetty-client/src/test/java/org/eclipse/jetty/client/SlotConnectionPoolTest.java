@@ -0,0 +1,224 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.client.api.Connection;
+import org.eclipse.jetty.client.api.Destination;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.Promise;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SlotConnectionPoolTest
+{
+    private SlotConnectionPool newConnectionPool(int maxConnections, SlotConnectionPool.Strategy strategy)
+    {
+        Destination destination = new Destination()
+        {
+            @Override
+            public String getScheme()
+            {
+                return "http";
+            }
+
+            @Override
+            public String getHost()
+            {
+                return "localhost";
+            }
+
+            @Override
+            public int getPort()
+            {
+                return 8080;
+            }
+
+            @Override
+            public void newConnection(Promise<Connection> promise)
+            {
+                promise.succeeded(new TestConnection());
+            }
+        };
+        return new SlotConnectionPool(destination, maxConnections, Callback.NOOP, strategy);
+    }
+
+    private List<Connection> acquireAll(ConnectionPool pool, int count)
+    {
+        List<Connection> result = new ArrayList<>();
+        for (int i = 0; i < count; ++i)
+        {
+            Connection connection = pool.acquire();
+            Assert.assertNotNull(connection);
+            result.add(connection);
+        }
+        return result;
+    }
+
+    @Test
+    public void testMaxConnections() throws Exception
+    {
+        SlotConnectionPool pool = newConnectionPool(2, SlotConnectionPool.Strategy.LIFO);
+        List<Connection> connections = acquireAll(pool, 2);
+        Assert.assertNotSame(connections.get(0), connections.get(1));
+        Assert.assertNull(pool.acquire());
+        Assert.assertEquals(2, pool.getActiveConnectionCount());
+
+        Assert.assertTrue(pool.release(connections.get(0)));
+        Assert.assertFalse(pool.release(connections.get(0)));
+        Assert.assertEquals(1, pool.getIdleConnectionCount());
+
+        Assert.assertTrue(pool.remove(connections.get(0)));
+        Assert.assertEquals(1, pool.getConnectionCount());
+        Assert.assertNotNull(pool.acquire());
+        Assert.assertEquals(2, pool.getConnectionCount());
+    }
+
+    @Test
+    public void testLIFOAcquiresMostRecentlyReleased() throws Exception
+    {
+        SlotConnectionPool pool = newConnectionPool(3, SlotConnectionPool.Strategy.LIFO);
+        List<Connection> connections = acquireAll(pool, 3);
+
+        pool.release(connections.get(0));
+        Thread.sleep(1);
+        pool.release(connections.get(2));
+        Thread.sleep(1);
+        pool.release(connections.get(1));
+
+        Assert.assertSame(connections.get(1), pool.acquire());
+        Assert.assertSame(connections.get(2), pool.acquire());
+        Assert.assertSame(connections.get(0), pool.acquire());
+    }
+
+    @Test
+    public void testRoundRobinSpreadsAcrossConnections() throws Exception
+    {
+        SlotConnectionPool pool = newConnectionPool(3, SlotConnectionPool.Strategy.ROUND_ROBIN);
+        List<Connection> connections = acquireAll(pool, 3);
+        connections.forEach(pool::release);
+
+        Set<Connection> used = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 3; ++i)
+        {
+            Connection connection = pool.acquire();
+            used.add(connection);
+            pool.release(connection);
+        }
+        Assert.assertEquals(3, used.size());
+    }
+
+    @Test
+    public void testPreCreateConnections() throws Exception
+    {
+        SlotConnectionPool pool = newConnectionPool(2, SlotConnectionPool.Strategy.LIFO);
+        pool.preCreateConnections(3).get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(2, pool.getConnectionCount());
+        Assert.assertEquals(2, pool.getIdleConnectionCount());
+        Assert.assertEquals(0, pool.getPendingConnectionCount());
+        acquireAll(pool, 2);
+        Assert.assertNull(pool.acquire());
+    }
+
+    @Test
+    public void testConcurrentAcquireRelease() throws Exception
+    {
+        for (SlotConnectionPool.Strategy strategy : SlotConnectionPool.Strategy.values())
+        {
+            SlotConnectionPool pool = newConnectionPool(4, strategy);
+            acquireAll(pool, 4).forEach(pool::release);
+
+            int threads = 8;
+            int iterations = 10000;
+            Set<Connection> active = ConcurrentHashMap.newKeySet();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            CountDownLatch latch = new CountDownLatch(threads);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; ++t)
+            {
+                executor.execute(() ->
+                {
+                    try
+                    {
+                        for (int i = 0; i < iterations; ++i)
+                        {
+                            Connection connection = pool.acquire();
+                            if (connection == null)
+                                continue;
+                            if (!active.add(connection))
+                                throw new IllegalStateException("Connection acquired twice " + connection);
+                            active.remove(connection);
+                            pool.release(connection);
+                        }
+                    }
+                    catch (Throwable x)
+                    {
+                        failure.set(x);
+                    }
+                    finally
+                    {
+                        latch.countDown();
+                    }
+                });
+            }
+
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+            executor.shutdownNow();
+            Assert.assertNull(failure.get());
+            Assert.assertEquals(4, pool.getIdleConnectionCount());
+            Assert.assertEquals(4, pool.getConnectionCount());
+            Assert.assertTrue(pool.getAcquireCount() > 0);
+        }
+    }
+
+    private static class TestConnection implements Connection
+    {
+        private volatile boolean closed;
+
+        @Override
+        public void send(Request request, Response.CompleteListener listener)
+        {
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+
+        @Override
+        public boolean isClosed()
+        {
+            return closed;
+        }
+    }
+}
@@ -19,11 +19,18 @@
 package org.eclipse.jetty.client.http;
 
 import java.io.EOFException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
 
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.HttpExchange;
@@ -38,6 +45,8 @@ import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.io.ByteArrayEndPoint;
 import org.eclipse.jetty.toolchain.test.TestTracker;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.Promise;
 import org.junit.After;
 import org.junit.Assert;
@@ -254,4 +263,106 @@ public class HttpReceiverOverHTTPTest
         Assert.assertNotNull(response);
         Assert.assertEquals(200, response.getStatus());
     }
+
+    @Test
+    public void test_Demand_RacingWith_Parsing() throws Exception
+    {
+        AtomicReference<LongConsumer> demandRef = new AtomicReference<>();
+        AtomicInteger parsing = new AtomicInteger();
+        AtomicBoolean concurrent = new AtomicBoolean();
+        AtomicBoolean demanded = new AtomicBoolean();
+        connection = new HttpConnectionOverHTTP(endPoint, destination, new Promise.Adapter<>())
+        {
+            @Override
+            protected HttpChannelOverHTTP newHttpChannel()
+            {
+                return new HttpChannelOverHTTP(this)
+                {
+                    @Override
+                    protected HttpReceiverOverHTTP newHttpReceiver()
+                    {
+                        return new HttpReceiverOverHTTP(this)
+                        {
+                            @Override
+                            public boolean content(ByteBuffer buffer)
+                            {
+                                if (parsing.incrementAndGet() > 1)
+                                    concurrent.set(true);
+                                try
+                                {
+                                    boolean result = super.content(buffer);
+                                    // Demand from another thread while this
+                                    // thread is still inside the parser.
+                                    if (demanded.compareAndSet(false, true))
+                                    {
+                                        Thread thread = new Thread(() -> demandRef.get().accept(1));
+                                        thread.start();
+                                        thread.join(5000);
+                                    }
+                                    return result;
+                                }
+                                catch (InterruptedException x)
+                                {
+                                    throw new RuntimeException(x);
+                                }
+                                finally
+                                {
+                                    parsing.decrementAndGet();
+                                }
+                            }
+                        };
+                    }
+                };
+            }
+        };
+        endPoint.setConnection(connection);
+
+        endPoint.addInput("" +
+                "HTTP/1.1 200 OK\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "\r\n" +
+                "1\r\n" +
+                "a\r\n" +
+                "1\r\n" +
+                "b\r\n" +
+                "0\r\n" +
+                "\r\n");
+
+        StringBuilder content = new StringBuilder();
+        CountDownLatch completeLatch = new CountDownLatch(1);
+        Response.DemandedContentListener demandedListener = new Response.DemandedContentListener()
+        {
+            @Override
+            public void onBeforeContent(Response response, LongConsumer demand)
+            {
+                demandRef.set(demand);
+                demand.accept(1);
+            }
+
+            @Override
+            public void onContent(Response response, LongConsumer demand, ByteBuffer buffer, Callback callback)
+            {
+                content.append(BufferUtil.toString(buffer));
+                callback.succeeded();
+                // The first chunk is demanded by the racing thread.
+                if (content.length() > 1)
+                    demand.accept(1);
+            }
+        };
+        Response.CompleteListener completeListener = result ->
+        {
+            if (result.isSucceeded())
+                completeLatch.countDown();
+        };
+        HttpRequest request = (HttpRequest)client.newRequest("http://localhost");
+        HttpExchange exchange = new HttpExchange(destination, request, Arrays.asList(demandedListener, completeListener));
+        Assert.assertTrue(connection.getHttpChannel().associate(exchange));
+        exchange.requestComplete(null);
+        exchange.terminateRequest();
+        connection.getHttpChannel().receive();
+
+        Assert.assertTrue(completeLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(concurrent.get());
+        Assert.assertEquals("ab", content.toString());
+    }
 }
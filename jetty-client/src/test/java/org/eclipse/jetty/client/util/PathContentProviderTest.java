@@ -0,0 +1,253 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.client.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.client.AbstractHttpClientServerTest;
+import org.eclipse.jetty.client.Transferable;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpScheme;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.ChannelEndPoint;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.toolchain.test.MavenTestingUtils;
+import org.eclipse.jetty.util.TypeUtil;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PathContentProviderTest extends AbstractHttpClientServerTest
+{
+    private Path file;
+    private String digest;
+
+    public PathContentProviderTest(SslContextFactory sslContextFactory)
+    {
+        super(sslContextFactory);
+    }
+
+    @Before
+    public void prepare() throws Exception
+    {
+        byte[] bytes = new byte[8 * 1024 * 1024 + 13];
+        new Random().nextBytes(bytes);
+        file = Files.createTempFile(MavenTestingUtils.getTargetTestingPath(), "upload_", ".bin");
+        Files.write(file, bytes);
+        digest = TypeUtil.toHexString(MessageDigest.getInstance("MD5").digest(bytes));
+    }
+
+    @After
+    public void cleanup() throws Exception
+    {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testUploadFile() throws Exception
+    {
+        start(new DigestHandler(0));
+
+        CountingPathContentProvider content = new CountingPathContentProvider(file);
+        ContentResponse response = client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scheme)
+                .method(HttpMethod.POST)
+                .content(content)
+                .timeout(15, TimeUnit.SECONDS)
+                .send();
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals(digest, response.getContentAsString());
+        long size = Files.size(file);
+        if (HttpScheme.HTTP.is(scheme))
+            Assert.assertThat(content.read.get(), Matchers.lessThan(size));
+        else
+            Assert.assertEquals(size, content.read.get());
+        // Content that is not transferred is read into buffers from the client's pool.
+        Assert.assertSame(client.getByteBufferPool(), content.pool);
+        Assert.assertNull(content.getByteBufferPool());
+    }
+
+    @Test
+    public void testUploadFileToSlowServer() throws Exception
+    {
+        // The server reads slowly, so that the client cannot
+        // transfer the file to the socket in a single write.
+        start(new DigestHandler(2));
+
+        ContentResponse response = client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scheme)
+                .method(HttpMethod.POST)
+                .content(new PathContentProvider(file, 16 * 1024))
+                .timeout(15, TimeUnit.SECONDS)
+                .send();
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals(digest, response.getContentAsString());
+    }
+
+    @Test
+    public void testUploadFileWithRequestContentListener() throws Exception
+    {
+        start(new DigestHandler(0));
+
+        AtomicLong notified = new AtomicLong();
+        ContentResponse response = client.newRequest("localhost", connector.getLocalPort())
+                .scheme(scheme)
+                .method(HttpMethod.POST)
+                .content(new PathContentProvider(file))
+                .onRequestContent((request, buffer) -> notified.addAndGet(buffer.remaining()))
+                .timeout(15, TimeUnit.SECONDS)
+                .send();
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals(digest, response.getContentAsString());
+        // Listeners must see all the content, so it cannot be transferred.
+        Assert.assertEquals(Files.size(file), notified.get());
+    }
+
+    @Test
+    public void testUploadFileTwice() throws Exception
+    {
+        start(new DigestHandler(0));
+
+        PathContentProvider content = new PathContentProvider(file);
+        for (int i = 0; i < 2; ++i)
+        {
+            ContentResponse response = client.newRequest("localhost", connector.getLocalPort())
+                    .scheme(scheme)
+                    .method(HttpMethod.POST)
+                    .content(content)
+                    .timeout(15, TimeUnit.SECONDS)
+                    .send();
+
+            Assert.assertEquals(200, response.getStatus());
+            Assert.assertEquals(digest, response.getContentAsString());
+        }
+    }
+
+    private static class CountingPathContentProvider extends PathContentProvider
+    {
+        private final AtomicLong read = new AtomicLong();
+        private ByteBufferPool pool;
+
+        private CountingPathContentProvider(Path filePath) throws IOException
+        {
+            super(filePath);
+        }
+
+        @Override
+        public Iterator<ByteBuffer> iterator(ByteBufferPool byteBufferPool)
+        {
+            pool = byteBufferPool;
+            return new CountingIterator(super.iterator(byteBufferPool));
+        }
+
+        private class CountingIterator implements Iterator<ByteBuffer>, Transferable, Closeable
+        {
+            private final Iterator<ByteBuffer> iterator;
+
+            private CountingIterator(Iterator<ByteBuffer> iterator)
+            {
+                this.iterator = iterator;
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public ByteBuffer next()
+            {
+                ByteBuffer buffer = iterator.next();
+                read.addAndGet(buffer.remaining());
+                return buffer;
+            }
+
+            @Override
+            public long transferTo(ChannelEndPoint endPoint) throws IOException
+            {
+                return ((Transferable)iterator).transferTo(endPoint);
+            }
+
+            @Override
+            public void close() throws IOException
+            {
+                ((Closeable)iterator).close();
+            }
+        }
+    }
+
+    private static class DigestHandler extends AbstractHandler
+    {
+        private final long pause;
+
+        private DigestHandler(long pause)
+        {
+            this.pause = pause;
+        }
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+        {
+            baseRequest.setHandled(true);
+            try
+            {
+                MessageDigest md5 = MessageDigest.getInstance("MD5");
+                InputStream input = request.getInputStream();
+                byte[] buffer = new byte[64 * 1024];
+                while (true)
+                {
+                    int read = input.read(buffer);
+                    if (read < 0)
+                        break;
+                    md5.update(buffer, 0, read);
+                    if (pause > 0)
+                        Thread.sleep(pause);
+                }
+                response.getOutputStream().print(TypeUtil.toHexString(md5.digest()));
+            }
+            catch (Exception x)
+            {
+                throw new ServletException(x);
+            }
+        }
+    }
+}
@@ -56,9 +56,14 @@ public class HttpFields implements Iterable<HttpField>
     public static final String __separators = ", \t";
 
     private static final Logger LOG = Log.getLogger(HttpFields.class);
+    private static final int __headers = HttpHeader.values().length;
 
     private HttpField[] _fields;
     private int _size;
+    private boolean _indexed;
+    private boolean _indexValid;
+    private int[] _headerIndex;
+    private int[] _nameIndex;
     
     /**
      * Initialize an empty HttpFields.
@@ -87,6 +92,32 @@ public class HttpFields implements Iterable<HttpField>
     {
         _fields=Arrays.copyOf(fields._fields,fields._fields.length+10);
         _size=fields._size;
+        _indexed=fields._indexed;
+    }
+
+    /**
+     * Set whether field lookups are indexed.
+     * <p>In indexed mode, lookups by {@link HttpHeader} use a table keyed on the header ordinal
+     * and lookups by name use an open addressed table of case insensitive name hashes, rather
+     * than a linear scan of all fields.  The index is rebuilt lazily after a field is removed or
+     * replaced, and is retained by {@link #clear()} so that an instance recycled across messages
+     * does not allocate once it has grown to the typical number of fields.
+     * Indexing is only worthwhile for messages with many fields that are frequently looked up.</p>
+     * @param indexed true if field lookups are indexed
+     */
+    public void setIndexed(boolean indexed)
+    {
+        _indexed=indexed;
+        _indexValid=false;
+    }
+
+    /**
+     * @return true if field lookups are indexed
+     * @see #setIndexed(boolean)
+     */
+    public boolean isIndexed()
+    {
+        return _indexed;
     }
 
     public int size()
@@ -150,6 +181,11 @@ public class HttpFields implements Iterable<HttpField>
 
     public HttpField getField(HttpHeader header)
     {
+        if (header!=null && index())
+        {
+            int i=_headerIndex[header.ordinal()];
+            return i==0?null:_fields[i-1];
+        }
         for (int i=0;i<_size;i++)
         {
             HttpField f=_fields[i];
@@ -161,6 +197,11 @@ public class HttpFields implements Iterable<HttpField>
 
     public HttpField getField(String name)
     {
+        if (name!=null && index())
+        {
+            int i=indexOf(name);
+            return i<0?null:_fields[i];
+        }
         for (int i=0;i<_size;i++)
         {
             HttpField f=_fields[i];
@@ -172,6 +213,9 @@ public class HttpFields implements Iterable<HttpField>
 
     public boolean contains(HttpField field)
     {
+        if (field!=null && index() && indexOf(field.getName())<0 &&
+            (field.getHeader()==null || _headerIndex[field.getHeader().ordinal()]==0))
+            return false;
         for (int i=_size;i-->0;)
         {
             HttpField f=_fields[i];
@@ -183,6 +227,8 @@ public class HttpFields implements Iterable<HttpField>
 
     public boolean contains(HttpHeader header, String value)
     {
+        if (header!=null && index() && _headerIndex[header.ordinal()]==0)
+            return false;
         for (int i=_size;i-->0;)
         {
             HttpField f=_fields[i];
@@ -194,6 +240,8 @@ public class HttpFields implements Iterable<HttpField>
     
     public boolean contains(String name, String value)
     {
+        if (name!=null && index() && indexOf(name)<0)
+            return false;
         for (int i=_size;i-->0;)
         {
             HttpField f=_fields[i];
@@ -205,6 +253,8 @@ public class HttpFields implements Iterable<HttpField>
 
     public boolean contains(HttpHeader header)
     {
+        if (header!=null && index())
+            return _headerIndex[header.ordinal()]!=0;
         for (int i=_size;i-->0;)
         {
             HttpField f=_fields[i];
@@ -216,6 +266,8 @@ public class HttpFields implements Iterable<HttpField>
     
     public boolean containsKey(String name)
     {
+        if (name!=null && index())
+            return indexOf(name)>=0;
         for (int i=_size;i-->0;)
         {
             HttpField f=_fields[i];
@@ -233,6 +285,11 @@ public class HttpFields implements Iterable<HttpField>
     
     public String get(HttpHeader header)
     {
+        if (header!=null && index())
+        {
+            int i=_headerIndex[header.ordinal()];
+            return i==0?null:_fields[i-1].getValue();
+        }
         for (int i=0;i<_size;i++)
         {
             HttpField f=_fields[i];
@@ -250,6 +307,11 @@ public class HttpFields implements Iterable<HttpField>
     
     public String get(String header)
     {
+        if (header!=null && index())
+        {
+            int i=indexOf(header);
+            return i<0?null:_fields[i].getValue();
+        }
         for (int i=0;i<_size;i++)
         {
             HttpField f=_fields[i];
@@ -579,6 +641,7 @@ public class HttpFields implements Iterable<HttpField>
 
     public void put(HttpField field)
     {
+        _indexValid=false;
         boolean put=false;
         for (int i=_size;i-->0;)
         {
@@ -691,6 +754,12 @@ public class HttpFields implements Iterable<HttpField>
      */
     public HttpField remove(HttpHeader name)
     {
+        if (name!=null && index())
+        {
+            if (_headerIndex[name.ordinal()]==0)
+                return null;
+            _indexValid=false;
+        }
         HttpField removed=null;
         for (int i=_size;i-->0;)
         {
@@ -712,6 +781,12 @@ public class HttpFields implements Iterable<HttpField>
      */
     public HttpField remove(String name)
     {
+        if (name!=null && index())
+        {
+            if (indexOf(name)<0)
+                return null;
+            _indexValid=false;
+        }
         HttpField removed=null;
         for (int i=_size;i-->0;)
         {
@@ -890,6 +965,7 @@ public class HttpFields implements Iterable<HttpField>
     public void clear()
     {
         _size=0;
+        _indexValid=false;
     }
     
     public void add(HttpField field)
@@ -899,9 +975,92 @@ public class HttpFields implements Iterable<HttpField>
             if (_size==_fields.length)
                 _fields=Arrays.copyOf(_fields,_size*2);
             _fields[_size++]=field;
+            if (_indexValid)
+            {
+                if (_nameIndex.length<2*_fields.length)
+                    _indexValid=false;
+                else
+                    index(_size-1);
+            }
         }
     }
 
+    /**
+     * @return true if the index may be used, after rebuilding it if necessary
+     */
+    private boolean index()
+    {
+        if (!_indexed)
+            return false;
+        if (_indexValid)
+            return true;
+
+        if (_headerIndex==null)
+            _headerIndex=new int[__headers];
+        else
+            Arrays.fill(_headerIndex,0);
+
+        // keep the name table at most half full, so that probe sequences are short and always terminate
+        int capacity=Integer.highestOneBit(Math.max(8,2*_fields.length)-1)<<1;
+        if (_nameIndex==null || _nameIndex.length<capacity)
+            _nameIndex=new int[capacity];
+        else
+            Arrays.fill(_nameIndex,0);
+
+        for (int i=0;i<_size;i++)
+            index(i);
+        _indexValid=true;
+        return true;
+    }
+
+    /**
+     * Index the field at a position, if it is the first field of its name.
+     * Indexes hold the position plus one, so that 0 is an empty entry.
+     */
+    private void index(int i)
+    {
+        HttpField field=_fields[i];
+        HttpHeader header=field.getHeader();
+        if (header!=null && _headerIndex[header.ordinal()]==0)
+            _headerIndex[header.ordinal()]=i+1;
+
+        String name=field.getName();
+        int mask=_nameIndex.length-1;
+        for (int slot=hash(field.nameHashCode())&mask;;slot=(slot+1)&mask)
+        {
+            int p=_nameIndex[slot];
+            if (p==0)
+            {
+                _nameIndex[slot]=i+1;
+                return;
+            }
+            if (_fields[p-1].getName().equalsIgnoreCase(name))
+                return;
+        }
+    }
+
+    /**
+     * @return the position of the first field with the name, or -1
+     */
+    private int indexOf(String name)
+    {
+        int mask=_nameIndex.length-1;
+        for (int slot=hash(HttpField.nameHashCode(name))&mask;;slot=(slot+1)&mask)
+        {
+            int p=_nameIndex[slot];
+            if (p==0)
+                return -1;
+            if (_fields[p-1].getName().equalsIgnoreCase(name))
+                return p-1;
+        }
+    }
+
+    private static int hash(int h)
+    {
+        // spread the high bits of the name hash into the bits used by the table mask
+        return h^(h>>>16);
+    }
+
     public void addAll(HttpFields fields)
     {
         for (int i=0;i<fields._size;i++)
@@ -1095,6 +1254,7 @@ public class HttpFields implements Iterable<HttpField>
                 throw new IllegalStateException();
 
             System.arraycopy(_fields,_last+1,_fields,_last,--_size-_last);
+            _indexValid=false;
             _cursor=_last;
             _last=-1;
         }
@@ -1131,6 +1291,7 @@ public class HttpFields implements Iterable<HttpField>
             if (_last<0)
                 throw new IllegalStateException();
             _fields[_last] = field;
+            _indexValid=false;
         }
 
         @Override
@@ -1139,6 +1300,7 @@ public class HttpFields implements Iterable<HttpField>
             _fields = Arrays.copyOf(_fields,_fields.length+1);
             System.arraycopy(_fields,_cursor,_fields,_cursor+1,_size++);
             _fields[_cursor++] = field;
+            _indexValid=false;
             _last=-1;
         }
     }
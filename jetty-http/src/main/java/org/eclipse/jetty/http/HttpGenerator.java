@@ -658,6 +658,22 @@ public class HttpGenerator
             for (int f=0;f<n;f++)
             {
                 HttpField field = fields.getField(f);
+                if (field instanceof PreEncodedHttpField)
+                {
+                    // Splice in a whole pre-encoded template if it is still intact
+                    PreEncodedHttpFields template=((PreEncodedHttpField)field)._template;
+                    if (template!=null && template.isAt(fields,f))
+                    {
+                        template.putTo(header);
+                        if (template.hasContentType())
+                            content_type=true;
+                        if (template.hasServer())
+                            send=send&~SEND_SERVER;
+                        f+=template.size()-1;
+                        continue;
+                    }
+                }
+
                 HttpHeader h = field.getHeader();
                 if (h==null)
                     putTo(field,header);
@@ -883,24 +899,23 @@ public class HttpGenerator
     /* ------------------------------------------------------------------------------- */
     /* ------------------------------------------------------------------------------- */
     /* ------------------------------------------------------------------------------- */
-    // Build cache of response lines for status
+    // Build cache of response lines for all 3 digit status codes.
+    // Codes without a known reason use the code as the reason, but have no _reason bytes.
     private static class PreparedResponse
     {
         byte[] _reason;
         byte[] _schemeCode;
         byte[] _responseLine;
     }
-    private static final PreparedResponse[] __preprepared = new PreparedResponse[HttpStatus.MAX_CODE+1];
+    private static final PreparedResponse[] __preprepared = new PreparedResponse[600];
     static
     {
         int versionLength=HttpVersion.HTTP_1_1.toString().length();
 
-        for (int i=0;i<__preprepared.length;i++)
+        for (int i=100;i<__preprepared.length;i++)
         {
             HttpStatus.Code code = HttpStatus.getCode(i);
-            if (code==null)
-                continue;
-            String reason=code.getMessage();
+            String reason=code==null?Integer.toString(i):code.getMessage();
             byte[] line=new byte[versionLength+5+reason.length()+2];
             HttpVersion.HTTP_1_1.toBuffer().get(line,0,versionLength);
             line[versionLength+0]=' ';
@@ -915,7 +930,7 @@ public class HttpGenerator
 
             __preprepared[i] = new PreparedResponse();
             __preprepared[i]._schemeCode = Arrays.copyOfRange(line, 0,versionLength+5);
-            __preprepared[i]._reason = Arrays.copyOfRange(line, versionLength+5, line.length-2);
+            __preprepared[i]._reason = code==null?null:Arrays.copyOfRange(line, versionLength+5, line.length-2);
             __preprepared[i]._responseLine=line;
         }
     }
@@ -19,6 +19,7 @@
 package org.eclipse.jetty.http;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.EnumSet;
@@ -425,6 +426,9 @@ public class HttpParser
     }
 
     /* ------------------------------------------------------------------------------- */
+    private final static long ONES=0x0101010101010101L;
+    private final static long HIGHS=0x8080808080808080L;
+
     enum CharState { ILLEGAL, CR, LF, LEGAL }
     private final static CharState[] __charState;
     static
@@ -516,6 +520,82 @@ public class HttpParser
         return ch;
     }
 
+    /* ------------------------------------------------------------------------------- */
+    /* Word-at-a-time scan for the end of a run of visible US-ASCII characters (0x21-0x7E),
+     * optionally also stopping at a ':'.  8 bytes are loaded at once and tested with
+     * SWAR bit tricks, so both heap and direct buffers are scanned without per byte
+     * dispatch through __charState.  Bytes are tested in little endian order, so that
+     * borrows and carries can only produce false positives after the first true match.
+     * Returns the index of the first byte that is not part of the run.
+     */
+    static int scanVisible(ByteBuffer buffer, int index, int limit, boolean colon)
+    {
+        boolean swap=buffer.order()==ByteOrder.BIG_ENDIAN;
+        while (index+8<=limit)
+        {
+            long word=buffer.getLong(index);
+            if (swap)
+                word=Long.reverseBytes(word);
+
+            // bytes < 0x21 (including high bit bytes via the second term) or > 0x7E
+            long stop=((word-ONES*0x21)&~word) | (word+ONES) | word;
+            if (colon)
+            {
+                long c=word^(ONES*HttpTokens.COLON);
+                stop|=(c-ONES)&~c;
+            }
+            stop&=HIGHS;
+
+            if (stop!=0)
+                return index+(Long.numberOfTrailingZeros(stop)>>>3);
+            index+=8;
+        }
+
+        while (index<limit)
+        {
+            byte b=buffer.get(index);
+            if (b<=HttpTokens.SPACE || b>=0x7F || colon && b==HttpTokens.COLON)
+                break;
+            index++;
+        }
+        return index;
+    }
+
+    /* ------------------------------------------------------------------------------- */
+    /* Append any run of visible characters following the buffer position directly to
+     * the string, accounting for the header bytes as if they had been parsed one at a time.
+     * The run never contains CR, LF or white space, so no state transition is missed.
+     */
+    private int appendVisible(ByteBuffer buffer, boolean colon)
+    {
+        int p=buffer.position();
+        int i=scanVisible(buffer,p,buffer.limit(),colon);
+        int len=i-p;
+        if (len==0)
+            return 0;
+
+        if (_maxHeaderBytes>0 && _headerBytes+len>_maxHeaderBytes)
+        {
+            // Let the byte by byte parsing report the overflow at the exact position
+            return 0;
+        }
+        _headerBytes+=len;
+
+        if (buffer.hasArray())
+        {
+            byte[] array=buffer.array();
+            for (int a=buffer.arrayOffset()+p, l=a+len;a<l;a++)
+                _string.append((char)array[a]);
+        }
+        else
+        {
+            while (p<i)
+                _string.append((char)buffer.get(p++));
+        }
+        buffer.position(i);
+        return len;
+    }
+
     /* ------------------------------------------------------------------------------- */
     /* Quick lookahead for the start state looking for a request method or a HTTP version,
      * otherwise skip white space until something else to parse.
@@ -692,28 +772,28 @@ public class HttpParser
                             _uri.reset();
                             setState(State.URI);
                             // quick scan for space or EoBuffer
+                            int p=buffer.position();
+                            int i=scanVisible(buffer,p,buffer.limit(),false);
+                            int len=i-p;
+                            _headerBytes+=len;
+
+                            if (_maxHeaderBytes>0 && ++_headerBytes>_maxHeaderBytes)
+                            {
+                                LOG.warn("URI is too large >"+_maxHeaderBytes);
+                                throw new BadMessageException(HttpStatus.URI_TOO_LONG_414);
+                            }
                             if (buffer.hasArray())
                             {
-                                byte[] array=buffer.array();
-                                int p=buffer.arrayOffset()+buffer.position();
-                                int l=buffer.arrayOffset()+buffer.limit();
-                                int i=p;
-                                while (i<l && array[i]>HttpTokens.SPACE)
-                                    i++;
-
-                                int len=i-p;
-                                _headerBytes+=len;
-
-                                if (_maxHeaderBytes>0 && ++_headerBytes>_maxHeaderBytes)
-                                {
-                                    LOG.warn("URI is too large >"+_maxHeaderBytes);
-                                    throw new BadMessageException(HttpStatus.URI_TOO_LONG_414);
-                                }
-                                _uri.append(array,p-1,len+1);
-                                buffer.position(i-buffer.arrayOffset());
+                                _uri.append(buffer.array(),buffer.arrayOffset()+p-1,len+1);
+                                buffer.position(i);
                             }
                             else
+                            {
                                 _uri.append(b);
+                                while (p<i)
+                                    _uri.append(buffer.get(p++));
+                                buffer.position(i);
+                            }
                         }
                     }
                     else if (b < HttpTokens.SPACE)
@@ -1248,8 +1328,8 @@ public class HttpParser
                         }
 
                         _string.append((char)b);
-                        if (b>HttpTokens.SPACE)
-                            _length=_string.length();
+                        appendVisible(buffer,true);
+                        _length=_string.length();
                         break;
                     }
                     
@@ -1307,6 +1387,8 @@ public class HttpParser
                         _string.append((char)(0xff&b));
                         if (b>HttpTokens.SPACE || b<0)
                             _length=_string.length();
+                        if (appendVisible(buffer,false)>0)
+                            _length=_string.length();
                         break;
                     }
 
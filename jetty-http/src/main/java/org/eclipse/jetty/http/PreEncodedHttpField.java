@@ -96,12 +96,13 @@ public class PreEncodedHttpField extends HttpField
     }
     
     private final byte[][] _encodedField=new byte[__encoders.length][];
+    PreEncodedHttpFields _template;
 
     public PreEncodedHttpField(HttpHeader header,String name,String value)
     {
         super(header,name, value);
         for (int i=0;i<__encoders.length;i++)
-            _encodedField[i]=__encoders[i].getEncodedField(header,header.asString(),value);
+            _encodedField[i]=__encoders[i].getEncodedField(header,header==null?name:header.asString(),value);
     }
     
     public PreEncodedHttpField(HttpHeader header,String value)
@@ -118,4 +119,9 @@ public class PreEncodedHttpField extends HttpField
     {
         bufferInFillMode.put(_encodedField[index(version)]);
     }
+
+    public int getEncodedLength(HttpVersion version)
+    {
+        return _encodedField[index(version)].length;
+    }
 }
@@ -0,0 +1,166 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.http;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/* ------------------------------------------------------------ */
+/** Pre encoded HttpFields template.
+ * <p>An immutable list of fields that are added to many responses (for example
+ * <code>Server</code>, <code>Content-Type</code> and security headers).  Each field
+ * is held as a {@link PreEncodedHttpField}, and the whole list is also pre-encoded
+ * for HTTP/1, so that when the fields added by {@link #addTo(HttpFields)} are still
+ * contiguous and unmodified, the {@link HttpGenerator} writes them with a single
+ * bulk copy.  Otherwise, and for HTTP/2 where the encoding depends on the HPACK
+ * dynamic table, each field still uses its own pre-encoding.
+ * </p>
+ * <p>Fields that control message framing ({@link HttpHeader#CONTENT_LENGTH},
+ * {@link HttpHeader#TRANSFER_ENCODING} and {@link HttpHeader#CONNECTION}) and
+ * pseudo headers cannot be part of a template.
+ * </p>
+ */
+public class PreEncodedHttpFields implements Iterable<HttpField>
+{
+    private final PreEncodedHttpField[] _fields;
+    private final byte[] _http1;
+    private final boolean _contentType;
+    private final boolean _server;
+
+    public PreEncodedHttpFields(HttpField... fields)
+    {
+        _fields=new PreEncodedHttpField[fields.length];
+        int length=0;
+        boolean contentType=false;
+        boolean server=false;
+        for (int i=0;i<fields.length;i++)
+        {
+            HttpField field=fields[i];
+            HttpHeader header=field.getHeader();
+            if (header!=null)
+            {
+                switch(header)
+                {
+                    case CONTENT_LENGTH:
+                    case TRANSFER_ENCODING:
+                    case CONNECTION:
+                        throw new IllegalArgumentException("Cannot pre-encode "+header);
+                    case CONTENT_TYPE:
+                        contentType=true;
+                        break;
+                    case SERVER:
+                        server=true;
+                        break;
+                    default:
+                        if (header.asString().charAt(0)==':')
+                            throw new IllegalArgumentException("Cannot pre-encode "+header);
+                }
+            }
+            if (field.getValue()==null)
+                throw new IllegalArgumentException("null value");
+
+            PreEncodedHttpField encoded=new PreEncodedHttpField(header,field.getName(),field.getValue());
+            encoded._template=this;
+            _fields[i]=encoded;
+            length+=encoded.getEncodedLength(HttpVersion.HTTP_1_1);
+        }
+        _contentType=contentType;
+        _server=server;
+
+        ByteBuffer http1=ByteBuffer.allocate(length);
+        for (PreEncodedHttpField field : _fields)
+            field.putTo(http1,HttpVersion.HTTP_1_1);
+        _http1=http1.array();
+    }
+
+    public PreEncodedHttpFields(HttpFields fields)
+    {
+        this(fields.stream().toArray(HttpField[]::new));
+    }
+
+    public int size()
+    {
+        return _fields.length;
+    }
+
+    public HttpField getField(int index)
+    {
+        return _fields[index];
+    }
+
+    @Override
+    public Iterator<HttpField> iterator()
+    {
+        return Arrays.<HttpField>asList(_fields).iterator();
+    }
+
+    /**
+     * Add all the fields of the template.
+     * @param fields the fields to add to, normally those of a response
+     */
+    public void addTo(HttpFields fields)
+    {
+        for (PreEncodedHttpField field : _fields)
+            fields.add(field);
+    }
+
+    /**
+     * Put the HTTP/1 encoding of all the fields of the template.
+     * @param bufferInFillMode the buffer to put the fields to
+     */
+    public void putTo(ByteBuffer bufferInFillMode)
+    {
+        bufferInFillMode.put(_http1);
+    }
+
+    /**
+     * @param fields the fields to check
+     * @param index the index within the fields to check
+     * @return true if all the fields of this template are found, unmodified and in order, at the index
+     */
+    public boolean isAt(HttpFields fields, int index)
+    {
+        if (index+_fields.length>fields.size())
+            return false;
+        for (int i=0;i<_fields.length;i++)
+        {
+            if (fields.getField(index+i)!=_fields[i])
+                return false;
+        }
+        return true;
+    }
+
+    boolean hasContentType()
+    {
+        return _contentType;
+    }
+
+    boolean hasServer()
+    {
+        return _server;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x%s",getClass().getSimpleName(),hashCode(),Arrays.toString(_fields));
+    }
+}
@@ -695,4 +695,67 @@ public class HttpFieldsTest
         assertThat(i.next().getName(),is("name4"));
         assertThat(i.hasNext(),is(false));
     }
+
+    @Test
+    public void testIndexed() throws Exception
+    {
+        HttpFields header = new HttpFields(4);
+        header.setIndexed(true);
+        assertTrue(header.isIndexed());
+
+        for (int r=0;r<3;r++)
+        {
+            header.clear();
+            assertNull(header.get(HttpHeader.HOST));
+            assertNull(header.get("X-Custom-0"));
+
+            header.add(HttpHeader.HOST,"localhost");
+            for (int i=0;i<40;i++)
+                header.add("X-Custom-"+i,"value"+i);
+            header.add(HttpHeader.ACCEPT,"text/html");
+            header.add(HttpHeader.ACCEPT,"text/plain");
+            header.add(new HttpField(null,"cookie","a=b"));
+
+            assertEquals(44,header.size());
+            assertEquals("localhost",header.get(HttpHeader.HOST));
+            assertEquals("localhost",header.get("host"));
+            assertEquals("text/html",header.get(HttpHeader.ACCEPT));
+            assertEquals("text/html",header.getField("ACCEPT").getValue());
+            assertEquals("value17",header.get("x-custom-17"));
+            assertEquals("value39",header.getField("X-CUSTOM-39").getValue());
+            assertNull(header.get("X-Custom-40"));
+            assertNull(header.get(HttpHeader.COOKIE));
+            assertEquals("a=b",header.get("Cookie"));
+            assertTrue(header.contains(HttpHeader.ACCEPT));
+            assertTrue(header.contains(HttpHeader.ACCEPT,"text/plain"));
+            assertFalse(header.contains(HttpHeader.ACCEPT_ENCODING,"gzip"));
+            assertTrue(header.contains("x-custom-3","value3"));
+            assertFalse(header.contains("x-custom-3","value4"));
+            assertTrue(header.containsKey("X-Custom-0"));
+            assertFalse(header.containsKey("X-Other"));
+
+            // remove invalidates the index
+            assertNull(header.remove("X-Other"));
+            assertEquals("value0",header.remove("x-custom-0").getValue());
+            assertNull(header.get("X-Custom-0"));
+            assertEquals("value1",header.get("X-Custom-1"));
+            assertEquals("text/html",header.remove(HttpHeader.ACCEPT).getValue());
+            assertNull(header.get(HttpHeader.ACCEPT));
+            assertEquals("localhost",header.get(HttpHeader.HOST));
+
+            // put replaces
+            header.put(HttpHeader.HOST,"example.com");
+            header.put("X-Custom-5","five");
+            assertEquals("example.com",header.get(HttpHeader.HOST));
+            assertEquals("five",header.get("X-Custom-5"));
+
+            // iterator modifications invalidate the index
+            ListIterator<HttpField> l = header.listIterator();
+            l.next();
+            l.remove();
+            assertNull(header.get(HttpHeader.HOST));
+            l.add(new HttpField(HttpHeader.HOST,"other"));
+            assertEquals("other",header.get(HttpHeader.HOST));
+        }
+    }
 }
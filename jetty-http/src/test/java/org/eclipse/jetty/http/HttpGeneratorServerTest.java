@@ -20,6 +20,7 @@ package org.eclipse.jetty.http;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertEquals;
@@ -838,4 +839,74 @@ public class HttpGeneratorServerTest
         Assert.assertTrue(headers.contains(HttpHeaderValue.KEEP_ALIVE.asString()));
         Assert.assertTrue(headers.contains(customValue));
     }
+
+    @Test
+    public void testPreEncodedTemplate() throws Exception
+    {
+        PreEncodedHttpFields template = new PreEncodedHttpFields(
+                new HttpField(HttpHeader.SERVER, "SomeServer"),
+                new HttpField(HttpHeader.CONTENT_TYPE, "text/plain"),
+                new HttpField("X-Frame-Options", "DENY"),
+                new HttpField("X-Content-Type-Options", "nosniff"));
+        ByteBuffer header = BufferUtil.allocate(4096);
+        HttpGenerator gen = new HttpGenerator(true, false);
+
+        // Intact template is spliced in
+        HttpFields fields = new HttpFields();
+        fields.add(HttpHeader.LAST_MODIFIED, DateGenerator.__01Jan1970);
+        template.addTo(fields);
+        assertThat(template.isAt(fields, 1), is(true));
+        MetaData.Response info = new MetaData.Response(HttpVersion.HTTP_1_1, 200, null, fields, 0);
+        gen.generateResponse(info, false, header, null, null, true);
+        String head = BufferUtil.toString(header);
+        BufferUtil.clear(header);
+        assertThat(head, containsString("Last-Modified: Thu, 01 Jan 1970 00:00:00 GMT\r\n" +
+                "Server: SomeServer\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "X-Frame-Options: DENY\r\n" +
+                "X-Content-Type-Options: nosniff\r\n"));
+        assertThat(head, not(containsString("Server: Jetty(9.x.x)")));
+
+        // Modified template falls back to per field encoding
+        gen.reset();
+        fields.put("X-Frame-Options", "SAMEORIGIN");
+        assertThat(template.isAt(fields, 1), is(false));
+        gen.generateResponse(info, false, header, null, null, true);
+        head = BufferUtil.toString(header);
+        BufferUtil.clear(header);
+        assertThat(head, containsString("Server: SomeServer\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "X-Frame-Options: SAMEORIGIN\r\n" +
+                "X-Content-Type-Options: nosniff\r\n"));
+        assertThat(head, not(containsString("Server: Jetty(9.x.x)")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPreEncodedTemplateFraming() throws Exception
+    {
+        new PreEncodedHttpFields(new HttpField(HttpHeader.CONTENT_LENGTH, "10"));
+    }
+
+    @Test
+    public void testResponseLineForAllStatusCodes() throws Exception
+    {
+        ByteBuffer header = BufferUtil.allocate(8096);
+        for (int status = 100; status < 600; ++status)
+        {
+            HttpStatus.Code code = HttpStatus.getCode(status);
+            String reason = code == null ? Integer.toString(status) : code.getMessage();
+
+            HttpGenerator gen = new HttpGenerator();
+            MetaData.Response info = new MetaData.Response(HttpVersion.HTTP_1_1, status, null, new HttpFields(), 0);
+            gen.generateResponse(info, false, header, null, null, true);
+            assertThat(BufferUtil.toString(header), startsWith("HTTP/1.1 " + status + " " + reason + "\r\n"));
+            BufferUtil.clear(header);
+
+            gen = new HttpGenerator();
+            info = new MetaData.Response(HttpVersion.HTTP_1_1, status, "Custom", new HttpFields(), 0);
+            gen.generateResponse(info, false, header, null, null, true);
+            assertThat(BufferUtil.toString(header), startsWith("HTTP/1.1 " + status + " Custom\r\n"));
+            BufferUtil.clear(header);
+        }
+    }
 }
@@ -19,6 +19,7 @@
 package org.eclipse.jetty.http;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -395,6 +396,66 @@ public class HttpParserTest
     }
     
 
+    @Test
+    public void testScanVisible() throws Exception
+    {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN})
+        {
+            for (int i = 0; i < 20; i++)
+            {
+                for (char stop : new char[]{' ', '\r', '\n', '\t', ':', 0x7F, 0x80, 0xFF})
+                {
+                    ByteBuffer buffer = BufferUtil.allocate(32);
+                    BufferUtil.clearToFill(buffer);
+                    for (int j = 0; j < 24; j++)
+                        buffer.put((byte)(j == i ? stop : '!' + j));
+                    buffer.flip();
+                    buffer.order(order);
+
+                    int expected = stop == ':' ? 24 : i;
+                    Assert.assertEquals(expected, HttpParser.scanVisible(buffer, 0, buffer.limit(), false));
+                    Assert.assertEquals(i, HttpParser.scanVisible(buffer, 0, buffer.limit(), stop == ':'));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLongTokensParseDirect() throws Exception
+    {
+        String uri = "/some/long/path/to/a/resource.html?query=value&other=some-other-value";
+        String cookie = "JSESSIONID=node01abcdefghijklmnopqrstuv0.node0; theme=dark; _ga=GA1.2.1234567890.1234567890";
+        String agent = "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/60.0.3112.90";
+        String request = "GET " + uri + " HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Cookie: " + cookie + "\r\n" +
+                "X-Some-Long-Custom-Header-Name: " + agent + "   \r\n" +
+                "\r\n";
+
+        for (boolean direct : new boolean[]{false, true})
+        {
+            ByteBuffer b0 = BufferUtil.toBuffer(request);
+            ByteBuffer buffer = direct ? BufferUtil.allocateDirect(b0.capacity()) : BufferUtil.allocate(b0.capacity());
+            int pos = BufferUtil.flipToFill(buffer);
+            BufferUtil.put(b0, buffer);
+            BufferUtil.flipToFlush(buffer, pos);
+
+            HttpParser.RequestHandler handler = new Handler();
+            HttpParser parser = new HttpParser(handler);
+            parseAll(parser, buffer);
+
+            Assert.assertEquals(uri, _uriOrStatus);
+            Assert.assertEquals("Host", _hdr[0]);
+            Assert.assertEquals("localhost", _val[0]);
+            Assert.assertEquals("Cookie", _hdr[1]);
+            Assert.assertEquals(cookie, _val[1]);
+            Assert.assertEquals("X-Some-Long-Custom-Header-Name", _hdr[2]);
+            Assert.assertEquals(agent, _val[2]);
+            Assert.assertEquals(2, _headers);
+            Assert.assertTrue(_messageCompleted);
+        }
+    }
+
     @Test
     public void testHeaderParseDirect() throws Exception
     {
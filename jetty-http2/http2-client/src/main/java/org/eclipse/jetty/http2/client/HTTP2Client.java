@@ -33,6 +33,8 @@ import org.eclipse.jetty.alpn.client.ALPNClientConnectionFactory;
 import org.eclipse.jetty.http2.BufferingFlowControlStrategy;
 import org.eclipse.jetty.http2.FlowControlStrategy;
 import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.hpack.AdaptiveHpackIndexingStrategy;
+import org.eclipse.jetty.http2.hpack.HpackIndexingStrategy;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.ClientConnectionFactory;
 import org.eclipse.jetty.io.Connection;
@@ -126,7 +128,9 @@ public class HTTP2Client extends ContainerLifeCycle
     private List<String> protocols = Arrays.asList("h2", "h2-17", "h2-16", "h2-15", "h2-14");
     private int initialSessionRecvWindow = 16 * 1024 * 1024;
     private int initialStreamRecvWindow = 8 * 1024 * 1024;
+    private int outputAggregationSize = 16 * 1024;
     private FlowControlStrategy.Factory flowControlStrategyFactory = () -> new BufferingFlowControlStrategy(0.5F);
+    private HpackIndexingStrategy.Factory hpackIndexingStrategyFactory = AdaptiveHpackIndexingStrategy::new;
 
     @Override
     protected void doStart() throws Exception
@@ -230,6 +234,16 @@ public class HTTP2Client extends ContainerLifeCycle
         this.flowControlStrategyFactory = flowControlStrategyFactory;
     }
 
+    public HpackIndexingStrategy.Factory getHpackIndexingStrategyFactory()
+    {
+        return hpackIndexingStrategyFactory;
+    }
+
+    public void setHpackIndexingStrategyFactory(HpackIndexingStrategy.Factory hpackIndexingStrategyFactory)
+    {
+        this.hpackIndexingStrategyFactory = hpackIndexingStrategyFactory;
+    }
+
     @ManagedAttribute("The number of selectors")
     public int getSelectors()
     {
@@ -310,6 +324,17 @@ public class HTTP2Client extends ContainerLifeCycle
         this.initialStreamRecvWindow = initialStreamRecvWindow;
     }
 
+    @ManagedAttribute("The size of the buffers small frames are aggregated into before writing")
+    public int getOutputAggregationSize()
+    {
+        return outputAggregationSize;
+    }
+
+    public void setOutputAggregationSize(int outputAggregationSize)
+    {
+        this.outputAggregationSize = outputAggregationSize;
+    }
+
     public void connect(InetSocketAddress address, Session.Listener listener, Promise<Session> promise)
     {
         connect(null, address, listener, promise);
@@ -65,8 +65,10 @@ public class HTTP2ClientConnectionFactory implements ClientConnectionFactory
         Promise<Session> promise = (Promise<Session>)context.get(SESSION_PROMISE_CONTEXT_KEY);
 
         Generator generator = new Generator(byteBufferPool);
+        generator.setHpackIndexingStrategy(client.getHpackIndexingStrategyFactory().newHpackIndexingStrategy());
         FlowControlStrategy flowControl = client.getFlowControlStrategyFactory().newFlowControlStrategy();
         HTTP2ClientSession session = new HTTP2ClientSession(scheduler, endPoint, generator, listener, flowControl);
+        session.setOutputAggregationSize(client.getOutputAggregationSize());
         Parser parser = new Parser(byteBufferPool, session, 4096, 8192);
 
         ReservedThreadExecutor reservedExecutor = provideReservedThreadExecutor(client, executor);
@@ -0,0 +1,116 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.http2.client;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.AutoTuningFlowControlStrategy;
+import org.eclipse.jetty.http2.HTTP2Session;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.api.server.ServerSessionListener;
+import org.eclipse.jetty.http2.frames.DataFrame;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PingFrame;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.Promise;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AutoTuningFlowControlStrategyTest extends AbstractTest
+{
+    private final AutoTuningFlowControlStrategy.Factory factory = new AutoTuningFlowControlStrategy.Factory(0.5F, 4 * 1024 * 1024, 1024 * 1024);
+
+    @Override
+    protected void prepareClient()
+    {
+        super.prepareClient();
+        client.setFlowControlStrategyFactory(factory);
+    }
+
+    @Test
+    public void testRecvWindowGrowsWithinMemoryBudget() throws Exception
+    {
+        byte[] data = new byte[32 * 1024 * 1024];
+        start(new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame requestFrame)
+            {
+                MetaData.Response metaData = new MetaData.Response(HttpVersion.HTTP_2, 200, new HttpFields());
+                HeadersFrame responseFrame = new HeadersFrame(stream.getId(), metaData, null, false);
+                Callback.Completable completable = new Callback.Completable();
+                stream.headers(responseFrame, completable);
+                completable.thenRun(() ->
+                {
+                    DataFrame dataFrame = new DataFrame(stream.getId(), ByteBuffer.wrap(data), true);
+                    stream.data(dataFrame, Callback.NOOP);
+                });
+                return null;
+            }
+        });
+
+        CountDownLatch pingLatch = new CountDownLatch(1);
+        Session session = newClient(new Session.Listener.Adapter()
+        {
+            @Override
+            public void onPing(Session session, PingFrame frame)
+            {
+                // BDP pings must not be notified to the application.
+                pingLatch.countDown();
+            }
+        });
+        MetaData.Request metaData = newRequest("GET", new HttpFields());
+        HeadersFrame requestFrame = new HeadersFrame(metaData, null, true);
+        CountDownLatch latch = new CountDownLatch(1);
+        session.newStream(requestFrame, new Promise.Adapter<>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onData(Stream stream, DataFrame frame, Callback callback)
+            {
+                callback.succeeded();
+                if (frame.isEndStream())
+                    latch.countDown();
+            }
+        });
+
+        Assert.assertTrue(latch.await(15, TimeUnit.SECONDS));
+        Assert.assertFalse(pingLatch.await(1, TimeUnit.SECONDS));
+
+        AutoTuningFlowControlStrategy flowControl = (AutoTuningFlowControlStrategy)((HTTP2Session)session).getFlowControlStrategy();
+        Assert.assertThat(flowControl.getReservedMemory(), Matchers.greaterThan(0L));
+        Assert.assertThat(flowControl.getReservedMemory(), Matchers.lessThanOrEqualTo(factory.getMaxMemory()));
+        Assert.assertEquals(flowControl.getReservedMemory(), factory.getMemory());
+        Assert.assertThat(((HTTP2Session)session).getRecvWindow(), Matchers.lessThanOrEqualTo(flowControl.getMaxRecvWindow()));
+
+        session.close(0, null, Callback.NOOP);
+        long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flowControl.getReservedMemory() > 0 && System.nanoTime() < timeout)
+            Thread.sleep(10);
+        Assert.assertEquals(0, flowControl.getReservedMemory());
+        Assert.assertEquals(0, factory.getMemory());
+    }
+}
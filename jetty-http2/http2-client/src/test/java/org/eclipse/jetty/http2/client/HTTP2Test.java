@@ -19,14 +19,20 @@
 package org.eclipse.jetty.http2.client;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritePendingException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -40,18 +46,27 @@ import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.http2.ErrorCode;
+import org.eclipse.jetty.http2.HTTP2Session;
 import org.eclipse.jetty.http2.api.Session;
 import org.eclipse.jetty.http2.api.Stream;
 import org.eclipse.jetty.http2.api.server.ServerSessionListener;
 import org.eclipse.jetty.http2.frames.DataFrame;
 import org.eclipse.jetty.http2.frames.GoAwayFrame;
 import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.ResetFrame;
 import org.eclipse.jetty.http2.frames.SettingsFrame;
+import org.eclipse.jetty.http2.server.AbstractHTTP2ServerConnectionFactory;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnection;
+import org.eclipse.jetty.http2.server.RawHTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.FutureCallback;
 import org.eclipse.jetty.util.FuturePromise;
+import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.Jetty;
 import org.eclipse.jetty.util.Promise;
+import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -678,6 +693,295 @@ public class HTTP2Test extends AbstractTest
         Assert.assertFalse(failureLatch.await(1, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void testSmallFramesOfManyStreamsAreAggregated() throws Exception
+    {
+        int streams = 32;
+        Map<Integer, byte[]> contents = new ConcurrentHashMap<>();
+        List<Stream> serverStreams = new ArrayList<>();
+        List<HTTP2Session> serverSessions = new ArrayList<>();
+        start(new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                synchronized (serverStreams)
+                {
+                    serverStreams.add(stream);
+                    if (serverStreams.size() < streams)
+                        return null;
+                }
+
+                serverSessions.add((HTTP2Session)stream.getSession());
+                MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, HttpStatus.OK_200, new HttpFields());
+                stream.headers(new HeadersFrame(stream.getId(), response, null, false), new Callback()
+                {
+                    @Override
+                    public void succeeded()
+                    {
+                        // Write from within the callback so that the frames are queued together.
+                        for (Stream serverStream : serverStreams)
+                        {
+                            byte[] content = new byte[1 + serverStream.getId()];
+                            new Random().nextBytes(content);
+                            contents.put(serverStream.getId(), content);
+                            DataFrame dataFrame = new DataFrame(serverStream.getId(), ByteBuffer.wrap(content), true);
+                            if (serverStream == stream)
+                                serverStream.data(dataFrame, Callback.NOOP);
+                            else
+                                serverStream.headers(new HeadersFrame(serverStream.getId(), response, null, false), new Callback()
+                                {
+                                    @Override
+                                    public void succeeded()
+                                    {
+                                        serverStream.data(dataFrame, Callback.NOOP);
+                                    }
+                                });
+                        }
+                    }
+                });
+                return null;
+            }
+        });
+
+        Session session = newClient(new Session.Listener.Adapter());
+        Map<Integer, ByteBuffer> received = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(streams);
+        for (int i = 0; i < streams; ++i)
+        {
+            MetaData.Request metaData = newRequest("GET", new HttpFields());
+            session.newStream(new HeadersFrame(metaData, null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter()
+            {
+                @Override
+                public void onData(Stream stream, DataFrame frame, Callback callback)
+                {
+                    ByteBuffer buffer = received.computeIfAbsent(stream.getId(), id -> ByteBuffer.allocate(1024));
+                    buffer.put(frame.getData());
+                    callback.succeeded();
+                    if (frame.isEndStream())
+                        latch.countDown();
+                }
+            });
+        }
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        contents.forEach((id, content) ->
+        {
+            ByteBuffer buffer = received.get(id);
+            buffer.flip();
+            Assert.assertArrayEquals(content, BufferUtil.toArray(buffer));
+        });
+        Assert.assertThat(serverSessions.get(0).getFramesPerWrite(), Matchers.greaterThan(2.0));
+    }
+
+    @Test
+    public void testTooMuchBufferedContentDefersNewStreams() throws Exception
+    {
+        CountDownLatch consumeLatch = new CountDownLatch(1);
+        start(new HttpServlet()
+        {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+            {
+                if ("/slow".equals(request.getPathInfo()))
+                {
+                    try
+                    {
+                        consumeLatch.await();
+                        IO.copy(request.getInputStream(), IO.getNullStream());
+                    }
+                    catch (InterruptedException x)
+                    {
+                        throw new InterruptedIOException();
+                    }
+                }
+            }
+        });
+        AbstractHTTP2ServerConnectionFactory connectionFactory = connector.getConnectionFactory(AbstractHTTP2ServerConnectionFactory.class);
+        connectionFactory.setMaxSessionBufferedBytes(1024);
+
+        Session session = newClient(new Session.Listener.Adapter());
+
+        CountDownLatch slowLatch = new CountDownLatch(1);
+        MetaData.Request post = newRequest("POST", "/slow", new HttpFields());
+        FuturePromise<Stream> promise = new FuturePromise<>();
+        session.newStream(new HeadersFrame(post, null, false), promise, new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onHeaders(Stream stream, HeadersFrame frame)
+            {
+                if (frame.isEndStream())
+                    slowLatch.countDown();
+            }
+        });
+        Stream stream = promise.get(5, TimeUnit.SECONDS);
+        FutureCallback dataCallback = new FutureCallback();
+        stream.data(new DataFrame(stream.getId(), ByteBuffer.allocate(2048), true), dataCallback);
+        dataCallback.get(5, TimeUnit.SECONDS);
+
+        // The POST content is not consumed, so the GET must not be dispatched.
+        CountDownLatch fastLatch = new CountDownLatch(1);
+        MetaData.Request get = newRequest("GET", "/fast", new HttpFields());
+        session.newStream(new HeadersFrame(get, null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onHeaders(Stream stream, HeadersFrame frame)
+            {
+                if (frame.isEndStream())
+                    fastLatch.countDown();
+            }
+        });
+        Assert.assertFalse(fastLatch.await(1, TimeUnit.SECONDS));
+
+        consumeLatch.countDown();
+        Assert.assertTrue(slowLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(fastLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, connectionFactory.getBufferedBytes());
+    }
+
+    @Test
+    public void testHttpChannelsAreNotRecycledByDefault() throws Exception
+    {
+        start(new EmptyHttpServlet());
+
+        int requests = 4;
+        HTTP2ServerConnection connection = sendSequentialRequests(requests);
+        Assert.assertEquals(requests, connection.getAllocatedHttpChannels());
+        Assert.assertEquals(0, connection.getRecycledHttpChannels());
+    }
+
+    @Test
+    public void testHttpChannelsAreRecycled() throws Exception
+    {
+        start(new EmptyHttpServlet());
+        connector.getConnectionFactory(AbstractHTTP2ServerConnectionFactory.class).setRecycleHttpChannels(true);
+
+        int requests = 16;
+        HTTP2ServerConnection connection = sendSequentialRequests(requests);
+        Assert.assertThat(connection.getAllocatedHttpChannels(), Matchers.lessThan((long)requests));
+        Assert.assertEquals(requests, connection.getAllocatedHttpChannels() + connection.getRecycledHttpChannels());
+    }
+
+    private HTTP2ServerConnection sendSequentialRequests(int requests) throws Exception
+    {
+        Session session = newClient(new Session.Listener.Adapter());
+        for (int i = 0; i < requests; ++i)
+        {
+            CountDownLatch latch = new CountDownLatch(1);
+            MetaData.Request metaData = newRequest("GET", new HttpFields());
+            session.newStream(new HeadersFrame(metaData, null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter()
+            {
+                @Override
+                public void onHeaders(Stream stream, HeadersFrame frame)
+                {
+                    if (frame.isEndStream())
+                        latch.countDown();
+                }
+            });
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        }
+        return (HTTP2ServerConnection)connector.getConnectedEndPoints().iterator().next().getConnection();
+    }
+
+    @Test
+    public void testRawHandlerReceivesAggregatedContent() throws Exception
+    {
+        AtomicInteger handled = new AtomicInteger();
+        RawHTTP2ServerConnectionFactory connectionFactory = new RawHTTP2ServerConnectionFactory(new HttpConfiguration(), (stream, request, content, callback) ->
+        {
+            handled.incrementAndGet();
+            MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, HttpStatus.OK_200, new HttpFields());
+            ByteBuffer echo = ByteBuffer.wrap(BufferUtil.toArray(content));
+            callback.succeeded();
+            stream.headers(new HeadersFrame(stream.getId(), response, null, false), new Callback()
+            {
+                @Override
+                public void succeeded()
+                {
+                    stream.data(new DataFrame(stream.getId(), echo, true), Callback.NOOP);
+                }
+            });
+        });
+        connectionFactory.setMaxContentLength(1024);
+        prepareServer(connectionFactory);
+        server.start();
+        prepareClient();
+        client.start();
+
+        Session session = newClient(new Session.Listener.Adapter());
+
+        byte[] content = new byte[768];
+        new Random().nextBytes(content);
+        FuturePromise<Stream> promise = new FuturePromise<>();
+        ByteBuffer received = ByteBuffer.allocate(content.length);
+        CountDownLatch latch = new CountDownLatch(1);
+        session.newStream(new HeadersFrame(newRequest("POST", new HttpFields()), null, false), promise, new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onData(Stream stream, DataFrame frame, Callback callback)
+            {
+                received.put(frame.getData());
+                callback.succeeded();
+                if (frame.isEndStream())
+                    latch.countDown();
+            }
+        });
+        Stream stream = promise.get(5, TimeUnit.SECONDS);
+        // Send the content in two frames, so that it is aggregated.
+        stream.data(new DataFrame(stream.getId(), ByteBuffer.wrap(content, 0, 512), false), new Callback()
+        {
+            @Override
+            public void succeeded()
+            {
+                stream.data(new DataFrame(stream.getId(), ByteBuffer.wrap(content, 512, content.length - 512), true), Callback.NOOP);
+            }
+        });
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertArrayEquals(content, received.array());
+
+        // Content larger than the max content length is rejected,
+        // and the stream reset so that the client stops sending it.
+        CountDownLatch rejectLatch = new CountDownLatch(1);
+        CountDownLatch resetLatch = new CountDownLatch(1);
+        FuturePromise<Stream> rejectPromise = new FuturePromise<>();
+        session.newStream(new HeadersFrame(newRequest("POST", new HttpFields()), null, false), rejectPromise, new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onHeaders(Stream stream, HeadersFrame frame)
+            {
+                MetaData.Response response = (MetaData.Response)frame.getMetaData();
+                if (response.getStatus() == HttpStatus.PAYLOAD_TOO_LARGE_413)
+                    rejectLatch.countDown();
+            }
+
+            @Override
+            public void onReset(Stream stream, ResetFrame frame)
+            {
+                if (frame.getError() == ErrorCode.NO_ERROR.code)
+                    resetLatch.countDown();
+            }
+        });
+        Stream rejectStream = rejectPromise.get(5, TimeUnit.SECONDS);
+        rejectStream.data(new DataFrame(rejectStream.getId(), ByteBuffer.allocate(2048), false), Callback.NOOP);
+        Assert.assertTrue(rejectLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(resetLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(rejectStream.isReset());
+
+        // No more content is accepted on the reset stream.
+        FutureCallback dataCallback = new FutureCallback();
+        rejectStream.data(new DataFrame(rejectStream.getId(), ByteBuffer.allocate(512), true), dataCallback);
+        try
+        {
+            dataCallback.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        }
+        catch (ExecutionException x)
+        {
+            // Expected.
+        }
+        Assert.assertEquals(1, handled.get());
+    }
+
     private static void sleep(long time)
     {
         try
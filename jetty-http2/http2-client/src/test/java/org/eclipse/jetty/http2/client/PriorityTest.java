@@ -20,10 +20,12 @@ package org.eclipse.jetty.http2.client;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.IStream;
 import org.eclipse.jetty.http2.api.Session;
 import org.eclipse.jetty.http2.api.Stream;
 import org.eclipse.jetty.http2.api.server.ServerSessionListener;
@@ -181,4 +183,39 @@ public class PriorityTest extends AbstractTest
 
         Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
     }
+
+    @Test
+    public void testPriorityUpdatesStreamWeight() throws Exception
+    {
+        AtomicReference<IStream> serverStreamRef = new AtomicReference<>();
+        CountDownLatch serverLatch = new CountDownLatch(1);
+        start(new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                serverStreamRef.set((IStream)stream);
+                serverLatch.countDown();
+                return null;
+            }
+        });
+
+        Session session = newClient(new Session.Listener.Adapter());
+        MetaData metaData = newRequest("GET", new HttpFields());
+        HeadersFrame headersFrame = new HeadersFrame(metaData, new PriorityFrame(0, 64, false), false);
+        FuturePromise<Stream> promise = new FuturePromise<>();
+        session.newStream(headersFrame, promise, new Stream.Listener.Adapter());
+        Stream stream = promise.get(5, TimeUnit.SECONDS);
+
+        Assert.assertTrue(serverLatch.await(5, TimeUnit.SECONDS));
+        IStream serverStream = serverStreamRef.get();
+        Assert.assertEquals(64, serverStream.getWeight());
+
+        session.priority(new PriorityFrame(stream.getId(), 0, 128, false), Callback.NOOP);
+
+        long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (serverStream.getWeight() != 128 && System.nanoTime() < timeout)
+            Thread.sleep(10);
+        Assert.assertEquals(128, serverStream.getWeight());
+    }
 }
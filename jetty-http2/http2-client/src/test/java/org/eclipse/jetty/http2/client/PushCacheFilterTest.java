@@ -25,6 +25,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.servlet.DispatcherType;
 import javax.servlet.ServletException;
@@ -48,16 +50,33 @@ import org.eclipse.jetty.http2.frames.HeadersFrame;
 import org.eclipse.jetty.http2.frames.PushPromiseFrame;
 import org.eclipse.jetty.http2.frames.ResetFrame;
 import org.eclipse.jetty.http2.frames.SettingsFrame;
+import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.PushCacheDigest;
+import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlets.PushCacheFilter;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.Promise;
+import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Test;
 
 public class PushCacheFilterTest extends AbstractTest
 {
     private String contextPath = "/push";
+    private boolean pushCacheDigest;
+
+    @Override
+    protected void prepareServer(ConnectionFactory... connectionFactories)
+    {
+        for (ConnectionFactory connectionFactory : connectionFactories)
+        {
+            if (connectionFactory instanceof HTTP2ServerConnectionFactory)
+                ((HTTP2ServerConnectionFactory)connectionFactory).getHttpConfiguration().setPushCacheDigest(pushCacheDigest);
+        }
+        super.prepareServer(connectionFactories);
+    }
 
     @Override
     protected void customizeContext(ServletContextHandler context)
@@ -1008,4 +1027,268 @@ public class PushCacheFilterTest extends AbstractTest
         Assert.assertFalse(pushLatch.await(1, TimeUnit.SECONDS));
         Assert.assertTrue(primaryResponseLatch.await(5, TimeUnit.SECONDS));
     }
+
+    @Test
+    public void testPushCacheDigestSkipsResourcesHeldByClient() throws Exception
+    {
+        pushCacheDigest = true;
+        final String primaryResource = "/primary.html";
+        final String secondaryResource = "/secondary.png";
+        start(new HttpServlet()
+        {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException
+            {
+                String requestURI = req.getRequestURI();
+                ServletOutputStream output = resp.getOutputStream();
+                if (requestURI.endsWith(primaryResource))
+                    output.print("<html><head></head><body>PRIMARY</body></html>");
+                else if (requestURI.endsWith(secondaryResource))
+                    output.write("SECONDARY".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        final Session session = newClient(new Session.Listener.Adapter());
+
+        // Request for the primary and secondary resource to build the cache.
+        final String referrerURI = newURI(primaryResource);
+        MetaData.Request primaryRequest = newRequest("GET", primaryResource, new HttpFields());
+        final CountDownLatch warmupLatch = new CountDownLatch(1);
+        session.newStream(new HeadersFrame(primaryRequest, null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onData(Stream stream, DataFrame frame, Callback callback)
+            {
+                callback.succeeded();
+                if (frame.isEndStream())
+                {
+                    HttpFields secondaryFields = new HttpFields();
+                    secondaryFields.put(HttpHeader.REFERER, referrerURI);
+                    MetaData.Request secondaryRequest = newRequest("GET", secondaryResource, secondaryFields);
+                    session.newStream(new HeadersFrame(secondaryRequest, null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter()
+                    {
+                        @Override
+                        public void onData(Stream stream, DataFrame frame, Callback callback)
+                        {
+                            callback.succeeded();
+                            warmupLatch.countDown();
+                        }
+                    });
+                }
+            }
+        });
+        Assert.assertTrue(warmupLatch.await(5, TimeUnit.SECONDS));
+
+        // The secondary resource is pushed and recorded in the digest cookie.
+        AtomicReference<String> digest = new AtomicReference<>();
+        CountDownLatch pushLatch = new CountDownLatch(1);
+        CountDownLatch responseLatch = new CountDownLatch(1);
+        session.newStream(new HeadersFrame(newRequest("GET", primaryResource, new HttpFields()), null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onHeaders(Stream stream, HeadersFrame frame)
+            {
+                for (String setCookie : frame.getMetaData().getFields().getValuesList(HttpHeader.SET_COOKIE))
+                {
+                    if (setCookie.startsWith(PushCacheDigest.COOKIE_NAME + "="))
+                        digest.set(setCookie.substring(0, setCookie.indexOf(';')));
+                }
+            }
+
+            @Override
+            public void onData(Stream stream, DataFrame frame, Callback callback)
+            {
+                callback.succeeded();
+                if (frame.isEndStream())
+                    responseLatch.countDown();
+            }
+
+            @Override
+            public Stream.Listener onPush(Stream stream, PushPromiseFrame frame)
+            {
+                pushLatch.countDown();
+                return null;
+            }
+        });
+        Assert.assertTrue(pushLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(responseLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertNotNull(digest.get());
+
+        // With the digest, the secondary resource is not pushed again.
+        HttpFields fields = new HttpFields();
+        fields.put(HttpHeader.COOKIE, digest.get());
+        CountDownLatch noPushLatch = new CountDownLatch(1);
+        CountDownLatch digestResponseLatch = new CountDownLatch(1);
+        session.newStream(new HeadersFrame(newRequest("GET", primaryResource, fields), null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onData(Stream stream, DataFrame frame, Callback callback)
+            {
+                callback.succeeded();
+                if (frame.isEndStream())
+                    digestResponseLatch.countDown();
+            }
+
+            @Override
+            public Stream.Listener onPush(Stream stream, PushPromiseFrame frame)
+            {
+                noPushLatch.countDown();
+                return null;
+            }
+        });
+        Assert.assertTrue(digestResponseLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(noPushLatch.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPushCacheDigestWithManyResources() throws Exception
+    {
+        pushCacheDigest = true;
+        final String primaryResource = "/primary.html";
+        final String secondaryResource = "/secondary.png";
+        final int resources = 150;
+        start(new HttpServlet()
+        {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException
+            {
+                String requestURI = req.getRequestURI();
+                ServletOutputStream output = resp.getOutputStream();
+                if (requestURI.endsWith(primaryResource))
+                {
+                    // The resources only differ by their query.
+                    int round = Integer.parseInt(req.getParameter("round"));
+                    for (int i = 0; i < resources; ++i)
+                    {
+                        Request.getBaseRequest(req).getPushBuilder()
+                                .path(contextPath + servletPath + secondaryResource + "?id=" + (round * resources + i))
+                                .push();
+                    }
+                    output.print("<html><head></head><body>PRIMARY</body></html>");
+                }
+                else if (requestURI.endsWith(secondaryResource))
+                {
+                    output.write("SECONDARY".getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        });
+
+        final Session session = newClient(new Session.Listener.Adapter());
+
+        // Each round pushes new resources, carrying the digest of the previous rounds.
+        AtomicReference<String> digest = new AtomicReference<>();
+        for (int round = 0; round < 3; ++round)
+        {
+            HttpFields fields = new HttpFields();
+            if (digest.get() != null)
+                fields.put(HttpHeader.COOKIE, digest.get());
+            AtomicInteger pushes = new AtomicInteger();
+            CountDownLatch responseLatch = new CountDownLatch(1);
+            session.newStream(new HeadersFrame(newRequest("GET", primaryResource + "?round=" + round, fields), null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter()
+            {
+                @Override
+                public void onHeaders(Stream stream, HeadersFrame frame)
+                {
+                    for (String setCookie : frame.getMetaData().getFields().getValuesList(HttpHeader.SET_COOKIE))
+                    {
+                        if (setCookie.startsWith(PushCacheDigest.COOKIE_NAME + "="))
+                            digest.set(setCookie.substring(0, setCookie.indexOf(';')));
+                    }
+                }
+
+                @Override
+                public void onData(Stream stream, DataFrame frame, Callback callback)
+                {
+                    callback.succeeded();
+                    if (frame.isEndStream())
+                        responseLatch.countDown();
+                }
+
+                @Override
+                public Stream.Listener onPush(Stream stream, PushPromiseFrame frame)
+                {
+                    pushes.incrementAndGet();
+                    return new Adapter()
+                    {
+                        @Override
+                        public void onData(Stream stream, DataFrame frame, Callback callback)
+                        {
+                            callback.succeeded();
+                        }
+                    };
+                }
+            });
+            Assert.assertTrue(responseLatch.await(5, TimeUnit.SECONDS));
+            Assert.assertNotNull(digest.get());
+            // The digest does not fill up, so new resources keep being pushed.
+            Assert.assertThat(pushes.get(), Matchers.greaterThan(resources * 3 / 4));
+        }
+    }
+
+    @Test
+    public void testPushCacheDigestDoesNotRecordSkippedPushes() throws Exception
+    {
+        pushCacheDigest = true;
+        final String primaryResource = "/primary.html";
+        final String secondaryResource = "/secondary.png";
+        start(new HttpServlet()
+        {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException
+            {
+                String requestURI = req.getRequestURI();
+                ServletOutputStream output = resp.getOutputStream();
+                if (requestURI.endsWith(primaryResource))
+                {
+                    Request.getBaseRequest(req).getPushBuilder()
+                            .path(contextPath + servletPath + secondaryResource)
+                            .push();
+                    output.print("<html><head></head><body>PRIMARY</body></html>");
+                }
+                else if (requestURI.endsWith(secondaryResource))
+                {
+                    output.write("SECONDARY".getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        });
+        // No push is worthwhile, so none is sent.
+        connector.getConnectionFactory(HTTP2ServerConnectionFactory.class).setMaxPushBytes(0);
+
+        final Session session = newClient(new Session.Listener.Adapter());
+
+        AtomicReference<String> digest = new AtomicReference<>();
+        CountDownLatch pushLatch = new CountDownLatch(1);
+        CountDownLatch responseLatch = new CountDownLatch(1);
+        session.newStream(new HeadersFrame(newRequest("GET", primaryResource, new HttpFields()), null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onHeaders(Stream stream, HeadersFrame frame)
+            {
+                for (String setCookie : frame.getMetaData().getFields().getValuesList(HttpHeader.SET_COOKIE))
+                {
+                    if (setCookie.startsWith(PushCacheDigest.COOKIE_NAME + "="))
+                        digest.set(setCookie);
+                }
+            }
+
+            @Override
+            public void onData(Stream stream, DataFrame frame, Callback callback)
+            {
+                callback.succeeded();
+                if (frame.isEndStream())
+                    responseLatch.countDown();
+            }
+
+            @Override
+            public Stream.Listener onPush(Stream stream, PushPromiseFrame frame)
+            {
+                pushLatch.countDown();
+                return null;
+            }
+        });
+        Assert.assertTrue(responseLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(pushLatch.await(1, TimeUnit.SECONDS));
+        // The resource that was not pushed is not recorded in the digest.
+        Assert.assertNull(digest.get());
+    }
 }
@@ -38,9 +38,15 @@ import org.eclipse.jetty.http2.frames.DataFrame;
 import org.eclipse.jetty.http2.frames.HeadersFrame;
 import org.eclipse.jetty.http2.frames.PushPromiseFrame;
 import org.eclipse.jetty.http2.frames.ResetFrame;
+import org.eclipse.jetty.http2.server.HTTP2ServerSession;
+import org.eclipse.jetty.http2.server.RawHTTP2ServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.FuturePromise;
 import org.eclipse.jetty.util.Promise;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.Sweeper;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -359,4 +365,54 @@ public class StreamCloseTest extends AbstractTest
         for (Stream stream : streams)
             Assert.assertTrue(stream.isClosed());
     }
+
+    @Test
+    public void testIdleHalfClosedStreamIsReaped() throws Exception
+    {
+        AtomicReference<HTTP2ServerSession> serverSessionRef = new AtomicReference<>();
+        RawHTTP2ServerConnectionFactory connectionFactory = new RawHTTP2ServerConnectionFactory(new HttpConfiguration(), new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                serverSessionRef.set((HTTP2ServerSession)stream.getSession());
+                // Reply without waiting for the request content.
+                MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, 200, new HttpFields());
+                stream.headers(new HeadersFrame(stream.getId(), response, null, true), Callback.NOOP);
+                return null;
+            }
+        });
+        connectionFactory.setHalfClosedStreamIdleTimeout(500);
+        prepareServer(connectionFactory);
+        Scheduler scheduler = new ScheduledExecutorScheduler();
+        server.addBean(scheduler);
+        server.addBean(new Sweeper(scheduler, 250));
+        server.start();
+        prepareClient();
+        client.start();
+
+        Session session = newClient(new Session.Listener.Adapter());
+        CountDownLatch resetLatch = new CountDownLatch(1);
+        HeadersFrame frame = new HeadersFrame(newRequest("POST", new HttpFields()), null, false);
+        session.newStream(frame, new Promise.Adapter<>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onReset(Stream stream, ResetFrame frame)
+            {
+                if (frame.getError() == ErrorCode.NO_ERROR.code)
+                    resetLatch.countDown();
+            }
+        });
+
+        // The client never completes the request, so the stream is reaped.
+        Assert.assertTrue(resetLatch.await(5, TimeUnit.SECONDS));
+        HTTP2ServerSession serverSession = serverSessionRef.get();
+        Assert.assertEquals(1, serverSession.getReapedStreamCount());
+        // The stream is removed when the reset has been written,
+        // which may happen after the client has received it.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!serverSession.getStreams().isEmpty() && System.nanoTime() < deadline)
+            Thread.sleep(10);
+        Assert.assertTrue(serverSession.getStreams().isEmpty());
+    }
 }
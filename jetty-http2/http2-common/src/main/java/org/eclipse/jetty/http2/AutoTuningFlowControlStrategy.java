@@ -0,0 +1,289 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.http2;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.http2.frames.PingFrame;
+import org.eclipse.jetty.http2.frames.SettingsFrame;
+import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+
+/**
+ * <p>A {@link BufferingFlowControlStrategy} that grows the receive windows
+ * toward the bandwidth-delay product of the connection.</p>
+ * <p>While data is being received, one PING frame at a time is sent to the
+ * other peer; the bytes received until the PING reply arrives are a sample
+ * of the bandwidth-delay product.
+ * When a sample fills most of the current stream receive window and the
+ * measured bandwidth is the highest seen so far, the window is the bottleneck:
+ * the session receive window is enlarged with a WINDOW_UPDATE frame and the
+ * stream receive window with a SETTINGS_INITIAL_WINDOW_SIZE frame, both to
+ * twice the sample.</p>
+ * <p>Windows never grow beyond {@link #getMaxRecvWindow() maxRecvWindow}.
+ * Strategies created by the same {@link Factory}, typically one per connector,
+ * also share a memory budget: the growth of the session receive windows of
+ * all their sessions never exceeds {@link Factory#getMaxMemory() maxMemory},
+ * and is returned to the budget when the session is disconnected.</p>
+ */
+@ManagedObject
+public class AutoTuningFlowControlStrategy extends BufferingFlowControlStrategy
+{
+    public static final int DEFAULT_MAX_RECV_WINDOW = 16 * 1024 * 1024;
+
+    private final AtomicBoolean pinging = new AtomicBoolean();
+    private final AtomicInteger sample = new AtomicInteger();
+    private final AtomicLong reserved = new AtomicLong();
+    private final int maxRecvWindow;
+    private final Factory factory;
+    private volatile long pingPayload;
+    private volatile long pingTime;
+    private volatile long rtt;
+    private volatile double bandwidth;
+    private volatile int streamRecvWindow;
+    private volatile int sessionRecvWindow;
+
+    public AutoTuningFlowControlStrategy(float bufferRatio)
+    {
+        this(bufferRatio, DEFAULT_MAX_RECV_WINDOW);
+    }
+
+    public AutoTuningFlowControlStrategy(float bufferRatio, int maxRecvWindow)
+    {
+        this(bufferRatio, maxRecvWindow, null);
+    }
+
+    private AutoTuningFlowControlStrategy(float bufferRatio, int maxRecvWindow, Factory factory)
+    {
+        super(bufferRatio);
+        this.maxRecvWindow = maxRecvWindow;
+        this.factory = factory;
+    }
+
+    @ManagedAttribute(value = "The max size of the flow control receive windows", readonly = true)
+    public int getMaxRecvWindow()
+    {
+        return maxRecvWindow;
+    }
+
+    @ManagedAttribute(value = "The last measured round trip time in ms", readonly = true)
+    public long getRoundTripTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(rtt);
+    }
+
+    @ManagedAttribute(value = "The max measured bandwidth in bytes/s", readonly = true)
+    public long getBandwidth()
+    {
+        return (long)(bandwidth * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @ManagedAttribute(value = "The bytes reserved from the memory budget", readonly = true)
+    public long getReservedMemory()
+    {
+        return reserved.get();
+    }
+
+    @Override
+    public void onDataReceived(ISession session, IStream stream, int length)
+    {
+        super.onDataReceived(session, stream, length);
+
+        if (length <= 0)
+            return;
+
+        if (pinging.get())
+        {
+            sample.addAndGet(length);
+            return;
+        }
+
+        if (streamRecvWindow() >= maxRecvWindow)
+            return;
+
+        if (pinging.compareAndSet(false, true))
+        {
+            sample.set(length);
+            long payload = ThreadLocalRandom.current().nextLong();
+            pingPayload = payload;
+            pingTime = System.nanoTime();
+            if (LOG.isDebugEnabled())
+                LOG.debug("Sending BDP ping {} for {}", payload, session);
+            session.ping(new PingFrame(payload, false), Callback.NOOP);
+        }
+    }
+
+    @Override
+    public boolean onPingReply(ISession session, PingFrame frame)
+    {
+        if (!pinging.get() || frame.getPayloadAsLong() != pingPayload)
+            return false;
+
+        long elapsed = Math.max(1, System.nanoTime() - pingTime);
+        int bytes = sample.get();
+        rtt = elapsed;
+        double sampleBandwidth = (double)bytes / elapsed;
+        if (LOG.isDebugEnabled())
+            LOG.debug("BDP sample {} bytes in {} ns for {}", bytes, elapsed, session);
+
+        if (sampleBandwidth > bandwidth)
+        {
+            bandwidth = sampleBandwidth;
+            int streamWindow = streamRecvWindow();
+            // The sample filled most of the window: the window limits the throughput.
+            if (bytes >= streamWindow * 2 / 3)
+                grow(session, (int)Math.min(maxRecvWindow, 2L * bytes));
+        }
+
+        pinging.set(false);
+        return true;
+    }
+
+    private void grow(ISession session, int window)
+    {
+        int streamWindow = streamRecvWindow();
+        int sessionWindow = Math.max(sessionRecvWindow, getMaxSessionRecvWindow());
+
+        int sessionDelta = 0;
+        if (window > sessionWindow)
+        {
+            sessionDelta = (int)reserve(window - sessionWindow);
+            window = Math.min(window, sessionWindow + sessionDelta);
+        }
+
+        if (sessionDelta > 0)
+        {
+            sessionRecvWindow = sessionWindow + sessionDelta;
+            session.updateRecvWindow(sessionDelta);
+            if (LOG.isDebugEnabled())
+                LOG.debug("BDP growing session recv window {} -> {} for {}", sessionWindow, sessionWindow + sessionDelta, session);
+            session.frames(null, Callback.NOOP, new WindowUpdateFrame(0, sessionDelta));
+        }
+
+        if (window > streamWindow)
+        {
+            streamRecvWindow = window;
+            if (LOG.isDebugEnabled())
+                LOG.debug("BDP growing initial stream recv window {} -> {} for {}", streamWindow, window, session);
+            session.settings(new SettingsFrame(Collections.singletonMap(SettingsFrame.INITIAL_WINDOW_SIZE, window), false), Callback.NOOP);
+        }
+    }
+
+    private int streamRecvWindow()
+    {
+        return Math.max(streamRecvWindow, getInitialStreamRecvWindow());
+    }
+
+    private long reserve(long bytes)
+    {
+        long granted = factory == null ? bytes : factory.reserve(bytes);
+        reserved.addAndGet(granted);
+        return granted;
+    }
+
+    @Override
+    public void onSessionDisconnected(ISession session)
+    {
+        long bytes = reserved.getAndSet(0);
+        if (bytes > 0 && factory != null)
+            factory.release(bytes);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[ratio=%.2f,window=%d,rtt=%dms,sessionStallTime=%dms,streamsStallTime=%dms]",
+                getClass().getSimpleName(),
+                hashCode(),
+                getBufferRatio(),
+                streamRecvWindow(),
+                getRoundTripTime(),
+                getSessionStallTime(),
+                getStreamsStallTime());
+    }
+
+    /**
+     * <p>Creates {@link AutoTuningFlowControlStrategy} instances that share
+     * a memory budget for the growth of their receive windows.</p>
+     */
+    @ManagedObject
+    public static class Factory implements FlowControlStrategy.Factory
+    {
+        private final AtomicLong memory = new AtomicLong();
+        private final float bufferRatio;
+        private final int maxRecvWindow;
+        private final long maxMemory;
+
+        public Factory(float bufferRatio, long maxMemory)
+        {
+            this(bufferRatio, DEFAULT_MAX_RECV_WINDOW, maxMemory);
+        }
+
+        public Factory(float bufferRatio, int maxRecvWindow, long maxMemory)
+        {
+            this.bufferRatio = bufferRatio;
+            this.maxRecvWindow = maxRecvWindow;
+            this.maxMemory = maxMemory;
+        }
+
+        @ManagedAttribute(value = "The max bytes the receive windows may grow by, across all sessions", readonly = true)
+        public long getMaxMemory()
+        {
+            return maxMemory;
+        }
+
+        @ManagedAttribute(value = "The bytes the receive windows have grown by, across all sessions", readonly = true)
+        public long getMemory()
+        {
+            return memory.get();
+        }
+
+        @Override
+        public FlowControlStrategy newFlowControlStrategy()
+        {
+            return new AutoTuningFlowControlStrategy(bufferRatio, maxRecvWindow, this);
+        }
+
+        private long reserve(long bytes)
+        {
+            while (true)
+            {
+                long current = memory.get();
+                long granted = Math.min(bytes, maxMemory - current);
+                if (granted <= 0)
+                    return 0;
+                if (memory.compareAndSet(current, current + granted))
+                    return granted;
+            }
+        }
+
+        private void release(long bytes)
+        {
+            memory.addAndGet(-bytes);
+        }
+    }
+}
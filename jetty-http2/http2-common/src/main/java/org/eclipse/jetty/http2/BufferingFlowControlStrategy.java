@@ -81,6 +81,11 @@ public class BufferingFlowControlStrategy extends AbstractFlowControlStrategy
         this.bufferRatio = bufferRatio;
     }
 
+    protected int getMaxSessionRecvWindow()
+    {
+        return maxSessionRecvWindow.get();
+    }
+
     @Override
     public void onStreamCreated(IStream stream)
     {
@@ -18,6 +18,7 @@
 
 package org.eclipse.jetty.http2;
 
+import org.eclipse.jetty.http2.frames.PingFrame;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
 
 public interface FlowControlStrategy
@@ -42,6 +43,31 @@ public interface FlowControlStrategy
 
     public void onDataSent(IStream stream, int length);
 
+    /**
+     * <p>Invoked when a PING reply is received.</p>
+     * <p>Strategies that measure the round trip time by sending their own
+     * PING frames return {@code true} for the replies to those frames,
+     * so that they are not notified to the application.</p>
+     *
+     * @param session the session that received the PING reply
+     * @param frame the PING reply frame
+     * @return whether the PING reply was consumed by this strategy
+     */
+    public default boolean onPingReply(ISession session, PingFrame frame)
+    {
+        return false;
+    }
+
+    /**
+     * <p>Invoked when the session is disconnected.</p>
+     * <p>This method may be invoked more than once.</p>
+     *
+     * @param session the session being disconnected
+     */
+    public default void onSessionDisconnected(ISession session)
+    {
+    }
+
     public interface Factory
     {
         public FlowControlStrategy newFlowControlStrategy();
@@ -24,28 +24,53 @@ import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jetty.http2.frames.Frame;
+import org.eclipse.jetty.http2.frames.PriorityFrame;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.EofException;
+import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.IteratingCallback;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
+/**
+ * <p>Serializes the frames of a session into writes.</p>
+ * <p>Frames are queued without locking by any thread, and are scheduled by the
+ * flushing thread. Newly queued frames are generated ahead of the DATA frames
+ * still being sent, then streams with DATA remaining take turns, each turn
+ * generating a number of DATA frames proportional to the stream weight.
+ * A write is limited to {@link #MAX_WRITE_SIZE} bytes, so that frames queued
+ * while a large download is in progress are not delayed behind it.</p>
+ * <p>Small frame buffers, such as frame headers and the DATA frames of many
+ * concurrent small responses, are copied into pooled buffers of
+ * {@link HTTP2Session#getOutputAggregationSize() outputAggregationSize} bytes,
+ * so that a write gathers few large buffers rather than many tiny ones.</p>
+ */
 public class HTTP2Flusher extends IteratingCallback
 {
     private static final Logger LOG = Log.getLogger(HTTP2Flusher.class);
-
-    private final Queue<WindowEntry> windows = new ArrayDeque<>();
-    private final Deque<Entry> frames = new ArrayDeque<>();
-    private final Queue<Entry> entries = new ArrayDeque<>();
+    public static final int MAX_WRITE_SIZE = 64 * 1024;
+
+    private final Queue<WindowEntry> windows = new ConcurrentLinkedQueue<>();
+    private final Deque<Entry> frames = new ConcurrentLinkedDeque<>();
+    private final AtomicReference<Throwable> terminated = new AtomicReference<>();
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final List<Entry> queued = new ArrayList<>();
+    private final List<Entry> stalled = new ArrayList<>();
     private final List<Entry> actives = new ArrayList<>();
+    private final List<ByteBuffer> aggregates = new ArrayList<>();
+    private final List<ByteBuffer> writes = new ArrayList<>();
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong frameCount = new AtomicLong();
     private final HTTP2Session session;
     private final ByteBufferPool.Lease lease;
-    private Entry stalled;
-    private Throwable terminated;
 
     public HTTP2Flusher(HTTP2Session session)
     {
@@ -55,62 +80,66 @@ public class HTTP2Flusher extends IteratingCallback
 
     public void window(IStream stream, WindowUpdateFrame frame)
     {
-        Throwable closed;
-        synchronized (this)
+        if (terminated.get() == null)
         {
-            closed = terminated;
-            if (closed == null)
-                windows.offer(new WindowEntry(stream, frame));
-        }
-        // Flush stalled data.
-        if (closed == null)
+            windows.offer(new WindowEntry(stream, frame));
+            // Flush stalled data.
             iterate();
+        }
     }
 
     public boolean prepend(Entry entry)
     {
-        Throwable closed;
-        synchronized (this)
+        Throwable closed = terminated.get();
+        if (closed == null)
         {
-            closed = terminated;
-            if (closed == null)
-            {
-                frames.offerFirst(entry);
-                if (LOG.isDebugEnabled())
-                    LOG.debug("Prepended {}, frames={}", entry, frames.size());
-            }
+            frames.offerFirst(entry);
+            if (LOG.isDebugEnabled())
+                LOG.debug("Prepended {}", entry);
+            if (!removeIfTerminated(entry))
+                return true;
+            closed = terminated.get();
         }
-        if (closed == null)
-            return true;
         closed(entry, closed);
         return false;
     }
 
     public boolean append(Entry entry)
     {
-        Throwable closed;
-        synchronized (this)
+        Throwable closed = terminated.get();
+        if (closed == null)
         {
-            closed = terminated;
-            if (closed == null)
-            {
-                frames.offer(entry);
-                if (LOG.isDebugEnabled())
-                    LOG.debug("Appended {}, frames={}", entry, frames.size());
-            }
+            frames.offer(entry);
+            if (LOG.isDebugEnabled())
+                LOG.debug("Appended {}", entry);
+            if (!removeIfTerminated(entry))
+                return true;
+            closed = terminated.get();
         }
-        if (closed == null)
-            return true;
         closed(entry, closed);
         return false;
     }
 
+    private boolean removeIfTerminated(Entry entry)
+    {
+        // If the flusher terminated concurrently, either it has already
+        // taken the entry to fail it, or the entry must be failed here.
+        return terminated.get() != null && frames.remove(entry);
+    }
+
     public int getQueueSize()
     {
-        synchronized (this)
-        {
-            return frames.size();
-        }
+        return frames.size();
+    }
+
+    public long getWriteCount()
+    {
+        return writeCount.get();
+    }
+
+    public long getFrameCount()
+    {
+        return frameCount.get();
     }
 
     @Override
@@ -119,28 +148,25 @@ public class HTTP2Flusher extends IteratingCallback
         if (LOG.isDebugEnabled())
             LOG.debug("Flushing {}", session);
 
-        synchronized (this)
-        {
-            if (terminated != null)
-                throw terminated;
+        Throwable closed = terminated.get();
+        if (closed != null)
+            throw closed;
 
-            while (!windows.isEmpty())
-            {
-                WindowEntry entry = windows.poll();
-                entry.perform();
-            }
+        WindowEntry window;
+        while ((window = windows.poll()) != null)
+            window.perform();
 
-            if (!frames.isEmpty())
-            {
-                for (Entry entry : frames)
-                {
-                    entries.offer(entry);
-                    actives.add(entry);
-                }
-                frames.clear();
-            }
-        }
+        // Newly queued frames go ahead of the DATA frames in progress.
+        Entry entry;
+        while ((entry = frames.poll()) != null)
+            queued.add(entry);
+        for (int i = queued.size(); i-- > 0;)
+            entries.offerFirst(queued.get(i));
+        queued.clear();
 
+        // Stalled entries try again, after the window updates.
+        entries.addAll(stalled);
+        stalled.clear();
 
         if (entries.isEmpty())
         {
@@ -149,12 +175,20 @@ public class HTTP2Flusher extends IteratingCallback
             return Action.IDLE;
         }
 
-        while (!entries.isEmpty())
+        long length = 0;
+        int buffers = 0;
+        int generated = 0;
+        while (length < MAX_WRITE_SIZE && (entry = entries.poll()) != null)
         {
-            Entry entry = entries.poll();
             if (LOG.isDebugEnabled())
                 LOG.debug("Processing {}", entry);
 
+            if (!entry.active)
+            {
+                entry.active = true;
+                actives.add(entry);
+            }
+
             // If the stream has been reset, don't send the frame.
             if (entry.reset())
             {
@@ -165,15 +199,28 @@ public class HTTP2Flusher extends IteratingCallback
 
             try
             {
-                if (entry.generate(lease))
+                int turns = entry.turns();
+                while (true)
                 {
-                    if (entry.dataRemaining() > 0)
+                    if (!entry.generate(lease))
+                    {
+                        stalled.add(entry);
+                        break;
+                    }
+                    ++generated;
+
+                    List<ByteBuffer> byteBuffers = lease.getByteBuffers();
+                    for (; buffers < byteBuffers.size(); ++buffers)
+                        length += byteBuffers.get(buffers).remaining();
+
+                    if (entry.dataRemaining() == 0)
+                        break;
+                    if (--turns == 0 || length >= MAX_WRITE_SIZE)
+                    {
+                        // Let the other streams have their turn.
                         entries.offer(entry);
-                }
-                else
-                {
-                    if (stalled == null)
-                        stalled = entry;
+                        break;
+                    }
                 }
             }
             catch (Throwable failure)
@@ -193,12 +240,58 @@ public class HTTP2Flusher extends IteratingCallback
             return Action.IDLE;
         }
 
+        ByteBuffer[] buffersToWrite = aggregate(byteBuffers);
+        writeCount.incrementAndGet();
+        frameCount.addAndGet(generated);
+
         if (LOG.isDebugEnabled())
-            LOG.debug("Writing {} buffers ({} bytes) for {} frames {}", byteBuffers.size(), lease.getTotalLength(), actives.size(), actives);
-        session.getEndPoint().write(this, byteBuffers.toArray(new ByteBuffer[byteBuffers.size()]));
+            LOG.debug("Writing {} buffers ({} bytes) for {} frames {}", buffersToWrite.length, length, actives.size(), actives);
+        session.getEndPoint().write(this, buffersToWrite);
         return Action.SCHEDULED;
     }
 
+    private ByteBuffer[] aggregate(List<ByteBuffer> byteBuffers)
+    {
+        int size = session.getOutputAggregationSize();
+        if (size <= 0 || byteBuffers.size() == 1)
+            return byteBuffers.toArray(new ByteBuffer[byteBuffers.size()]);
+
+        // Buffers up to a quarter of the aggregation size are copied,
+        // larger ones are written as they are, preserving the order.
+        int threshold = size / 4;
+        ByteBufferPool byteBufferPool = session.getGenerator().getByteBufferPool();
+        ByteBuffer aggregate = null;
+        for (ByteBuffer buffer : byteBuffers)
+        {
+            int remaining = buffer.remaining();
+            if (remaining > threshold)
+            {
+                aggregate = null;
+                writes.add(buffer);
+                continue;
+            }
+            if (aggregate == null || BufferUtil.space(aggregate) < remaining)
+            {
+                aggregate = byteBufferPool.acquire(size, true);
+                aggregates.add(aggregate);
+                writes.add(aggregate);
+            }
+            BufferUtil.append(aggregate, buffer);
+        }
+        ByteBuffer[] result = writes.toArray(new ByteBuffer[writes.size()]);
+        writes.clear();
+        return result;
+    }
+
+    private void release()
+    {
+        lease.recycle();
+        ByteBufferPool byteBufferPool = session.getGenerator().getByteBufferPool();
+        for (ByteBuffer aggregate : aggregates)
+            byteBufferPool.release(aggregate);
+        aggregates.clear();
+    }
+
     @Override
     public void succeeded()
     {
@@ -212,32 +305,15 @@ public class HTTP2Flusher extends IteratingCallback
 
     private void complete()
     {
-        lease.recycle();
+        release();
 
-        actives.forEach(Entry::complete);
-
-        if (stalled != null)
+        // Entries with data remaining stay scheduled, and
+        // complete their callback only when all data is sent.
+        for (Entry entry : actives)
         {
-            // We have written part of the frame, but there is more to write.
-            // The API will not allow to send two data frames for the same
-            // stream so we append the unfinished frame at the end to allow
-            // better interleaving with other streams.
-            int index = actives.indexOf(stalled);
-            for (int i = index; i < actives.size(); ++i)
-            {
-                Entry entry = actives.get(i);
-                if (entry.dataRemaining() > 0)
-                    append(entry);
-            }
-            for (int i = 0; i < index; ++i)
-            {
-                Entry entry = actives.get(i);
-                if (entry.dataRemaining() > 0)
-                    append(entry);
-            }
-            stalled = null;
+            entry.active = false;
+            entry.complete();
         }
-
         actives.clear();
     }
 
@@ -250,21 +326,31 @@ public class HTTP2Flusher extends IteratingCallback
     @Override
     protected void onCompleteFailure(Throwable x)
     {
-        lease.recycle();
+        release();
 
-        Throwable closed;
-        synchronized (this)
+        Throwable closed = terminated.getAndSet(x);
+        if (LOG.isDebugEnabled())
+            LOG.debug("{}, active/scheduled/queued={}/{}/{}", closed != null ? "Closing" : "Failing", actives.size(), entries.size() + stalled.size(), frames.size());
+
+        List<Entry> failed = new ArrayList<>(actives);
+        for (Entry entry : entries)
         {
-            closed = terminated;
-            terminated = x;
-            if (LOG.isDebugEnabled())
-                LOG.debug("{}, active/queued={}/{}", closed != null ? "Closing" : "Failing", actives.size(), frames.size());
-            actives.addAll(frames);
-            frames.clear();
+            if (!entry.active)
+                failed.add(entry);
+        }
+        for (Entry entry : stalled)
+        {
+            if (!entry.active)
+                failed.add(entry);
         }
-
-        actives.forEach(entry -> entry.failed(x));
         actives.clear();
+        entries.clear();
+        stalled.clear();
+        Entry entry;
+        while ((entry = frames.poll()) != null)
+            failed.add(entry);
+
+        failed.forEach(e -> e.failed(x));
 
         // If the failure came from within the
         // flusher, we need to close the connection.
@@ -274,14 +360,9 @@ public class HTTP2Flusher extends IteratingCallback
 
     void terminate(Throwable cause)
     {
-        Throwable closed;
-        synchronized (this)
-        {
-            closed = terminated;
-            terminated = cause;
-            if (LOG.isDebugEnabled())
-                LOG.debug("{}", closed != null ? "Terminated" : "Terminating");
-        }
+        Throwable closed = terminated.getAndSet(cause);
+        if (LOG.isDebugEnabled())
+            LOG.debug("{}", closed != null ? "Terminated" : "Terminating");
         if (closed == null)
             iterate();
     }
@@ -296,6 +377,7 @@ public class HTTP2Flusher extends IteratingCallback
         protected final Frame frame;
         protected final IStream stream;
         private boolean reset;
+        private boolean active;
 
         protected Entry(Frame frame, IStream stream, Callback callback)
         {
@@ -311,6 +393,17 @@ public class HTTP2Flusher extends IteratingCallback
 
         protected abstract boolean generate(ByteBufferPool.Lease lease);
 
+        /**
+         * @return the number of frames that this entry may generate before
+         * the other streams have their turn, proportional to the stream weight
+         */
+        private int turns()
+        {
+            if (stream == null || dataRemaining() == 0)
+                return 1;
+            return Math.max(1, stream.getWeight() / PriorityFrame.DEFAULT_WEIGHT);
+        }
+
         private void complete()
         {
             if (reset)
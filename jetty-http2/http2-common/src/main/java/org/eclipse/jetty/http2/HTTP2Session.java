@@ -87,6 +87,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
     private int maxRemoteStreams;
     private long streamIdleTimeout;
     private int initialSessionRecvWindow;
+    private int outputAggregationSize = 16 * 1024;
     private boolean pushEnabled;
     private long idleTime;
 
@@ -189,6 +190,17 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         this.initialSessionRecvWindow = initialSessionRecvWindow;
     }
 
+    @ManagedAttribute("The size of the buffers small frames are aggregated into before writing")
+    public int getOutputAggregationSize()
+    {
+        return outputAggregationSize;
+    }
+
+    public void setOutputAggregationSize(int outputAggregationSize)
+    {
+        this.outputAggregationSize = outputAggregationSize;
+    }
+
     public EndPoint getEndPoint()
     {
         return endPoint;
@@ -276,6 +288,10 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
     {
         if (LOG.isDebugEnabled())
             LOG.debug("Received {}", frame);
+
+        IStream stream = getStream(frame.getStreamId());
+        if (stream != null)
+            stream.setWeight(frame.getWeight());
     }
 
     @Override
@@ -392,7 +408,8 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
 
         if (frame.isReply())
         {
-            notifyPing(this, frame);
+            if (!flowControl.onPingReply(this, frame))
+                notifyPing(this, frame);
         }
         else
         {
@@ -795,6 +812,37 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         return streams.get(streamId);
     }
 
+    @ManagedAttribute(value = "The number of writes", readonly = true)
+    public long getWriteCount()
+    {
+        return flusher.getWriteCount();
+    }
+
+    @ManagedAttribute(value = "The average number of frames per write", readonly = true)
+    public double getFramesPerWrite()
+    {
+        long writes = flusher.getWriteCount();
+        return writes == 0 ? 0 : (double)flusher.getFrameCount() / writes;
+    }
+
+    @ManagedAttribute(value = "The ratio of HPACK encoded to unencoded header bytes sent", readonly = true)
+    public double getHpackCompressionRatio()
+    {
+        return generator.getHpackEncoder().getCompressionRatio();
+    }
+
+    @ManagedAttribute(value = "The number of entries added to the HPACK encoder dynamic table", readonly = true)
+    public long getHpackDynamicTableInsertions()
+    {
+        return generator.getHpackEncoder().getHpackContext().getInsertions();
+    }
+
+    @ManagedAttribute(value = "The number of entries evicted from the HPACK encoder dynamic table", readonly = true)
+    public long getHpackDynamicTableEvictions()
+    {
+        return generator.getHpackEncoder().getHpackContext().getEvictions();
+    }
+
     @ManagedAttribute(value = "The flow control send window", readonly = true)
     public int getSendWindow()
     {
@@ -966,6 +1014,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
     {
         if (LOG.isDebugEnabled())
             LOG.debug("Disconnecting {}", this);
+        flowControl.onSessionDisconnected(this);
         endPoint.close();
     }
 
@@ -1272,12 +1321,13 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
             int length = Math.min(dataRemaining, window);
 
             // Only one DATA frame is generated.
-            bytes = generator.data(lease, (DataFrame)frame, length);
-            int written = bytes - Frame.HEADER_LENGTH;
+            int generated = generator.data(lease, (DataFrame)frame, length);
+            bytes += generated;
+            int written = generated - Frame.HEADER_LENGTH;
             if (LOG.isDebugEnabled())
                 LOG.debug("Generated {}, length/window/data={}/{}/{}", frame, written, window, dataRemaining);
 
-            this.dataWritten = written;
+            this.dataWritten += written;
             this.dataRemaining -= written;
 
             flowControl.onDataSending(stream, written);
@@ -1288,8 +1338,11 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         @Override
         public void succeeded()
         {
+            // The frames generated for this entry since the last write.
             bytesWritten.addAndGet(bytes);
             flowControl.onDataSent(stream, dataWritten);
+            bytes = 0;
+            dataWritten = 0;
 
             // Do we have more to send ?
             DataFrame dataFrame = (DataFrame)frame;
@@ -31,6 +31,7 @@ import org.eclipse.jetty.http2.api.Stream;
 import org.eclipse.jetty.http2.frames.DataFrame;
 import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PriorityFrame;
 import org.eclipse.jetty.http2.frames.PushPromiseFrame;
 import org.eclipse.jetty.http2.frames.ResetFrame;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
@@ -56,6 +57,7 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback
     private volatile Listener listener;
     private volatile boolean localReset;
     private volatile boolean remoteReset;
+    private volatile int weight = PriorityFrame.DEFAULT_WEIGHT;
 
     public HTTP2Stream(Scheduler scheduler, ISession session, int streamId, boolean local)
     {
@@ -158,6 +160,7 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback
         return closeState.get() == CloseState.REMOTELY_CLOSED;
     }
 
+    @Override
     public boolean isLocallyClosed()
     {
         return closeState.get() == CloseState.LOCALLY_CLOSED;
@@ -372,6 +375,18 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback
         return recvWindow.getAndAdd(delta);
     }
 
+    @Override
+    public int getWeight()
+    {
+        return weight;
+    }
+
+    @Override
+    public void setWeight(int weight)
+    {
+        this.weight = weight;
+    }
+
     @Override
     public void close()
     {
@@ -22,6 +22,7 @@ import java.io.Closeable;
 
 import org.eclipse.jetty.http2.api.Stream;
 import org.eclipse.jetty.http2.frames.Frame;
+import org.eclipse.jetty.http2.frames.PriorityFrame;
 import org.eclipse.jetty.util.Callback;
 
 /**
@@ -100,6 +101,27 @@ public interface IStream extends Stream, Closeable
      */
     public int updateRecvWindow(int delta);
 
+    /**
+     * @return the priority weight of this stream, between 1 and 256,
+     * by default {@link PriorityFrame#DEFAULT_WEIGHT}
+     * @see #setWeight(int)
+     */
+    public default int getWeight()
+    {
+        return PriorityFrame.DEFAULT_WEIGHT;
+    }
+
+    /**
+     * <p>Sets the priority weight of this stream, as received in a HEADERS or PRIORITY frame.</p>
+     * <p>Streams with a larger weight are given proportionally more DATA frames by the flusher.</p>
+     * <p>By default, the weight is ignored.</p>
+     *
+     * @param weight the priority weight of this stream
+     */
+    public default void setWeight(int weight)
+    {
+    }
+
     /**
      * <p>Marks this stream as not idle so that the
      * {@link #getIdleTimeout() idle timeout} is postponed.</p>
@@ -110,5 +132,23 @@ public interface IStream extends Stream, Closeable
      * @return whether the stream is closed remotely.
      * @see #isClosed()
      */
-    boolean isRemotelyClosed();
+    public boolean isRemotelyClosed();
+
+    /**
+     * @return whether the stream is closed locally, by default false
+     * @see #isClosed()
+     */
+    public default boolean isLocallyClosed()
+    {
+        return false;
+    }
+
+    /**
+     * @return the number of milliseconds since this stream was last active, by default 0
+     * @see #notIdle()
+     */
+    public default long getIdleFor()
+    {
+        return 0;
+    }
 }
@@ -22,6 +22,7 @@ import org.eclipse.jetty.http2.frames.DataFrame;
 import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.FrameType;
 import org.eclipse.jetty.http2.hpack.HpackEncoder;
+import org.eclipse.jetty.http2.hpack.HpackIndexingStrategy;
 import org.eclipse.jetty.io.ByteBufferPool;
 
 public class Generator
@@ -65,6 +66,16 @@ public class Generator
         return byteBufferPool;
     }
 
+    public HpackEncoder getHpackEncoder()
+    {
+        return hpackEncoder;
+    }
+
+    public void setHpackIndexingStrategy(HpackIndexingStrategy indexingStrategy)
+    {
+        hpackEncoder.setIndexingStrategy(indexingStrategy);
+    }
+
     public void setHeaderTableSize(int headerTableSize)
     {
         hpackEncoder.setRemoteMaxDynamicTableSize(headerTableSize);
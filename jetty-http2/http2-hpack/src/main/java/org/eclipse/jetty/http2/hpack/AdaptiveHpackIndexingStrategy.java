@@ -0,0 +1,65 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.http2.hpack;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http2.hpack.HpackContext.Entry;
+
+/**
+ * <p>An {@link HpackIndexingStrategy} that learns which fields repeat on a session.</p>
+ * <p>Fields are indexed by the {@link FixedHpackIndexingStrategy} rules and, in addition,
+ * any field that the fixed rules would send as a literal is indexed the second time it
+ * is sent. Repeated fields are detected with a small direct mapped table of field hashes,
+ * so a collision can only make a field be indexed earlier or later than it could be.</p>
+ */
+public class AdaptiveHpackIndexingStrategy extends FixedHpackIndexingStrategy
+{
+    private final int[] _seen;
+
+    public AdaptiveHpackIndexingStrategy()
+    {
+        this(256);
+    }
+
+    /**
+     * @param capacity the number of field hashes remembered, rounded up to a power of 2
+     */
+    public AdaptiveHpackIndexingStrategy(int capacity)
+    {
+        int size=Integer.highestOneBit(Math.max(2,capacity)-1)<<1;
+        _seen=new int[size];
+    }
+
+    @Override
+    public boolean isIndexed(HttpField field, Entry name)
+    {
+        if (super.isIndexed(field,name))
+            return true;
+
+        int hash=field.hashCode();
+        if (hash==0)
+            hash=1;
+        int slot=(hash^(hash>>>16))&(_seen.length-1);
+        if (_seen[slot]==hash)
+            return true;
+        _seen[slot]=hash;
+        return false;
+    }
+}
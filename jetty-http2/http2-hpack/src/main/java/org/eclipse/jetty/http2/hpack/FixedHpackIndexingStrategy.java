@@ -0,0 +1,47 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.http2.hpack;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http2.hpack.HpackContext.Entry;
+
+/**
+ * <p>An {@link HpackIndexingStrategy} with fixed rules:</p>
+ * <ul>
+ * <li>a field with an unknown name is indexed the first time its name is seen;</li>
+ * <li>a field with a known name is indexed unless its values rarely repeat
+ * (for example {@code etag}, {@code if-modified-since} or a {@code content-length}
+ * of 3 digits or more).</li>
+ * </ul>
+ */
+public class FixedHpackIndexingStrategy implements HpackIndexingStrategy
+{
+    @Override
+    public boolean isIndexed(HttpField field, Entry name)
+    {
+        HttpHeader header = field.getHeader();
+        if (header==null)
+            return name==null;
+        if (HpackEncoder.__DO_NOT_INDEX.contains(header))
+            return false;
+        return header!=HttpHeader.CONTENT_LENGTH || field.getValue().length()<=2;
+    }
+}
@@ -29,7 +29,6 @@ import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpScheme;
 import org.eclipse.jetty.util.ArrayTernaryTrie;
-import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.Trie;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
@@ -188,9 +187,11 @@ public class HpackContext
 
     private int _maxDynamicTableSizeInBytes;
     private int _dynamicTableSizeInBytes;
+    private long _insertions;
+    private long _evictions;
     private final DynamicTable _dynamicTable;
-    private final Map<HttpField,Entry> _fieldMap = new HashMap<>();
-    private final Map<String,Entry> _nameMap = new HashMap<>();
+    private final DynamicIndex _fieldIndex = new DynamicIndex(false);
+    private final DynamicIndex _nameIndex = new DynamicIndex(true);
 
     HpackContext(int maxDynamicTableSize)
     {
@@ -211,7 +212,7 @@ public class HpackContext
 
     public Entry get(HttpField field)
     {
-        Entry entry = _fieldMap.get(field);
+        Entry entry = _fieldIndex.get(field);
         if (entry==null)
             entry=__staticFieldMap.get(field);
         return entry;
@@ -222,7 +223,7 @@ public class HpackContext
         Entry entry = __staticNameMap.get(name);
         if (entry!=null)
             return entry;
-        return _nameMap.get(StringUtil.asciiToLowerCase(name));
+        return _nameIndex.get(name);
     }
 
     public Entry get(int index)
@@ -249,6 +250,8 @@ public class HpackContext
     public Entry add(HttpField field)
     {
         Entry entry=new Entry(field);
+        entry._fieldHash=field.hashCode();
+        entry._nameHash=nameHash(field.getName());
         int size = entry.getSize();
         if (size>_maxDynamicTableSizeInBytes)
         {
@@ -257,9 +260,10 @@ public class HpackContext
             return null;
         }
         _dynamicTableSizeInBytes+=size;
+        _insertions++;
         _dynamicTable.add(entry);
-        _fieldMap.put(field,entry);
-        _nameMap.put(StringUtil.asciiToLowerCase(field.getName()),entry);
+        _fieldIndex.put(entry);
+        _nameIndex.put(entry);
 
         if (LOG.isDebugEnabled())
             LOG.debug(String.format("HdrTbl[%x] added %s",hashCode(),entry));
@@ -291,6 +295,22 @@ public class HpackContext
         return _maxDynamicTableSizeInBytes;
     }
 
+    /**
+     * @return the number of entries added to the dynamic table
+     */
+    public long getInsertions()
+    {
+        return _insertions;
+    }
+
+    /**
+     * @return the number of entries evicted from the dynamic table
+     */
+    public long getEvictions()
+    {
+        return _evictions;
+    }
+
     public int index(Entry entry)
     {
         if (entry._slot<0)
@@ -312,6 +332,24 @@ public class HpackContext
     }
 
 
+    /**
+     * @param name the field name
+     * @return an ASCII case insensitive hash of the name, computed without allocation
+     */
+    static int nameHash(String name)
+    {
+        int h=0;
+        int len=name.length();
+        for (int i=0;i<len;i++)
+        {
+            char c=name.charAt(i);
+            if (c>='A' && c<='Z')
+                c+=0x20;
+            h=31*h+c;
+        }
+        return h;
+    }
+
     @Override
     public String toString()
     {
@@ -380,12 +418,10 @@ public class HpackContext
                 if (LOG.isDebugEnabled())
                     LOG.debug(String.format("HdrTbl[%x] evict %s",HpackContext.this.hashCode(),entry));
                 _dynamicTableSizeInBytes-=entry.getSize();
+                _evictions++;
                 entry._slot=-1;
-                _fieldMap.remove(entry.getHttpField());
-                String lc=StringUtil.asciiToLowerCase(entry.getHttpField().getName());
-                if (entry==_nameMap.get(lc))
-                    _nameMap.remove(lc);
-
+                _fieldIndex.remove(entry);
+                _nameIndex.remove(entry);
             }
             if (LOG.isDebugEnabled())
                 LOG.debug(String.format("HdrTbl[%x] entries=%d, size=%d, max=%d",HpackContext.this.hashCode(),_dynamicTable.size(),_dynamicTableSizeInBytes,_maxDynamicTableSizeInBytes));
@@ -393,10 +429,144 @@ public class HpackContext
 
     }
 
+    /**
+     * An open addressed index of the dynamic table entries, either by field
+     * or by case insensitive name. Each key maps to the most recently added
+     * entry, using the hashes precomputed when the entry was added, linear
+     * probing and backward shift deletion so that lookups do not allocate.
+     */
+    private static class DynamicIndex
+    {
+        private final boolean _byName;
+        private Entry[] _slots=new Entry[16];
+        private int _count;
+
+        private DynamicIndex(boolean byName)
+        {
+            _byName=byName;
+        }
+
+        private int hash(Entry entry)
+        {
+            return _byName?entry._nameHash:entry._fieldHash;
+        }
+
+        private static int home(int hash, int mask)
+        {
+            return (hash^(hash>>>16))&mask;
+        }
+
+        private boolean matches(Entry entry, Entry key)
+        {
+            if (_byName)
+                return entry._nameHash==key._nameHash && entry._field.getName().equalsIgnoreCase(key._field.getName());
+            return entry._fieldHash==key._fieldHash && entry._field.equals(key._field);
+        }
+
+        Entry get(HttpField field)
+        {
+            int hash=field.hashCode();
+            int mask=_slots.length-1;
+            for (int i=home(hash,mask);;i=(i+1)&mask)
+            {
+                Entry entry=_slots[i];
+                if (entry==null)
+                    return null;
+                if (entry._fieldHash==hash && entry._field.equals(field))
+                    return entry;
+            }
+        }
+
+        Entry get(String name)
+        {
+            int hash=nameHash(name);
+            int mask=_slots.length-1;
+            for (int i=home(hash,mask);;i=(i+1)&mask)
+            {
+                Entry entry=_slots[i];
+                if (entry==null)
+                    return null;
+                if (entry._nameHash==hash && entry._field.getName().equalsIgnoreCase(name))
+                    return entry;
+            }
+        }
+
+        void put(Entry entry)
+        {
+            if ((_count+1)*2>_slots.length)
+                rehash(_slots.length*2);
+
+            int mask=_slots.length-1;
+            for (int i=home(hash(entry),mask);;i=(i+1)&mask)
+            {
+                Entry e=_slots[i];
+                if (e==null)
+                {
+                    _slots[i]=entry;
+                    _count++;
+                    return;
+                }
+                if (matches(e,entry))
+                {
+                    _slots[i]=entry;
+                    return;
+                }
+            }
+        }
+
+        void remove(Entry entry)
+        {
+            int mask=_slots.length-1;
+            int i=home(hash(entry),mask);
+            while (_slots[i]!=entry)
+            {
+                if (_slots[i]==null)
+                    return; // replaced by a more recent entry
+                i=(i+1)&mask;
+            }
+
+            // Shift back any following entries that probed past the removed slot
+            int j=i;
+            while (true)
+            {
+                j=(j+1)&mask;
+                Entry e=_slots[j];
+                if (e==null)
+                    break;
+                int k=home(hash(e),mask);
+                if (i<=j?(k<=i || k>j):(k<=i && k>j))
+                {
+                    _slots[i]=e;
+                    i=j;
+                }
+            }
+            _slots[i]=null;
+            _count--;
+        }
+
+        private void rehash(int capacity)
+        {
+            Entry[] slots=_slots;
+            _slots=new Entry[capacity];
+            int mask=capacity-1;
+            for (Entry entry : slots)
+            {
+                if (entry==null)
+                    continue;
+                int i=home(hash(entry),mask);
+                while (_slots[i]!=null)
+                    i=(i+1)&mask;
+                _slots[i]=entry;
+            }
+        }
+    }
+
     public static class Entry
     {
         final HttpField _field;
         int _slot; // The index within it's array
+        int _fieldHash; // Precomputed for the dynamic index
+        int _nameHash; // Precomputed for the dynamic index
 
         Entry()
         {
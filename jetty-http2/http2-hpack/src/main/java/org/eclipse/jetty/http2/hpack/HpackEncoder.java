@@ -21,11 +21,11 @@ package org.eclipse.jetty.http2.hpack;
 
 import java.nio.ByteBuffer;
 import java.util.EnumSet;
+import java.util.Objects;
 
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpScheme;
-import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.http.PreEncodedHttpField;
@@ -39,7 +39,7 @@ public class HpackEncoder
 {
     public static final Logger LOG = Log.getLogger(HpackEncoder.class);
 
-    private final static HttpField[] __status= new HttpField[599];
+    final static HttpField[] __status= new HttpField[600];
 
 
     final static EnumSet<HttpHeader> __DO_NOT_HUFFMAN =
@@ -79,8 +79,8 @@ public class HpackEncoder
 
     static
     {
-        for (HttpStatus.Code code : HttpStatus.Code.values())
-            __status[code.getCode()]=new PreEncodedHttpField(HttpHeader.C_STATUS,Integer.toString(code.getCode()));
+        for (int code=100;code<__status.length;code++)
+            __status[code]=new PreEncodedHttpField(HttpHeader.C_STATUS,Integer.toString(code));
     }
 
     private final HpackContext _context;
@@ -89,6 +89,9 @@ public class HpackEncoder
     private int _localMaxDynamicTableSize;
     private int _maxHeaderListSize;
     private int _headerListSize;
+    private HpackIndexingStrategy _indexingStrategy=new AdaptiveHpackIndexingStrategy();
+    private long _unencodedBytes;
+    private long _encodedBytes;
 
     public HpackEncoder()
     {
@@ -139,6 +142,44 @@ public class HpackEncoder
         _localMaxDynamicTableSize=localMaxDynamicTableSize;
     }
 
+    public HpackIndexingStrategy getIndexingStrategy()
+    {
+        return _indexingStrategy;
+    }
+
+    /**
+     * @param indexingStrategy the strategy that decides which fields are added to the dynamic table
+     */
+    public void setIndexingStrategy(HpackIndexingStrategy indexingStrategy)
+    {
+        _indexingStrategy=Objects.requireNonNull(indexingStrategy);
+    }
+
+    /**
+     * @return the total length of the names and values of the fields encoded
+     */
+    public long getUnencodedBytes()
+    {
+        return _unencodedBytes;
+    }
+
+    /**
+     * @return the total number of octets the fields were encoded to
+     */
+    public long getEncodedBytes()
+    {
+        return _encodedBytes;
+    }
+
+    /**
+     * @return the ratio of encoded to unencoded bytes, or 1.0 if nothing has been encoded
+     */
+    public double getCompressionRatio()
+    {
+        long unencoded=_unencodedBytes;
+        return unencoded==0?1.0:(double)_encodedBytes/unencoded;
+    }
+
     public void encode(ByteBuffer buffer, MetaData metadata)
     {
         if (LOG.isDebugEnabled())
@@ -206,8 +247,9 @@ public class HpackEncoder
         
         int field_size = field.getName().length() + field.getValue().length();
         _headerListSize+=field_size+32;
+        _unencodedBytes+=field_size;
         
-        final int p=_debug?buffer.position():-1;
+        final int p=buffer.position();
 
         String encoding=null;
 
@@ -239,94 +281,39 @@ public class HpackEncoder
             // But do we know it's name?
             HttpHeader header = field.getHeader();
 
-            // Select encoding strategy
-            if (header==null)
+            if (field instanceof PreEncodedHttpField)
             {
-                // Select encoding strategy for unknown header names
-                Entry name = _context.get(field.getName());
-
-                if (field instanceof PreEncodedHttpField)
-                {
-                    int i=buffer.position();
-                    ((PreEncodedHttpField)field).putTo(buffer,HttpVersion.HTTP_2);
-                    byte b=buffer.get(i);
-                    indexed=b<0||b>=0x40;
-                    if (_debug)
-                        encoding=indexed?"PreEncodedIdx":"PreEncoded";
-                }
-                // has the custom header name been seen before?
-                else if (name==null)
-                {
-                    // unknown name and value, so let's index this just in case it is
-                    // the first time we have seen a custom name or a custom field.
-                    // unless the name is changing, this is worthwhile
-                    indexed=true;
-                    encodeName(buffer,(byte)0x40,6,field.getName(),null);
-                    encodeValue(buffer,true,field.getValue());
-                    if (_debug)
-                        encoding="LitHuffNHuffVIdx";
-                }
-                else
-                {
-                    // known custom name, but unknown value.
-                    // This is probably a custom field with changing value, so don't index.
-                    indexed=false;
-                    encodeName(buffer,(byte)0x00,4,field.getName(),null);
-                    encodeValue(buffer,true,field.getValue());
-                    if (_debug)
-                        encoding="LitHuffNHuffV!Idx";
-                }
+                // Preencoded field
+                int i=buffer.position();
+                ((PreEncodedHttpField)field).putTo(buffer,HttpVersion.HTTP_2);
+                byte b=buffer.get(i);
+                indexed=b<0||b>=0x40;
+                if (_debug)
+                    encoding=indexed?"PreEncodedIdx":"PreEncoded";
             }
             else
             {
-                // Select encoding strategy for known header names
-                Entry name = _context.get(header);
-
-                if (field instanceof PreEncodedHttpField)
-                {
-                    // Preencoded field
-                    int i=buffer.position();
-                    ((PreEncodedHttpField)field).putTo(buffer,HttpVersion.HTTP_2);
-                    byte b=buffer.get(i);
-                    indexed=b<0||b>=0x40;
-                    if (_debug)
-                        encoding=indexed?"PreEncodedIdx":"PreEncoded";
-                }
-                else if (__DO_NOT_INDEX.contains(header))
-                {
-                    // Non indexed field
-                    indexed=false;
-                    boolean never_index=__NEVER_INDEX.contains(header);
-                    boolean huffman=!__DO_NOT_HUFFMAN.contains(header);
-                    encodeName(buffer,never_index?(byte)0x10:(byte)0x00,4,header.asString(),name);
-                    encodeValue(buffer,huffman,field.getValue());
-
-                    if (_debug)
-                        encoding="Lit"+
-                                ((name==null)?"HuffN":("IdxN"+(name.isStatic()?"S":"")+(1+NBitInteger.octectsNeeded(4,_context.index(name)))))+
-                                (huffman?"HuffV":"LitV")+
-                                (indexed?"Idx":(never_index?"!!Idx":"!Idx"));
-                }
-                else if (field_size>=_context.getMaxDynamicTableSize() || header==HttpHeader.CONTENT_LENGTH && field.getValue().length()>2)
-                {
-                    // Non indexed if field too large or a content length for 3 digits or more
-                    indexed=false;
-                    encodeName(buffer,(byte)0x00,4,header.asString(),name);
-                    encodeValue(buffer,true,field.getValue());
-                    if (_debug)
-                        encoding="LitIdxNS"+(1+NBitInteger.octectsNeeded(4,_context.index(name)))+"HuffV!Idx";
-                }
+                Entry name = header==null?_context.get(field.getName()):_context.get(header);
+                String n = header==null?field.getName():header.asString();
+                boolean never_index=header!=null && __NEVER_INDEX.contains(header);
+                boolean huffman=header==null || !__DO_NOT_HUFFMAN.contains(header);
+
+                // Ask the strategy, unless the field must not or cannot be indexed
+                indexed=!never_index &&
+                        field_size+32<=_context.getMaxDynamicTableSize() &&
+                        _indexingStrategy.isIndexed(field,name);
+
+                if (indexed)
+                    encodeName(buffer,(byte)0x40,6,n,name);
                 else
-                {
-                    // indexed
-                    indexed=true;
-                    boolean huffman=!__DO_NOT_HUFFMAN.contains(header);
-                    encodeName(buffer,(byte)0x40,6,header.asString(),name);
-                    encodeValue(buffer,huffman,field.getValue());
-                    if (_debug)
-                        encoding=((name==null)?"LitHuffN":("LitIdxN"+(name.isStatic()?"S":"")+(1+NBitInteger.octectsNeeded(6,_context.index(name)))))+
-                                (huffman?"HuffVIdx":"LitVIdx");
-                }
+                    encodeName(buffer,never_index?(byte)0x10:(byte)0x00,4,n,name);
+                encodeValue(buffer,huffman,field.getValue());
+
+                if (_debug)
+                    encoding="Lit"+
+                            ((name==null)?"HuffN":("IdxN"+(name.isStatic()?"S":"")+(1+NBitInteger.octectsNeeded(indexed?6:4,_context.index(name)))))+
+                            (huffman?"HuffV":"LitV")+
+                            (indexed?"Idx":(never_index?"!!Idx":"!Idx"));
             }
 
             // If we want the field referenced, then we add it to our
@@ -336,6 +323,8 @@ public class HpackEncoder
                     throw new IllegalStateException();
         }
 
+        _encodedBytes+=buffer.position()-p;
+
         if (_debug)
         {
             int e=buffer.position();
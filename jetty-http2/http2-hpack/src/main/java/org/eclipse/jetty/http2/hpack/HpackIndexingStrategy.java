@@ -0,0 +1,46 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.http2.hpack;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http2.hpack.HpackContext.Entry;
+
+/**
+ * <p>Decides whether {@link HpackEncoder} adds a header field to the dynamic table.</p>
+ * <p>The strategy is only consulted for fields that are not already in the static or
+ * dynamic table, that are not pre-encoded and that fit in the dynamic table. Fields such
+ * as {@code authorization} and {@code set-cookie} are always encoded as never indexed,
+ * whatever the strategy.</p>
+ * <p>A strategy instance is used by a single encoder, so it may keep per session state.</p>
+ */
+public interface HpackIndexingStrategy
+{
+    /**
+     * @param field the field to be encoded
+     * @param name the table entry for the name of the field, or null if the name is not in a table
+     * @return true if the field is to be encoded as a literal with incremental indexing
+     */
+    public boolean isIndexed(HttpField field, Entry name);
+
+    public interface Factory
+    {
+        public HpackIndexingStrategy newHpackIndexingStrategy();
+    }
+}
@@ -19,6 +19,8 @@
 package org.eclipse.jetty.http2.hpack;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 
 public class Huffman
 {
@@ -287,60 +289,84 @@ public class Huffman
     };
 
     static final int[][] LCCODES = new int[CODES.length][];
-    
-    // Huffman decode tree stored in a flattened char array for good 
-    // locality of reference.
-    static final char[] tree;
-    static final char[] rowsym;
-    static final byte[] rowbits;
 
-    // Build the Huffman lookup tree and LC TABLE
-    static 
+    // Flattened code values and lengths, indexed by symbol
+    private static final int[] CODE = new int[CODES.length];
+    private static final byte[] LENGTH = new byte[CODES.length];
+    private static final int[] LCCODE = new int[128];
+    private static final byte[] LCLENGTH = new byte[128];
+
+    // Byte at a time decode state machine. A state is an internal node of the
+    // Huffman tree, so the 256 states by 256 input octets table gives for each
+    // octet the next state and the 0, 1 or 2 symbols that it completes.
+    private static final int[] DECODE = new int[256*256];
+    private static final int STATE_MASK = 0xFF;
+    private static final int COUNT_SHIFT = 24;
+    private static final int EOS_FLAG = 1<<26;
+
+    // Build the LC table and the decode state machine
+    static
     {
         System.arraycopy(CODES,0,LCCODES,0,CODES.length);
         for (int i='A';i<='Z';i++)
             LCCODES[i]=LCCODES['a'+i-'A'];
-        
-        int r=0;
-        for (int i=0;i<CODES.length;i++)
-            r+=(CODES[i][1]+7)/8;
-        tree=new char[r*256];
-        rowsym=new char[r];
-        rowbits=new byte[r];
 
-        r=0;
-        for (int sym = 0; sym < CODES.length; sym++) 
+        for (int i=0;i<CODES.length;i++)
         {
-            int code = CODES[sym][0];
-            int len = CODES[sym][1];
-
-            int current = 0;
+            CODE[i]=CODES[i][0];
+            LENGTH[i]=(byte)CODES[i][1];
+        }
+        for (int i=0;i<LCCODE.length;i++)
+        {
+            LCCODE[i]=LCCODES[i][0];
+            LCLENGTH[i]=(byte)LCCODES[i][1];
+        }
 
-            while (len > 8) 
+        // Build the binary tree: children of internal nodes are either another
+        // internal node (>0) or a leaf symbol encoded as -(symbol+1).
+        int[][] children = new int[256][2];
+        int nodes=1;
+        for (int sym=0;sym<CODES.length;sym++)
+        {
+            int code=CODES[sym][0];
+            int len=CODES[sym][1];
+            int node=0;
+            for (int bit=len-1;bit>0;bit--)
             {
-                len -= 8;
-                int i = ((code >>> len) & 0xFF);
+                int b=(code>>>bit)&1;
+                if (children[node][b]==0)
+                    children[node][b]=nodes++;
+                node=children[node][b];
+            }
+            children[node][code&1]=-(sym+1);
+        }
 
-                int t=current*256+i;
-                current = tree[t];
-                if (current == 0)
+        for (int state=0;state<nodes;state++)
+        {
+            for (int octet=0;octet<256;octet++)
+            {
+                int node=state;
+                int count=0;
+                int entry=0;
+                for (int bit=7;bit>=0;bit--)
                 {
-                    tree[t] = (char)++r;
-                    current=r;
+                    int child=children[node][(octet>>>bit)&1];
+                    if (child>0)
+                    {
+                        node=child;
+                        continue;
+                    }
+                    int sym=-child-1;
+                    node=0;
+                    if (sym==256)
+                    {
+                        entry|=EOS_FLAG;
+                        break;
+                    }
+                    entry|=sym<<(8+8*count++);
                 }
+                DECODE[state<<8|octet]=entry|(count<<COUNT_SHIFT)|node;
             }
-
-            int terminal = ++r;
-            rowsym[r]=(char)sym;
-            int b = len & 0x07;
-            int terminalBits = b == 0?8:b;
-
-            rowbits[r]=(byte)terminalBits;
-            int shift = 8 - len;
-            int start = current*256 + ((code << shift) & 0xFF);
-            int end = start + (1<<shift);
-            for (int i = start; i < end; i++)
-                tree[i]=(char)terminal;
         }
     }
 
@@ -349,82 +375,97 @@ public class Huffman
         return decode(buffer,buffer.remaining());
     }
 
+    /**
+     * Decode a Huffman encoded string, consuming {@code length} octets of the buffer.
+     * Each octet is decoded with a single table lookup. Any bits after the last
+     * complete symbol are ignored as padding.
+     * @param buffer the buffer, either heap or direct
+     * @param length the number of octets to decode
+     * @return the decoded string
+     * @throws IllegalStateException if the encoded string contains the EOS symbol
+     */
     public static String decode(ByteBuffer buffer,int length)
-    {        
-        StringBuilder out = new StringBuilder(length*2);
-        int node = 0;
-        int current = 0;
-        int bits = 0;
-        
-        byte[] array = buffer.array();
+    {
+        // At most 8 bits per octet over codes of at least 5 bits
+        byte[] out = new byte[(length*8)/5];
+        int n=0;
+        int state=0;
+
         int position=buffer.position();
-        int start=buffer.arrayOffset()+position;
-        int end=start+length;
-        buffer.position(position+length);
-        
-        for (int i=start; i<end; i++)
+        if (buffer.hasArray())
         {
-            int b = array[i]&0xFF;
-            current = (current << 8) | b;
-            bits += 8;
-            while (bits >= 8) 
+            byte[] array = buffer.array();
+            int start=buffer.arrayOffset()+position;
+            int end=start+length;
+            for (int i=start; i<end; i++)
             {
-                int c = (current >>> (bits - 8)) & 0xFF;
-                node = tree[node*256+c];
-                if (rowbits[node]!=0) 
+                int entry=DECODE[state<<8|(array[i]&0xFF)];
+                if ((entry&EOS_FLAG)!=0)
+                    throw new IllegalStateException("EOS in content");
+                switch (entry>>>COUNT_SHIFT)
                 {
-                    // terminal node
-                    out.append(rowsym[node]);
-                    bits -= rowbits[node];
-                    node = 0;
-                } 
-                else 
-                {
-                    // non-terminal node
-                    bits -= 8;
+                    case 2:
+                        out[n++]=(byte)(entry>>>8);
+                        out[n++]=(byte)(entry>>>16);
+                        break;
+                    case 1:
+                        out[n++]=(byte)(entry>>>8);
+                        break;
+                    default:
+                        break;
                 }
+                state=entry&STATE_MASK;
             }
         }
-
-        while (bits > 0) 
+        else
         {
-            int c = (current << (8 - bits)) & 0xFF;
-            node = tree[node*256+c];
-            if (rowbits[node]==0 || rowbits[node] > bits) 
-                break;
-            
-            if (rowbits[node]==0)
-                throw new IllegalStateException();
-            
-            out.append(rowsym[node]);
-            bits -= rowbits[node];
-            node = 0;
+            int end=position+length;
+            for (int i=position; i<end; i++)
+            {
+                int entry=DECODE[state<<8|(buffer.get(i)&0xFF)];
+                if ((entry&EOS_FLAG)!=0)
+                    throw new IllegalStateException("EOS in content");
+                switch (entry>>>COUNT_SHIFT)
+                {
+                    case 2:
+                        out[n++]=(byte)(entry>>>8);
+                        out[n++]=(byte)(entry>>>16);
+                        break;
+                    case 1:
+                        out[n++]=(byte)(entry>>>8);
+                        break;
+                    default:
+                        break;
+                }
+                state=entry&STATE_MASK;
+            }
         }
+        buffer.position(position+length);
 
-        return out.toString();
+        return new String(out,0,n,StandardCharsets.ISO_8859_1);
     }
 
     public static int octetsNeeded(String s)
     {   
-        return octetsNeeded(CODES,s);
+        return octetsNeeded(LENGTH,s);
     }
     
     public static void encode(ByteBuffer buffer,String s)
     {
-        encode(CODES,buffer,s);
+        encode(CODE,LENGTH,buffer,s);
     }
     
     public static int octetsNeededLC(String s)
     {
-        return octetsNeeded(LCCODES,s);
+        return octetsNeeded(LCLENGTH,s);
     }
 
     public static void encodeLC(ByteBuffer buffer, String s)
     {
-        encode(LCCODES,buffer,s);
+        encode(LCCODE,LCLENGTH,buffer,s);
     }
     
-    private static int octetsNeeded(final int[][] table,String s)
+    private static int octetsNeeded(final byte[] lengths,String s)
     {   
         int needed=0;
         int len = s.length();
@@ -433,19 +474,26 @@ public class Huffman
             char c=s.charAt(i);
             if (c>=128 || c<' ')
                 throw new IllegalArgumentException();
-            needed += table[c][1];
+            needed += lengths[c];
         }
 
         return (needed+7) / 8;
     }
 
-    private static void encode(final int[][] table,ByteBuffer buffer,String s)
+    /**
+     * Encode a string, accumulating codes in a long and writing
+     * them to the buffer 32 bits at a time.
+     */
+    private static void encode(final int[] codes,final byte[] lengths,ByteBuffer buffer,String s)
     {
         long current = 0;
         int n = 0;
 
-        byte[] array = buffer.array();
-        int p=buffer.arrayOffset()+buffer.position();
+        boolean heap=buffer.hasArray();
+        byte[] array = heap?buffer.array():null;
+        int p=heap?buffer.arrayOffset()+buffer.position():buffer.position();
+        // Codes are written big endian, whatever the order of the buffer.
+        boolean bigEndian=buffer.order()==ByteOrder.BIG_ENDIAN;
 
         int len = s.length();
         for (int i=0;i<len;i++)
@@ -453,28 +501,51 @@ public class Huffman
             char c=s.charAt(i);
             if (c>=128 || c<' ')
                 throw new IllegalArgumentException();
-            int code = table[c][0];
-            int bits = table[c][1];
+            int bits = lengths[c];
 
-            current <<= bits;
-            current |= code;
+            current = (current << bits) | codes[c];
             n += bits;
 
-            while (n >= 8) 
+            if (n >= 32)
             {
-                n -= 8;
-                array[p++]=(byte)(current >> n);
+                n -= 32;
+                int word=(int)(current >>> n);
+                if (heap)
+                {
+                    array[p]=(byte)(word>>>24);
+                    array[p+1]=(byte)(word>>>16);
+                    array[p+2]=(byte)(word>>>8);
+                    array[p+3]=(byte)word;
+                }
+                else
+                {
+                    buffer.putInt(p,bigEndian?word:Integer.reverseBytes(word));
+                }
+                p+=4;
             }
         }
 
-        if (n > 0) 
+        // Pad the remaining bits with the most significant bits of EOS
+        while (n > 0)
         {
-          current <<= (8 - n);
-          current |= (0xFF >>> n); 
-          array[p++]=(byte)current;
+            byte b;
+            if (n >= 8)
+            {
+                n -= 8;
+                b=(byte)(current >>> n);
+            }
+            else
+            {
+                b=(byte)((current << (8 - n)) | (0xFF >>> n));
+                n = 0;
+            }
+            if (heap)
+                array[p]=b;
+            else
+                buffer.put(p,b);
+            p++;
         }
-        
-        buffer.position(p-buffer.arrayOffset());
-    }
 
+        buffer.position(heap?p-buffer.arrayOffset():p);
+    }
 }
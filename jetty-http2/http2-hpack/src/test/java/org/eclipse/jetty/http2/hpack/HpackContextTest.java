@@ -22,10 +22,12 @@ package org.eclipse.jetty.http2.hpack;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
+import java.util.Locale;
 
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http2.hpack.HpackContext.Entry;
@@ -448,4 +450,36 @@ public class HpackContextTest
         assertEquals("Wibble",ctx.get("Wibble").getHttpField().getName());
         
     }
+
+    @Test
+    public void testIndexChurn()
+    {
+        HpackContext ctx = new HpackContext(1024);
+        for (int i=0;i<2000;i++)
+        {
+            String name="x-name-"+(i%37);
+            String value="v"+(i%11);
+            Entry entry = ctx.get(new HttpField(name,value));
+            if (entry==null)
+            {
+                entry=ctx.add(new HttpField(name,value));
+                assertNotNull(entry);
+            }
+            assertEquals(value,ctx.get(new HttpField(name.toUpperCase(Locale.ENGLISH),value)).getHttpField().getValue());
+            assertEquals(name,ctx.get(name.toUpperCase(Locale.ENGLISH)).getHttpField().getName());
+
+            // Every indexed entry must still be in the dynamic table, and every name in the table must be indexed
+            for (int index=HpackContext.STATIC_SIZE+1;index<=HpackContext.STATIC_SIZE+ctx.size();index++)
+            {
+                HttpField field = ctx.get(index).getHttpField();
+                Entry byField = ctx.get(field);
+                assertNotNull(byField);
+                assertEquals(field,byField.getHttpField());
+                assertTrue(ctx.index(byField)>HpackContext.STATIC_SIZE);
+                Entry byName = ctx.get(field.getName());
+                assertNotNull(byName);
+                assertTrue(ctx.index(byName)<=index);
+            }
+        }
+    }
 }
@@ -27,8 +27,10 @@ import java.nio.ByteBuffer;
 
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.TypeUtil;
 import org.hamcrest.Matchers;
@@ -252,4 +254,78 @@ public class HpackEncoderTest
 
     
 
+
+    @Test
+    public void testIndexingStrategy()
+    {
+        HpackEncoder fixed = new HpackEncoder(4096);
+        fixed.setIndexingStrategy(new FixedHpackIndexingStrategy());
+        HpackEncoder adaptive = new HpackEncoder(4096);
+        ByteBuffer buffer = BufferUtil.allocate(4096);
+
+        for (HpackEncoder encoder : new HpackEncoder[]{fixed,adaptive})
+        {
+            for (String value : new String[]{"first","second","second","second"})
+            {
+                HttpFields fields = new HttpFields();
+                fields.put("x-gateway-route",value);
+                BufferUtil.clearToFill(buffer);
+                encoder.encode(buffer,new MetaData(HttpVersion.HTTP_2,fields));
+                BufferUtil.flipToFlush(buffer,0);
+            }
+        }
+
+        // Both index the first value of a new name
+        Assert.assertNotNull(fixed.getHpackContext().get(new HttpField("x-gateway-route","first")));
+        Assert.assertNotNull(adaptive.getHpackContext().get(new HttpField("x-gateway-route","first")));
+
+        // Only the adaptive strategy learns that the second value repeats
+        Assert.assertNull(fixed.getHpackContext().get(new HttpField("x-gateway-route","second")));
+        Assert.assertNotNull(adaptive.getHpackContext().get(new HttpField("x-gateway-route","second")));
+        Assert.assertEquals(1,fixed.getHpackContext().getInsertions());
+        Assert.assertEquals(2,adaptive.getHpackContext().getInsertions());
+        Assert.assertEquals(0,adaptive.getHpackContext().getEvictions());
+
+        Assert.assertEquals(4*("x-gateway-route".length())+"first".length()+3*"second".length(),adaptive.getUnencodedBytes());
+        assertThat(adaptive.getEncodedBytes(),Matchers.lessThan(fixed.getEncodedBytes()));
+        assertThat(adaptive.getCompressionRatio(),Matchers.lessThan(fixed.getCompressionRatio()));
+    }
+
+    @Test
+    public void testStatusIsPreEncodedForAllCodes()
+    {
+        HpackEncoder encoder = new HpackEncoder();
+        HpackDecoder decoder = new HpackDecoder(4096, 8192);
+        ByteBuffer buffer = BufferUtil.allocate(4096);
+        for (int status = 100; status < 600; ++status)
+        {
+            HttpField field = HpackEncoder.__status[status];
+            Assert.assertThat(field, Matchers.instanceOf(PreEncodedHttpField.class));
+            Assert.assertEquals(Integer.toString(status), field.getValue());
+
+            // Unless in the static table, the status is first sent with its pre-encoded bytes.
+            ByteBuffer literal = BufferUtil.allocate(64);
+            BufferUtil.clearToFill(literal);
+            new HpackEncoder().encode(literal, new MetaData.Response(HttpVersion.HTTP_2, status, new HttpFields()));
+            BufferUtil.flipToFlush(literal, 0);
+            if (literal.remaining() > 1)
+            {
+                ByteBuffer expected = BufferUtil.allocate(64);
+                BufferUtil.clearToFill(expected);
+                new PreEncodedHttpField(HttpHeader.C_STATUS, Integer.toString(status)).putTo(expected, HttpVersion.HTTP_2);
+                BufferUtil.flipToFlush(expected, 0);
+                Assert.assertEquals(expected, literal);
+            }
+
+            // The second time the status is encoded, it may be indexed.
+            for (int i = 0; i < 2; ++i)
+            {
+                BufferUtil.clearToFill(buffer);
+                encoder.encode(buffer, new MetaData.Response(HttpVersion.HTTP_2, status, new HttpFields()));
+                BufferUtil.flipToFlush(buffer, 0);
+                MetaData.Response response = (MetaData.Response)decoder.decode(buffer);
+                Assert.assertEquals(status, response.getStatus());
+            }
+        }
+    }
 }
@@ -19,7 +19,9 @@
 package org.eclipse.jetty.http2.hpack;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Locale;
+import java.util.Random;
 
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.TypeUtil;
@@ -76,6 +78,64 @@ public class HuffmanTest
         }
     }
 
+    @Test
+    public void testDirect() throws Exception
+    {
+        for (String[] test:tests)
+        {
+            byte[] encoded=TypeUtil.fromHexString(test[1]);
+            ByteBuffer direct=ByteBuffer.allocateDirect(encoded.length+2);
+            direct.put((byte)0).put(encoded).put((byte)0).flip().position(1);
+            Assert.assertEquals(test[0],test[2],Huffman.decode(direct,encoded.length));
+            Assert.assertEquals(1+encoded.length,direct.position());
+
+            direct=ByteBuffer.allocateDirect(1024);
+            direct.position(3);
+            Huffman.encode(direct,test[2]);
+            direct.flip().position(3);
+            Assert.assertEquals(test[0],test[1],TypeUtil.toHexString(BufferUtil.toArray(direct)).toLowerCase(Locale.ENGLISH));
+
+            direct=ByteBuffer.allocateDirect(1024).order(ByteOrder.LITTLE_ENDIAN);
+            Huffman.encode(direct,test[2]);
+            direct.flip();
+            Assert.assertEquals(test[0],test[1],TypeUtil.toHexString(BufferUtil.toArray(direct)).toLowerCase(Locale.ENGLISH));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception
+    {
+        Random random=new Random(1);
+        for (int i=0;i<1000;i++)
+        {
+            char[] chars=new char[random.nextInt(64)];
+            for (int c=0;c<chars.length;c++)
+                chars[c]=(char)(' '+random.nextInt(128-' '));
+            String s=new String(chars);
+
+            ByteBuffer buf = BufferUtil.allocate(1024);
+            int pos=BufferUtil.flipToFill(buf);
+            Huffman.encode(buf,s);
+            BufferUtil.flipToFlush(buf,pos);
+            Assert.assertEquals(s,Huffman.octetsNeeded(s),buf.remaining());
+            Assert.assertEquals(s,s,Huffman.decode(buf));
+
+            buf = BufferUtil.allocate(1024);
+            pos=BufferUtil.flipToFill(buf);
+            Huffman.encodeLC(buf,s);
+            BufferUtil.flipToFlush(buf,pos);
+            Assert.assertEquals(s,Huffman.octetsNeededLC(s),buf.remaining());
+            Assert.assertEquals(s,s.toLowerCase(Locale.ENGLISH),Huffman.decode(buf));
+        }
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testDecodeEOS() throws Exception
+    {
+        // 'a' (00011) followed by the 30 bit EOS code
+        Huffman.decode(ByteBuffer.wrap(TypeUtil.fromHexString("1fffffffff")));
+    }
+
     @Test
     public void testEncode8859Only() throws Exception
     {
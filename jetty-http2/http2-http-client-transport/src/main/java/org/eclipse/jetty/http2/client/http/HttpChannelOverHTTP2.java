@@ -76,6 +76,11 @@ public class HttpChannelOverHTTP2 extends HttpChannel
         return receiver;
     }
 
+    long getOutstandingBytes()
+    {
+        return receiver.getOutstandingBytes();
+    }
+
     public Stream getStream()
     {
         return stream;
@@ -25,6 +25,7 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.jetty.client.BalancingConnectionPool;
 import org.eclipse.jetty.client.HttpChannel;
 import org.eclipse.jetty.client.HttpConnection;
 import org.eclipse.jetty.client.HttpDestination;
@@ -36,7 +37,7 @@ import org.eclipse.jetty.http2.api.Session;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.thread.Sweeper;
 
-public class HttpConnectionOverHTTP2 extends HttpConnection implements Sweeper.Sweepable
+public class HttpConnectionOverHTTP2 extends HttpConnection implements Sweeper.Sweepable, BalancingConnectionPool.OutstandingBytes
 {
     private final Set<HttpChannel> channels = ConcurrentHashMap.newKeySet();
     private final AtomicBoolean closed = new AtomicBoolean();
@@ -54,6 +55,21 @@ public class HttpConnectionOverHTTP2 extends HttpConnection implements Sweeper.S
         return session;
     }
 
+    /**
+     * @return the number of content bytes received on the active streams
+     * of this connection and not yet consumed by the application
+     */
+    @Override
+    public long getOutstandingBytes()
+    {
+        // Summed over the channels, rather than tracked by the connection,
+        // so that the bytes of a released channel are never counted.
+        long bytes = 0;
+        for (HttpChannel channel : channels)
+            bytes += ((HttpChannelOverHTTP2)channel).getOutstandingBytes();
+        return bytes;
+    }
+
     @Override
     protected SendFailure send(HttpExchange exchange)
     {
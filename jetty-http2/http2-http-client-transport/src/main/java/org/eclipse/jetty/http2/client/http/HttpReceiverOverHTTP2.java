@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
 
 import org.eclipse.jetty.client.HttpChannel;
@@ -52,6 +53,7 @@ import org.eclipse.jetty.util.IteratingCallback;
 public class HttpReceiverOverHTTP2 extends HttpReceiver implements Stream.Listener
 {
     private final ContentNotifier contentNotifier = new ContentNotifier();
+    private final AtomicLong outstandingBytes = new AtomicLong();
 
     public HttpReceiverOverHTTP2(HttpChannel channel)
     {
@@ -64,6 +66,20 @@ public class HttpReceiverOverHTTP2 extends HttpReceiver implements Stream.Listen
         return (HttpChannelOverHTTP2)super.getHttpChannel();
     }
 
+    /**
+     * @return the number of content bytes received and not yet consumed by the application
+     */
+    long getOutstandingBytes()
+    {
+        return outstandingBytes.get();
+    }
+
+    @Override
+    protected void receive()
+    {
+        contentNotifier.iterate();
+    }
+
     @Override
     public void onHeaders(Stream stream, HeadersFrame frame)
     {
@@ -158,6 +174,7 @@ public class HttpReceiverOverHTTP2 extends HttpReceiver implements Stream.Listen
         BufferUtil.clearToFill(copy);
         copy.put(original);
         BufferUtil.flipToFlush(copy, 0);
+        outstandingBytes.addAndGet(length);
 
         contentNotifier.offer(new DataInfo(exchange, copy, callback, frame.isEndStream()));
         contentNotifier.iterate();
@@ -201,7 +218,7 @@ public class HttpReceiverOverHTTP2 extends HttpReceiver implements Stream.Listen
             DataInfo dataInfo;
             synchronized (this)
             {
-                dataInfo = queue.poll();
+                dataInfo = queue.peek();
             }
 
             if (dataInfo == null)
@@ -212,6 +229,16 @@ public class HttpReceiverOverHTTP2 extends HttpReceiver implements Stream.Listen
                 return Action.IDLE;
             }
 
+            // Without demand, the DATA frames stay queued and their callbacks
+            // are not completed, so flow control stops the server from sending.
+            if (!hasDemandOrStall() && stall())
+                return Action.IDLE;
+
+            synchronized (this)
+            {
+                queue.poll();
+            }
+
             this.dataInfo = dataInfo;
             responseContent(dataInfo.exchange, dataInfo.buffer, this);
             return Action.SCHEDULED;
@@ -222,6 +249,7 @@ public class HttpReceiverOverHTTP2 extends HttpReceiver implements Stream.Listen
         {
             ByteBufferPool byteBufferPool = getHttpDestination().getHttpClient().getByteBufferPool();
             byteBufferPool.release(dataInfo.buffer);
+            outstandingBytes.addAndGet(-dataInfo.length);
             dataInfo.callback.succeeded();
             super.succeeded();
         }
@@ -237,6 +265,7 @@ public class HttpReceiverOverHTTP2 extends HttpReceiver implements Stream.Listen
         {
             ByteBufferPool byteBufferPool = getHttpDestination().getHttpClient().getByteBufferPool();
             byteBufferPool.release(dataInfo.buffer);
+            outstandingBytes.addAndGet(-dataInfo.length);
             dataInfo.callback.failed(failure);
             responseFailure(failure);
         }
@@ -246,6 +275,7 @@ public class HttpReceiverOverHTTP2 extends HttpReceiver implements Stream.Listen
     {
         private final HttpExchange exchange;
         private final ByteBuffer buffer;
+        private final int length;
         private final Callback callback;
         private final boolean last;
 
@@ -253,6 +283,7 @@ public class HttpReceiverOverHTTP2 extends HttpReceiver implements Stream.Listen
         {
             this.exchange = exchange;
             this.buffer = buffer;
+            this.length = buffer.remaining();
             this.callback = callback;
             this.last = last;
         }
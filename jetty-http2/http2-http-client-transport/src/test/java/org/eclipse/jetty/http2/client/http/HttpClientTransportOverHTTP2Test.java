@@ -29,26 +29,35 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.eclipse.jetty.client.BalancingConnectionPool;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.HttpDestination;
 import org.eclipse.jetty.client.HttpProxy;
 import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.AutoTuningFlowControlStrategy;
 import org.eclipse.jetty.http2.ErrorCode;
 import org.eclipse.jetty.http2.HTTP2Session;
 import org.eclipse.jetty.http2.api.Session;
@@ -72,6 +81,7 @@ import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -102,6 +112,114 @@ public class HttpClientTransportOverHTTP2Test extends AbstractTest
         Assert.assertTrue(http2Client.isStopped());
     }
 
+    @Test
+    public void testStreamsAreBalancedAcrossConnectionsAndRetiredConnectionsSendGoAway() throws Exception
+    {
+        Set<Session> sessions = ConcurrentHashMap.newKeySet();
+        CountDownLatch goAwayLatch = new CountDownLatch(1);
+        start(new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                sessions.add(stream.getSession());
+                MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, HttpStatus.OK_200, new HttpFields());
+                stream.headers(new HeadersFrame(stream.getId(), response, null, true), Callback.NOOP);
+                return null;
+            }
+
+            @Override
+            public void onClose(Session session, GoAwayFrame frame)
+            {
+                if (frame.getError() == ErrorCode.NO_ERROR.code)
+                    goAwayLatch.countDown();
+            }
+        });
+        int maxUsage = 3;
+        ((HttpClientTransportOverHTTP2)client.getTransport()).setConnectionPoolFactory(destination ->
+                new BalancingConnectionPool(destination, 4, destination, 100, 2, BalancingConnectionPool.Balancing.LEAST_STREAMS, maxUsage));
+
+        for (int i = 0; i < 2 * maxUsage; ++i)
+        {
+            ContentResponse response = client.newRequest("localhost", connector.getLocalPort())
+                    .timeout(5, TimeUnit.SECONDS)
+                    .send();
+            Assert.assertEquals(HttpStatus.OK_200, response.getStatus());
+        }
+
+        Assert.assertThat(sessions.size(), Matchers.greaterThan(1));
+        Assert.assertTrue(goAwayLatch.await(5, TimeUnit.SECONDS));
+        HttpDestination destination = (HttpDestination)client.getDestination("http", "localhost", connector.getLocalPort());
+        BalancingConnectionPool pool = (BalancingConnectionPool)destination.getConnectionPool();
+        Assert.assertThat(pool.getConnectionCount(), Matchers.lessThanOrEqualTo(4));
+    }
+
+    @Test
+    public void testOutstandingBytesWithAutoTuningFlowControl() throws Exception
+    {
+        int length = 1024;
+        prepareServer(new RawHTTP2ServerConnectionFactory(new HttpConfiguration(), new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, HttpStatus.OK_200, new HttpFields());
+                stream.headers(new HeadersFrame(stream.getId(), response, null, false), Callback.NOOP);
+                stream.data(new DataFrame(stream.getId(), ByteBuffer.allocate(length), true), Callback.NOOP);
+                return null;
+            }
+        }));
+        server.start();
+
+        AtomicReference<HttpConnectionOverHTTP2> connectionRef = new AtomicReference<>();
+        HTTP2Client http2Client = new HTTP2Client();
+        http2Client.setFlowControlStrategyFactory(() -> new AutoTuningFlowControlStrategy(0.5F));
+        client = new HttpClient(new HttpClientTransportOverHTTP2(http2Client)
+        {
+            @Override
+            protected HttpConnectionOverHTTP2 newHttpConnection(HttpDestination destination, Session session)
+            {
+                HttpConnectionOverHTTP2 connection = super.newHttpConnection(destination, session);
+                connectionRef.set(connection);
+                return connection;
+            }
+        }, null);
+        QueuedThreadPool clientExecutor = new QueuedThreadPool();
+        clientExecutor.setName("client");
+        client.setExecutor(clientExecutor);
+        client.start();
+
+        AtomicReference<Callback> callbackRef = new AtomicReference<>();
+        CountDownLatch contentLatch = new CountDownLatch(1);
+        CountDownLatch completeLatch = new CountDownLatch(1);
+        client.newRequest("localhost", connector.getLocalPort())
+                .send(new Response.Listener.Adapter()
+                {
+                    @Override
+                    public void onContent(Response response, ByteBuffer content, Callback callback)
+                    {
+                        // Do not consume the content yet.
+                        callbackRef.set(callback);
+                        contentLatch.countDown();
+                    }
+
+                    @Override
+                    public void onComplete(Result result)
+                    {
+                        if (result.isSucceeded())
+                            completeLatch.countDown();
+                    }
+                });
+
+        Assert.assertTrue(contentLatch.await(5, TimeUnit.SECONDS));
+        HttpConnectionOverHTTP2 connection = connectionRef.get();
+        Assert.assertEquals(length, connection.getOutstandingBytes());
+
+        callbackRef.get().succeeded();
+        Assert.assertTrue(completeLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, connection.getOutstandingBytes());
+    }
+
     @Test
     public void testRequestAbortSendsResetFrame() throws Exception
     {
@@ -204,6 +322,58 @@ public class HttpClientTransportOverHTTP2Test extends AbstractTest
         Assert.assertEquals(HttpStatus.OK_200, response.getStatus());
     }
 
+    @Test
+    public void testResponseContentIsDeliveredOnlyWhenDemanded() throws Exception
+    {
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                for (int i = 0; i < 2; ++i)
+                {
+                    response.getOutputStream().write(new byte[]{(byte)('a' + i)});
+                    response.flushBuffer();
+                }
+            }
+        });
+
+        AtomicReference<LongConsumer> demandRef = new AtomicReference<>();
+        BlockingQueue<String> contents = new LinkedBlockingQueue<>();
+        CountDownLatch completeLatch = new CountDownLatch(1);
+        client.newRequest("localhost", connector.getLocalPort())
+                .onResponseContentDemanded(new Response.DemandedContentListener()
+                {
+                    @Override
+                    public void onBeforeContent(Response response, LongConsumer demand)
+                    {
+                        demandRef.set(demand);
+                        demand.accept(1);
+                    }
+
+                    @Override
+                    public void onContent(Response response, LongConsumer demand, ByteBuffer content, Callback callback)
+                    {
+                        contents.offer(BufferUtil.toString(content));
+                        callback.succeeded();
+                    }
+                })
+                .send(result ->
+                {
+                    if (result.isSucceeded())
+                        completeLatch.countDown();
+                });
+
+        Assert.assertEquals("a", contents.poll(5, TimeUnit.SECONDS));
+        Assert.assertNull(contents.poll(500, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(completeLatch.await(1, TimeUnit.MILLISECONDS));
+
+        demandRef.get().accept(Long.MAX_VALUE);
+        Assert.assertEquals("b", contents.poll(5, TimeUnit.SECONDS));
+        Assert.assertTrue(completeLatch.await(5, TimeUnit.SECONDS));
+    }
+
     @Test
     public void testLastStreamId() throws Exception
     {
@@ -28,6 +28,15 @@ etc/jetty-http2.xml
 ## Initial session receive window (client to server)
 # jetty.http2.initialSessionRecvWindow=1048576
 
+## Size of the buffers small frames are aggregated into before writing
+# jetty.http2.outputAggregationSize=16384
+
+## Max request content bytes buffered per connection (-1 no limit)
+# jetty.http2.maxSessionBufferedBytes=-1
+
+## Max request content bytes buffered by all connections (-1 no limit)
+# jetty.http2.maxBufferedBytes=-1
+
 ## Reserve threads for high priority tasks (-1 use number of Selectors, 0 no reserved threads)
 # jetty.http2.reservedThreads=-1
 
@@ -22,3 +22,12 @@ etc/jetty-http2c.xml
 
 ## Initial stream receive window (client to server)
 # jetty.http2c.initialStreamRecvWindow=65535
+
+## Size of the buffers small frames are aggregated into before writing
+# jetty.http2c.outputAggregationSize=16384
+
+## Max request content bytes buffered per connection (-1 no limit)
+# jetty.http2c.maxSessionBufferedBytes=-1
+
+## Max request content bytes buffered by all connections (-1 no limit)
+# jetty.http2c.maxBufferedBytes=-1
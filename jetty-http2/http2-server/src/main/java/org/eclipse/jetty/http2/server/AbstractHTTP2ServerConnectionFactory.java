@@ -19,12 +19,15 @@
 package org.eclipse.jetty.http2.server;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.jetty.http2.BufferingFlowControlStrategy;
 import org.eclipse.jetty.http2.FlowControlStrategy;
 import org.eclipse.jetty.http2.HTTP2Connection;
 import org.eclipse.jetty.http2.api.server.ServerSessionListener;
 import org.eclipse.jetty.http2.generator.Generator;
+import org.eclipse.jetty.http2.hpack.AdaptiveHpackIndexingStrategy;
+import org.eclipse.jetty.http2.hpack.HpackIndexingStrategy;
 import org.eclipse.jetty.http2.parser.ServerParser;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
@@ -35,20 +38,34 @@ import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.annotation.Name;
 import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.thread.ReservedThreadExecutor;
+import org.eclipse.jetty.util.thread.Sweeper;
 
 @ManagedObject
 public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConnectionFactory
 {
+    private static final Logger LOG = Log.getLogger(AbstractHTTP2ServerConnectionFactory.class);
+
     private final Connection.Listener connectionListener = new ConnectionListener();
     private final HttpConfiguration httpConfiguration;
+    private final BufferedContentLimiter contentLimiter = new BufferedContentLimiter(null, -1);
     private int maxDynamicTableSize = 4096;
     private int initialSessionRecvWindow = 1024 * 1024;
     private int initialStreamRecvWindow = 512 * 1024;
     private int maxConcurrentStreams = 128;
+    private int outputAggregationSize = 16 * 1024;
+    private long maxPushBytes = 4 * 1024 * 1024;
+    private float maxPushCancelRatio = 0.5F;
+    private long maxSessionBufferedBytes = -1;
     private int maxHeaderBlockFragment = 0;
     private FlowControlStrategy.Factory flowControlStrategyFactory = () -> new BufferingFlowControlStrategy(0.5F);
+    private HpackIndexingStrategy.Factory hpackIndexingStrategyFactory = AdaptiveHpackIndexingStrategy::new;
     private long streamIdleTimeout;
+    private long halfClosedStreamIdleTimeout = -1;
+    private final AtomicBoolean sweeperMissing = new AtomicBoolean();
+    private boolean recycleHttpChannels;
     private int reservedThreads;
 
     public AbstractHTTP2ServerConnectionFactory(@Name("config") HttpConfiguration httpConfiguration)
@@ -99,6 +116,67 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
         this.initialStreamRecvWindow = initialStreamRecvWindow;
     }
 
+    @ManagedAttribute("The size of the buffers small frames are aggregated into before writing")
+    public int getOutputAggregationSize()
+    {
+        return outputAggregationSize;
+    }
+
+    public void setOutputAggregationSize(int outputAggregationSize)
+    {
+        this.outputAggregationSize = outputAggregationSize;
+    }
+
+    @ManagedAttribute("The max number of content bytes pushed per session, or -1 for no limit")
+    public long getMaxPushBytes()
+    {
+        return maxPushBytes;
+    }
+
+    public void setMaxPushBytes(long maxPushBytes)
+    {
+        this.maxPushBytes = maxPushBytes;
+    }
+
+    @ManagedAttribute("The ratio of pushes cancelled by the client above which pushes stop")
+    public float getMaxPushCancelRatio()
+    {
+        return maxPushCancelRatio;
+    }
+
+    public void setMaxPushCancelRatio(float maxPushCancelRatio)
+    {
+        this.maxPushCancelRatio = maxPushCancelRatio;
+    }
+
+    @ManagedAttribute("The max number of request content bytes buffered per session, or -1 for no limit")
+    public long getMaxSessionBufferedBytes()
+    {
+        return maxSessionBufferedBytes;
+    }
+
+    public void setMaxSessionBufferedBytes(long maxSessionBufferedBytes)
+    {
+        this.maxSessionBufferedBytes = maxSessionBufferedBytes;
+    }
+
+    @ManagedAttribute("The max number of request content bytes buffered by all sessions, or -1 for no limit")
+    public long getMaxBufferedBytes()
+    {
+        return contentLimiter.getMaxBufferedBytes();
+    }
+
+    public void setMaxBufferedBytes(long maxBufferedBytes)
+    {
+        contentLimiter.setMaxBufferedBytes(maxBufferedBytes);
+    }
+
+    @ManagedAttribute(value = "The number of request content bytes buffered by all sessions", readonly = true)
+    public long getBufferedBytes()
+    {
+        return contentLimiter.getBufferedBytes();
+    }
+
     @ManagedAttribute("The max number of concurrent streams per session")
     public int getMaxConcurrentStreams()
     {
@@ -131,6 +209,16 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
         this.flowControlStrategyFactory = flowControlStrategyFactory;
     }
 
+    public HpackIndexingStrategy.Factory getHpackIndexingStrategyFactory()
+    {
+        return hpackIndexingStrategyFactory;
+    }
+
+    public void setHpackIndexingStrategyFactory(HpackIndexingStrategy.Factory hpackIndexingStrategyFactory)
+    {
+        this.hpackIndexingStrategyFactory = hpackIndexingStrategyFactory;
+    }
+
     @ManagedAttribute("The stream idle timeout in milliseconds")
     public long getStreamIdleTimeout()
     {
@@ -142,6 +230,44 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
         this.streamIdleTimeout = streamIdleTimeout;
     }
 
+    @ManagedAttribute("The idle timeout in ms of streams closed locally but not remotely, or -1 to never reap them")
+    public long getHalfClosedStreamIdleTimeout()
+    {
+        return halfClosedStreamIdleTimeout;
+    }
+
+    /**
+     * <p>Sets the idle timeout of streams whose response has been sent
+     * but whose request has not been completed by the client.</p>
+     * <p>Such streams are reaped only if a {@link Sweeper} is a bean of the server.
+     * By default, such streams are never reaped.</p>
+     *
+     * @param halfClosedStreamIdleTimeout the idle timeout in milliseconds, or -1 to never reap them
+     */
+    public void setHalfClosedStreamIdleTimeout(long halfClosedStreamIdleTimeout)
+    {
+        this.halfClosedStreamIdleTimeout = halfClosedStreamIdleTimeout;
+    }
+
+    @ManagedAttribute("Whether HttpChannels are recycled across the streams of a connection")
+    public boolean isRecycleHttpChannels()
+    {
+        return recycleHttpChannels;
+    }
+
+    /**
+     * <p>Sets whether the HttpChannel of a completed stream is reused for a
+     * later stream of the same connection, rather than being discarded.</p>
+     * <p>Disabled by default: a recycled HttpChannel must not be referenced
+     * by the application after its stream has completed.</p>
+     *
+     * @param recycleHttpChannels whether HttpChannels are recycled
+     */
+    public void setRecycleHttpChannels(boolean recycleHttpChannels)
+    {
+        this.recycleHttpChannels = recycleHttpChannels;
+    }
+
     /**
      * @see ReservedThreadExecutor
      * @return The number of reserved threads
@@ -170,6 +296,7 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
         ServerSessionListener listener = newSessionListener(connector, endPoint);
 
         Generator generator = new Generator(connector.getByteBufferPool(), getMaxDynamicTableSize(), getMaxHeaderBlockFragment());
+        generator.setHpackIndexingStrategy(getHpackIndexingStrategyFactory().newHpackIndexingStrategy());
         FlowControlStrategy flowControl = getFlowControlStrategyFactory().newFlowControlStrategy();
         HTTP2ServerSession session = new HTTP2ServerSession(connector.getScheduler(), endPoint, generator, listener, flowControl);
         session.setMaxLocalStreams(getMaxConcurrentStreams());
@@ -183,12 +310,26 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
             streamIdleTimeout = endPoint.getIdleTimeout();
         session.setStreamIdleTimeout(streamIdleTimeout);
         session.setInitialSessionRecvWindow(getInitialSessionRecvWindow());
+        session.setOutputAggregationSize(getOutputAggregationSize());
+        session.setMaxPushBytes(getMaxPushBytes());
+        session.setMaxPushCancelRatio(getMaxPushCancelRatio());
+        session.setContentLimiter(new BufferedContentLimiter(contentLimiter, getMaxSessionBufferedBytes()));
+        session.setHalfClosedStreamIdleTimeout(getHalfClosedStreamIdleTimeout());
+        if (getHalfClosedStreamIdleTimeout() >= 0)
+        {
+            Sweeper sweeper = connector.getServer().getBean(Sweeper.class);
+            if (sweeper != null)
+                sweeper.offer(session);
+            else if (sweeperMissing.compareAndSet(false, true))
+                LOG.info("No {} bean in {}, idle half closed streams will not be reaped", Sweeper.class.getSimpleName(), connector.getServer());
+        }
 
         ReservedThreadExecutor executor = provideReservedThreadExecutor(connector);
         
         ServerParser parser = newServerParser(connector, session);
-        HTTP2Connection connection = new HTTP2ServerConnection(connector.getByteBufferPool(), executor,
+        HTTP2ServerConnection connection = new HTTP2ServerConnection(connector.getByteBufferPool(), executor,
                         endPoint, httpConfiguration, parser, session, getInputBufferSize(), listener);
+        connection.setRecycleHttpChannels(isRecycleHttpChannels());
         connection.addListener(connectionListener);
         return configure(connection, connector, endPoint);
     }
@@ -0,0 +1,174 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.http2.server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+
+/**
+ * <p>Accounts for the request content bytes that have been received
+ * but not yet consumed by applications.</p>
+ * <p>Limiters form a hierarchy: a connection factory has one limiter
+ * shared by all its sessions, and each session has its own limiter
+ * whose parent is the connection factory's.
+ * When a limiter or any of its ancestors holds more than its maximum
+ * number of bytes, the actions that allow the remote peer to send more
+ * content, such as enlarging the flow control windows or dispatching
+ * new streams, are {@link #defer(Runnable) deferred} until applications
+ * consume enough content.</p>
+ */
+@ManagedObject
+public class BufferedContentLimiter
+{
+    private final Queue<Deferred> deferred = new ConcurrentLinkedQueue<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final BufferedContentLimiter parent;
+    private volatile long maxBytes;
+
+    public BufferedContentLimiter(BufferedContentLimiter parent, long maxBytes)
+    {
+        this.parent = parent;
+        this.maxBytes = maxBytes;
+    }
+
+    @ManagedAttribute(value = "The number of content bytes buffered", readonly = true)
+    public long getBufferedBytes()
+    {
+        return bytes.get();
+    }
+
+    @ManagedAttribute("The max number of content bytes buffered, or -1 for no limit")
+    public long getMaxBufferedBytes()
+    {
+        return maxBytes;
+    }
+
+    public void setMaxBufferedBytes(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+        root().resume();
+    }
+
+    /**
+     * @return whether this limiter or any of its ancestors is above its maximum
+     */
+    public boolean isExceeded()
+    {
+        long max = maxBytes;
+        if (max >= 0 && bytes.get() > max)
+            return true;
+        return parent != null && parent.isExceeded();
+    }
+
+    /**
+     * <p>Accounts for the given number of content bytes being buffered.</p>
+     *
+     * @param length the number of bytes buffered
+     */
+    public void acquire(long length)
+    {
+        bytes.addAndGet(length);
+        if (parent != null)
+            parent.acquire(length);
+    }
+
+    /**
+     * <p>Accounts for the given number of content bytes being consumed,
+     * and runs the deferred tasks that are no longer exceeding a limit.</p>
+     *
+     * @param length the number of bytes consumed
+     */
+    public void release(long length)
+    {
+        bytes.addAndGet(-length);
+        if (parent != null)
+            parent.release(length);
+        else
+            resume();
+    }
+
+    /**
+     * <p>Runs the given task when this limiter and its ancestors are below
+     * their maximum, possibly immediately.</p>
+     *
+     * @param task the task to run
+     */
+    public void defer(Runnable task)
+    {
+        BufferedContentLimiter root = root();
+        root.deferred.offer(new Deferred(this, task));
+        // Content may have been consumed concurrently.
+        root.resume();
+    }
+
+    /**
+     * <p>Runs all the tasks deferred by this limiter, regardless of the limits,
+     * typically because the session this limiter belongs to is closed.</p>
+     */
+    public void close()
+    {
+        for (Deferred item : root().deferred)
+        {
+            if (item.limiter == this && root().deferred.remove(item))
+                item.task.run();
+        }
+    }
+
+    private void resume()
+    {
+        if (deferred.isEmpty())
+            return;
+        for (Deferred item : deferred)
+        {
+            if (!item.limiter.isExceeded() && deferred.remove(item))
+                item.task.run();
+        }
+    }
+
+    private BufferedContentLimiter root()
+    {
+        BufferedContentLimiter root = this;
+        while (root.parent != null)
+            root = root.parent;
+        return root;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[%d/%d]", getClass().getSimpleName(), hashCode(), getBufferedBytes(), getMaxBufferedBytes());
+    }
+
+    private static class Deferred
+    {
+        private final BufferedContentLimiter limiter;
+        private final Runnable task;
+
+        private Deferred(BufferedContentLimiter limiter, Runnable task)
+        {
+            this.limiter = limiter;
+            this.task = task;
+        }
+    }
+}
@@ -90,8 +90,11 @@ public class HTTP2ServerConnection extends HTTP2Connection implements Connection
     private final List<Frame> upgradeFrames = new ArrayList<>();
     private final AtomicLong totalRequests = new AtomicLong();
     private final AtomicLong totalResponses = new AtomicLong();
+    private final AtomicLong allocatedChannels = new AtomicLong();
+    private final AtomicLong recycledChannels = new AtomicLong();
     private final ServerSessionListener listener;
     private final HttpConfiguration httpConfig;
+    private final BufferedContentLimiter contentLimiter;
     private boolean recycleHttpChannels;
 
     public HTTP2ServerConnection(ByteBufferPool byteBufferPool, ReservedThreadExecutor executor, EndPoint endPoint, HttpConfiguration httpConfig, ServerParser parser, ISession session, int inputBufferSize, ServerSessionListener listener)
@@ -99,6 +102,8 @@ public class HTTP2ServerConnection extends HTTP2Connection implements Connection
         super(byteBufferPool, executor, endPoint, parser, session, inputBufferSize);
         this.listener = listener;
         this.httpConfig = httpConfig;
+        this.contentLimiter = session instanceof HTTP2ServerSession ?
+                ((HTTP2ServerSession)session).getContentLimiter() : new BufferedContentLimiter(null, -1);
     }
 
     @Override
@@ -113,6 +118,22 @@ public class HTTP2ServerConnection extends HTTP2Connection implements Connection
         return totalResponses.get();
     }
 
+    /**
+     * @return the number of HttpChannels allocated by this connection
+     */
+    public long getAllocatedHttpChannels()
+    {
+        return allocatedChannels.get();
+    }
+
+    /**
+     * @return the number of times a recycled HttpChannel has been reused by this connection
+     */
+    public long getRecycledHttpChannels()
+    {
+        return recycledChannels.get();
+    }
+
     @Override
     protected ServerParser getParser()
     {
@@ -146,6 +167,15 @@ public class HTTP2ServerConnection extends HTTP2Connection implements Connection
         super.onOpen();
     }
 
+    @Override
+    public void onClose()
+    {
+        // Nothing is going to be consumed anymore, so
+        // resume the tasks deferred by this session.
+        contentLimiter.close();
+        super.onClose();
+    }
+
     private void notifyAccept(ISession session)
     {
         try
@@ -165,7 +195,20 @@ public class HTTP2ServerConnection extends HTTP2Connection implements Connection
         HttpChannelOverHTTP2 channel = provideHttpChannel(connector, stream);
         Runnable task = channel.onRequest(frame);
         if (task != null)
-            offerTask(task, false);
+        {
+            if (contentLimiter.isExceeded())
+            {
+                // Too much content is buffered, do not dispatch
+                // more requests until some of it is consumed.
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Deferring {} on {}, {}", frame, stream, contentLimiter);
+                contentLimiter.defer(() -> offerTask(task, true));
+            }
+            else
+            {
+                offerTask(task, false);
+            }
+        }
     }
 
     public void onData(IStream stream, DataFrame frame, Callback callback)
@@ -175,7 +218,9 @@ public class HTTP2ServerConnection extends HTTP2Connection implements Connection
         HttpChannelOverHTTP2 channel = (HttpChannelOverHTTP2)stream.getAttribute(IStream.CHANNEL_ATTRIBUTE);
         if (channel != null)
         {
-            Runnable task = channel.onRequestContent(frame, callback);
+            int length = frame.remaining();
+            contentLimiter.acquire(length);
+            Runnable task = channel.onRequestContent(frame, new ContentCallback(callback, length));
             if (task != null)
                 offerTask(task, false);
         }
@@ -272,12 +317,14 @@ public class HTTP2ServerConnection extends HTTP2Connection implements Connection
         HttpChannelOverHTTP2 channel = pollHttpChannel();
         if (channel != null)
         {
+            recycledChannels.incrementAndGet();
             channel.getHttpTransport().setStream(stream);
             if (LOG.isDebugEnabled())
                 LOG.debug("Recycling channel {} for {}", channel, this);
         }
         else
         {
+            allocatedChannels.incrementAndGet();
             HttpTransportOverHTTP2 transport = new HttpTransportOverHTTP2(connector, this);
             transport.setStream(stream);
             channel = newServerHttpChannelOverHTTP2(connector, httpConfig, transport);
@@ -353,6 +400,53 @@ public class HTTP2ServerConnection extends HTTP2Connection implements Connection
         return true;
     }
 
+    /**
+     * <p>Releases the content bytes when the application consumes them,
+     * but defers the completion of the callback, and therefore the
+     * enlargement of the flow control windows, while too much content
+     * is buffered, so that the remote peer stops sending more.</p>
+     */
+    private class ContentCallback implements Callback
+    {
+        private final Callback callback;
+        private final int length;
+
+        private ContentCallback(Callback callback, int length)
+        {
+            this.callback = callback;
+            this.length = length;
+        }
+
+        @Override
+        public void succeeded()
+        {
+            contentLimiter.release(length);
+            if (contentLimiter.isExceeded())
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Deferring flow control window update on {}, {}", HTTP2ServerConnection.this, contentLimiter);
+                contentLimiter.defer(callback::succeeded);
+            }
+            else
+            {
+                callback.succeeded();
+            }
+        }
+
+        @Override
+        public void failed(Throwable x)
+        {
+            contentLimiter.release(length);
+            callback.failed(x);
+        }
+
+        @Override
+        public InvocationType getInvocationType()
+        {
+            return callback.getInvocationType();
+        }
+    }
+
     protected class ServerHttpChannelOverHTTP2 extends HttpChannelOverHTTP2 implements Closeable
     {
         public ServerHttpChannelOverHTTP2(Connector connector, HttpConfiguration configuration, EndPoint endPoint, HttpTransportOverHTTP2 transport)
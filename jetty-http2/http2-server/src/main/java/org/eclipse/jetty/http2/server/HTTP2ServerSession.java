@@ -20,6 +20,7 @@ package org.eclipse.jetty.http2.server;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.http2.ErrorCode;
@@ -31,22 +32,37 @@ import org.eclipse.jetty.http2.api.Stream;
 import org.eclipse.jetty.http2.api.server.ServerSessionListener;
 import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PriorityFrame;
 import org.eclipse.jetty.http2.frames.PushPromiseFrame;
+import org.eclipse.jetty.http2.frames.ResetFrame;
 import org.eclipse.jetty.http2.frames.SettingsFrame;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
 import org.eclipse.jetty.http2.generator.Generator;
 import org.eclipse.jetty.http2.parser.ServerParser;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.Sweeper;
 
-public class HTTP2ServerSession extends HTTP2Session implements ServerParser.Listener
+@ManagedObject
+public class HTTP2ServerSession extends HTTP2Session implements ServerParser.Listener, Sweeper.Sweepable
 {
     private static final Logger LOG = Log.getLogger(HTTP2ServerSession.class);
+    private static final int MIN_PUSHES = 4;
 
+    private final AtomicLong pushes = new AtomicLong();
+    private final AtomicLong cancelledPushes = new AtomicLong();
+    private final AtomicLong pushedBytes = new AtomicLong();
+    private final AtomicLong reapedStreams = new AtomicLong();
     private final ServerSessionListener listener;
+    private long maxPushBytes = -1;
+    private float maxPushCancelRatio = 1F;
+    private long halfClosedStreamIdleTimeout = -1;
+    private BufferedContentLimiter contentLimiter = new BufferedContentLimiter(null, -1);
 
     public HTTP2ServerSession(Scheduler scheduler, EndPoint endPoint, Generator generator, ServerSessionListener listener, FlowControlStrategy flowControl)
     {
@@ -54,6 +70,145 @@ public class HTTP2ServerSession extends HTTP2Session implements ServerParser.Lis
         this.listener = listener;
     }
 
+    @ManagedAttribute("The max number of content bytes pushed per session")
+    public long getMaxPushBytes()
+    {
+        return maxPushBytes;
+    }
+
+    public void setMaxPushBytes(long maxPushBytes)
+    {
+        this.maxPushBytes = maxPushBytes;
+    }
+
+    @ManagedAttribute("The ratio of pushes cancelled by the client above which pushes stop")
+    public float getMaxPushCancelRatio()
+    {
+        return maxPushCancelRatio;
+    }
+
+    public void setMaxPushCancelRatio(float maxPushCancelRatio)
+    {
+        this.maxPushCancelRatio = maxPushCancelRatio;
+    }
+
+    public BufferedContentLimiter getContentLimiter()
+    {
+        return contentLimiter;
+    }
+
+    public void setContentLimiter(BufferedContentLimiter contentLimiter)
+    {
+        this.contentLimiter = contentLimiter;
+    }
+
+    @ManagedAttribute(value = "The number of request content bytes buffered", readonly = true)
+    public long getBufferedBytes()
+    {
+        return contentLimiter.getBufferedBytes();
+    }
+
+    @ManagedAttribute("The idle timeout in ms of streams closed locally but not remotely, or -1 to never reap them")
+    public long getHalfClosedStreamIdleTimeout()
+    {
+        return halfClosedStreamIdleTimeout;
+    }
+
+    public void setHalfClosedStreamIdleTimeout(long halfClosedStreamIdleTimeout)
+    {
+        this.halfClosedStreamIdleTimeout = halfClosedStreamIdleTimeout;
+    }
+
+    @ManagedAttribute(value = "The number of idle half closed streams reaped", readonly = true)
+    public long getReapedStreamCount()
+    {
+        return reapedStreams.get();
+    }
+
+    @ManagedAttribute(value = "The number of pushed resources", readonly = true)
+    public long getPushCount()
+    {
+        return pushes.get();
+    }
+
+    @ManagedAttribute(value = "The number of pushed resources cancelled by the client", readonly = true)
+    public long getCancelledPushCount()
+    {
+        return cancelledPushes.get();
+    }
+
+    @ManagedAttribute(value = "The number of content bytes pushed", readonly = true)
+    public long getPushedBytes()
+    {
+        return pushedBytes.get();
+    }
+
+    /**
+     * <p>Returns whether a resource should be pushed to the client.</p>
+     * <p>Pushes stop when the content bytes already pushed exceed
+     * {@link #getMaxPushBytes() maxPushBytes}, or when the client has reset
+     * more than {@link #getMaxPushCancelRatio() maxPushCancelRatio} of the
+     * pushed streams, since it evidently already holds the resources.</p>
+     *
+     * @return whether a resource should be pushed
+     */
+    public boolean isPushWorthwhile()
+    {
+        if (!isPushEnabled())
+            return false;
+        long maxBytes = getMaxPushBytes();
+        if (maxBytes >= 0 && pushedBytes.get() >= maxBytes)
+            return false;
+        long count = pushes.get();
+        return count < MIN_PUSHES || cancelledPushes.get() <= count * getMaxPushCancelRatio();
+    }
+
+    protected void onPush(IStream stream)
+    {
+        pushes.incrementAndGet();
+    }
+
+    protected void onPushCancelled(IStream stream)
+    {
+        cancelledPushes.incrementAndGet();
+    }
+
+    protected void onPushContent(IStream stream, int bytes)
+    {
+        pushedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * <p>Resets the streams whose response has been sent but whose request
+     * has not been completed by the client for longer than
+     * {@link #getHalfClosedStreamIdleTimeout() halfClosedStreamIdleTimeout},
+     * so that they stop counting against the max number of concurrent streams
+     * well before the stream idle timeout expires.</p>
+     *
+     * @return whether this session is closed and should not be swept anymore
+     */
+    @Override
+    public boolean sweep()
+    {
+        if (isClosed())
+            return true;
+        long timeout = getHalfClosedStreamIdleTimeout();
+        if (timeout < 0)
+            return false;
+        for (Stream s : getStreams())
+        {
+            IStream stream = (IStream)s;
+            if (stream.isLocallyClosed() && !stream.isReset() && stream.getIdleFor() >= timeout)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Reaping idle half closed {}", stream);
+                reapedStreams.incrementAndGet();
+                stream.reset(new ResetFrame(stream.getId(), ErrorCode.NO_ERROR.code), Callback.NOOP);
+            }
+        }
+        return false;
+    }
+
     @Override
     public void onPreface()
     {
@@ -89,6 +244,9 @@ public class HTTP2ServerSession extends HTTP2Session implements ServerParser.Lis
             IStream stream = createRemoteStream(frame.getStreamId());
             if (stream != null)
             {
+                PriorityFrame priority = frame.getPriority();
+                if (priority != null)
+                    stream.setWeight(priority.getWeight());
                 onStreamOpened(stream);
                 stream.process(frame, Callback.NOOP);
                 Stream.Listener listener = notifyNewStream(stream, frame);
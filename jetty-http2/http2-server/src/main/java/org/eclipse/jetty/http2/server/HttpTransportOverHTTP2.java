@@ -27,12 +27,14 @@ import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.http2.ErrorCode;
+import org.eclipse.jetty.http2.ISession;
 import org.eclipse.jetty.http2.IStream;
 import org.eclipse.jetty.http2.api.Stream;
 import org.eclipse.jetty.http2.frames.DataFrame;
 import org.eclipse.jetty.http2.frames.HeadersFrame;
 import org.eclipse.jetty.http2.frames.PushPromiseFrame;
 import org.eclipse.jetty.http2.frames.ResetFrame;
+import org.eclipse.jetty.io.EofException;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.HttpTransport;
 import org.eclipse.jetty.util.BufferUtil;
@@ -158,11 +160,28 @@ public class HttpTransportOverHTTP2 implements HttpTransport
 
     @Override
     public void push(final MetaData.Request request)
+    {
+        push(request, Callback.NOOP);
+    }
+
+    @Override
+    public void push(final MetaData.Request request, final Callback callback)
     {
         if (!stream.getSession().isPushEnabled())
         {
             if (LOG.isDebugEnabled())
                 LOG.debug("HTTP/2 Push disabled for {}", request);
+            callback.failed(new IllegalStateException("Push disabled"));
+            return;
+        }
+
+        HTTP2ServerSession session = getServerSession();
+        if (session != null && !session.isPushWorthwhile())
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("HTTP/2 Push skipped for {}, pushed={}/{}B, cancelled={}", request,
+                        session.getPushCount(), session.getPushedBytes(), session.getCancelledPushCount());
+            callback.failed(new IllegalStateException("Push not worthwhile"));
             return;
         }
 
@@ -174,6 +193,9 @@ public class HttpTransportOverHTTP2 implements HttpTransport
             @Override
             public void succeeded(Stream pushStream)
             {
+                if (session != null)
+                    session.onPush((IStream)pushStream);
+                callback.succeeded();
                 connection.push(connector, (IStream)pushStream, request);
             }
 
@@ -182,8 +204,29 @@ public class HttpTransportOverHTTP2 implements HttpTransport
             {
                 if (LOG.isDebugEnabled())
                     LOG.debug("Could not push " + request, x);
+                callback.failed(x);
             }
-        }, new Stream.Listener.Adapter()); // TODO: handle reset from the client ?
+        }, new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onReset(Stream pushStream, ResetFrame frame)
+            {
+                // The client does not want the pushed resource,
+                // typically because it already has it in its cache.
+                if (session != null)
+                    session.onPushCancelled((IStream)pushStream);
+                ErrorCode error = ErrorCode.from(frame.getError());
+                if (error == null)
+                    error = ErrorCode.CANCEL_STREAM_ERROR;
+                connection.onStreamFailure((IStream)pushStream, new EofException("HTTP/2 " + error), Callback.NOOP);
+            }
+        });
+    }
+
+    private HTTP2ServerSession getServerSession()
+    {
+        ISession session = stream.getSession();
+        return session instanceof HTTP2ServerSession ? (HTTP2ServerSession)session : null;
     }
 
     private void sendHeaders(MetaData.Response info, boolean endStream, Callback callback)
@@ -208,6 +251,12 @@ public class HttpTransportOverHTTP2 implements HttpTransport
                     stream.getId(), Integer.toHexString(stream.getSession().hashCode()),
                     content.remaining(), lastContent ? " (last chunk)" : "");
         }
+        if (stream.isLocal())
+        {
+            HTTP2ServerSession session = getServerSession();
+            if (session != null)
+                session.onPushContent(stream, content.remaining());
+        }
         DataFrame frame = new DataFrame(stream.getId(), content, endStream);
         stream.data(frame, callback);
     }
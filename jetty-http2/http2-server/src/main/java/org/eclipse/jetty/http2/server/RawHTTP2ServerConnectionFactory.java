@@ -16,32 +16,278 @@
 //  ========================================================================
 //
 
+
 package org.eclipse.jetty.http2.server;
 
+import java.nio.ByteBuffer;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.ErrorCode;
+import org.eclipse.jetty.http2.api.Stream;
 import org.eclipse.jetty.http2.api.server.ServerSessionListener;
+import org.eclipse.jetty.http2.frames.DataFrame;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.ResetFrame;
+import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
 
+/**
+ * <p>A connection factory that hands HTTP/2 frames directly to application code,
+ * without the servlet semantics of {@link HttpChannelOverHTTP2}.</p>
+ * <p>Applications may either provide a {@link ServerSessionListener} to receive
+ * every frame, or a {@link Handler} to receive whole requests, which is simpler
+ * for RPC-style workloads.</p>
+ */
+@ManagedObject
 public class RawHTTP2ServerConnectionFactory extends AbstractHTTP2ServerConnectionFactory
 {
+    private static final Logger LOG = Log.getLogger(RawHTTP2ServerConnectionFactory.class);
+
     private final ServerSessionListener listener;
+    private final Handler handler;
+    private int maxContentLength = 1024 * 1024;
 
     public RawHTTP2ServerConnectionFactory(HttpConfiguration httpConfiguration,ServerSessionListener listener)
     {
         super(httpConfiguration);
         this.listener = listener;
+        this.handler = null;
     }
 
     public RawHTTP2ServerConnectionFactory(HttpConfiguration httpConfiguration, ServerSessionListener listener, String... protocols)
     {
         super(httpConfiguration,protocols);
         this.listener = listener;
+        this.handler = null;
+    }
+
+    public RawHTTP2ServerConnectionFactory(HttpConfiguration httpConfiguration, Handler handler)
+    {
+        super(httpConfiguration);
+        this.listener = null;
+        this.handler = handler;
+    }
+
+    public RawHTTP2ServerConnectionFactory(HttpConfiguration httpConfiguration, Handler handler, String... protocols)
+    {
+        super(httpConfiguration, protocols);
+        this.listener = null;
+        this.handler = handler;
+    }
+
+    @ManagedAttribute("The max request content length aggregated for handlers")
+    public int getMaxContentLength()
+    {
+        return maxContentLength;
+    }
+
+    public void setMaxContentLength(int maxContentLength)
+    {
+        this.maxContentLength = maxContentLength;
     }
 
     @Override
     protected ServerSessionListener newSessionListener(Connector connector, EndPoint endPoint)
     {
-        return listener;
+        if (listener != null)
+            return listener;
+        return new HandlerSessionListener(connector.getByteBufferPool());
+    }
+
+    /**
+     * <p>A lightweight handler of HTTP/2 requests.</p>
+     * <p>The request content is aggregated, up to {@link #getMaxContentLength()}
+     * bytes, before the handler is invoked; requests with larger content are
+     * replied with status 413, and their stream reset, without invoking the
+     * handler.</p>
+     * <p>Handlers are invoked by the thread that parses the frames, so they must
+     * not block; long running work should be offloaded to another thread.
+     * The response is sent directly on the stream, via
+     * {@link Stream#headers(HeadersFrame, Callback)} and
+     * {@link Stream#data(DataFrame, Callback)}.</p>
+     */
+    @FunctionalInterface
+    public interface Handler
+    {
+        /**
+         * <p>Handles a request.</p>
+         *
+         * @param stream the stream to send the response to
+         * @param request the request metadata
+         * @param content the request content, possibly empty, valid until the callback is completed
+         * @param callback the callback to complete when the content has been consumed
+         */
+        public void handle(Stream stream, MetaData.Request request, ByteBuffer content, Callback callback);
+    }
+
+    private class HandlerSessionListener extends ServerSessionListener.Adapter
+    {
+        private final ByteBufferPool byteBufferPool;
+
+        private HandlerSessionListener(ByteBufferPool byteBufferPool)
+        {
+            this.byteBufferPool = byteBufferPool;
+        }
+
+        @Override
+        public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+        {
+            MetaData.Request request = (MetaData.Request)frame.getMetaData();
+            if (frame.isEndStream())
+            {
+                handle(stream, request, BufferUtil.EMPTY_BUFFER, Callback.NOOP);
+                return null;
+            }
+            return new RequestListener(request);
+        }
+
+        private void handle(Stream stream, MetaData.Request request, ByteBuffer content, Callback callback)
+        {
+            try
+            {
+                handler.handle(stream, request, content, callback);
+            }
+            catch (Throwable x)
+            {
+                LOG.info("Failure while handling " + request, x);
+                callback.failed(x);
+                stream.reset(new ResetFrame(stream.getId(), ErrorCode.INTERNAL_ERROR.code), Callback.NOOP);
+            }
+        }
+
+        private class RequestListener extends Stream.Listener.Adapter
+        {
+            private final MetaData.Request request;
+            private ByteBuffer content;
+            private boolean rejected;
+
+            private RequestListener(MetaData.Request request)
+            {
+                this.request = request;
+            }
+
+            @Override
+            public void onHeaders(Stream stream, HeadersFrame frame)
+            {
+                // Trailers.
+                if (frame.isEndStream() && !rejected)
+                    complete(stream);
+            }
+
+            @Override
+            public void onData(Stream stream, DataFrame frame, Callback callback)
+            {
+                if (rejected)
+                {
+                    callback.succeeded();
+                    return;
+                }
+
+                ByteBuffer data = frame.getData();
+                int length = BufferUtil.length(content) + data.remaining();
+                if (length > getMaxContentLength())
+                {
+                    rejected = true;
+                    release();
+                    callback.succeeded();
+                    MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, HttpStatus.PAYLOAD_TOO_LARGE_413, new HttpFields());
+                    stream.headers(new HeadersFrame(stream.getId(), response, null, true), new Callback()
+                    {
+                        @Override
+                        public void succeeded()
+                        {
+                            // The response is complete, tell the client
+                            // to stop sending the request content.
+                            stream.reset(new ResetFrame(stream.getId(), ErrorCode.NO_ERROR.code), Callback.NOOP);
+                        }
+                    });
+                    return;
+                }
+
+                if (content == null && frame.isEndStream())
+                {
+                    // The whole content is in a single frame, avoid the copy.
+                    handle(stream, request, data, callback);
+                    return;
+                }
+
+                append(data, length);
+                callback.succeeded();
+                if (frame.isEndStream())
+                    complete(stream);
+            }
+
+            @Override
+            public void onReset(Stream stream, ResetFrame frame)
+            {
+                release();
+            }
+
+            private void append(ByteBuffer data, int length)
+            {
+                if (BufferUtil.space(content) < data.remaining())
+                {
+                    int capacity = Math.max(length, content == null ? (int)Math.min(request.getContentLength(), getMaxContentLength()) : 2 * content.capacity());
+                    ByteBuffer buffer = byteBufferPool.acquire(capacity, false);
+                    if (content != null)
+                    {
+                        BufferUtil.append(buffer, content);
+                        byteBufferPool.release(content);
+                    }
+                    content = buffer;
+                }
+                BufferUtil.append(content, data);
+            }
+
+            private void complete(Stream stream)
+            {
+                ByteBuffer buffer = content == null ? BufferUtil.EMPTY_BUFFER : content;
+                content = null;
+                handle(stream, request, buffer, new Callback()
+                {
+                    @Override
+                    public void succeeded()
+                    {
+                        release(buffer);
+                    }
+
+                    @Override
+                    public void failed(Throwable x)
+                    {
+                        release(buffer);
+                    }
+
+                    @Override
+                    public InvocationType getInvocationType()
+                    {
+                        return InvocationType.NON_BLOCKING;
+                    }
+                });
+            }
+
+            private void release()
+            {
+                ByteBuffer buffer = content;
+                content = null;
+                release(buffer);
+            }
+
+            private void release(ByteBuffer buffer)
+            {
+                if (buffer != null && buffer != BufferUtil.EMPTY_BUFFER)
+                    byteBufferPool.release(buffer);
+            }
+        }
     }
 }
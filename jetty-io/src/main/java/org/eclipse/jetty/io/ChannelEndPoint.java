@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
 import java.nio.channels.CancelledKeyException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
 
@@ -302,6 +303,41 @@ public abstract class ChannelEndPoint extends AbstractEndPoint implements Manage
         return true;
     }
 
+    /**
+     * <p>Transfers bytes of the given file region directly to the underlying channel,
+     * using {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+     * so that the operating system may avoid copying the bytes through user space.</p>
+     * <p>Like {@link #flush(ByteBuffer...)}, this method does not block and may transfer
+     * fewer bytes than requested, or none at all if the channel cannot accept more bytes.
+     * It must not be called while a {@link #write(org.eclipse.jetty.util.Callback, ByteBuffer...) write}
+     * is pending.</p>
+     *
+     * @param file the file channel to transfer bytes from
+     * @param position the position in the file of the first byte to transfer
+     * @param count the maximum number of bytes to transfer
+     * @return the number of bytes transferred, possibly zero
+     * @throws IOException if the transfer fails
+     */
+    public long transferFrom(FileChannel file, long position, long count) throws IOException
+    {
+        long transferred;
+        try
+        {
+            transferred = file.transferTo(position, count, _channel);
+            if (LOG.isDebugEnabled())
+                LOG.debug("transferred {} {}", transferred, this);
+        }
+        catch (IOException e)
+        {
+            throw new EofException(e);
+        }
+
+        if (transferred > 0)
+            notIdle();
+
+        return transferred;
+    }
+
     public ByteChannel getChannel()
     {
         return _channel;
@@ -67,6 +67,18 @@ etc/jetty.xml
 ## Maximum time to block in total for a blocking IO operation (default -1 is to use idleTimeout on progress)
 # jetty.httpConfig.blockingTimeout=-1
 
+## Whether request and response header fields are looked up via an index
+# jetty.httpConfig.indexedHttpFields=false
+
+## Maximum number of responses to pipelined requests coalesced into one write (0 disables)
+# jetty.httpConfig.maxPipelinedResponses=0
+
+## Size in bytes of the buffer used to coalesce pipelined responses
+# jetty.httpConfig.pipelinedResponsesBufferSize=16384
+
+## Whether pushed resources are recorded in a cookie so that they are not pushed again
+# jetty.httpConfig.pushCacheDigest=false
+
 ## Cookie compliance mode of: RFC2965, RFC6265
 # jetty.httpConfig.cookieCompliance=RFC6265
 
@@ -69,6 +69,7 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
         super(connector, config, endPoint, transport);
         _httpConnection = httpConnection;
         _metadata.setURI(new HttpURI());
+        _fields.setIndexed(config.isIndexedHttpFields());
     }
 
     @Override
@@ -65,6 +65,10 @@ public class HttpConfiguration
     private boolean _sendDateHeader = true;
     private boolean _delayDispatchUntilContent = true;
     private boolean _persistentConnectionsEnabled = true;
+    private boolean _indexedHttpFields = false;
+    private int _maxPipelinedResponses = 0;
+    private int _pipelinedResponsesBufferSize = 16*1024;
+    private boolean _pushCacheDigest = false;
     private int _maxErrorDispatches = 10;
     private long _minRequestDataRate;
     private CookieCompliance _cookieCompliance = CookieCompliance.RFC6265;
@@ -124,6 +128,10 @@ public class HttpConfiguration
         _sendXPoweredBy=config._sendXPoweredBy;
         _delayDispatchUntilContent=config._delayDispatchUntilContent;
         _persistentConnectionsEnabled=config._persistentConnectionsEnabled;
+        _indexedHttpFields=config._indexedHttpFields;
+        _maxPipelinedResponses=config._maxPipelinedResponses;
+        _pipelinedResponsesBufferSize=config._pipelinedResponsesBufferSize;
+        _pushCacheDigest=config._pushCacheDigest;
         _maxErrorDispatches=config._maxErrorDispatches;
         _minRequestDataRate=config._minRequestDataRate;
         _cookieCompliance=config._cookieCompliance;
@@ -339,6 +347,86 @@ public class HttpConfiguration
         return _delayDispatchUntilContent;
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * @param indexed if true, the request and response {@link org.eclipse.jetty.http.HttpFields}
+     * of a channel are looked up via an index rather than by linear scan (default false)
+     * @see org.eclipse.jetty.http.HttpFields#setIndexed(boolean)
+     */
+    public void setIndexedHttpFields(boolean indexed)
+    {
+        _indexedHttpFields = indexed;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("Whether request and response header fields are indexed")
+    public boolean isIndexedHttpFields()
+    {
+        return _indexedHttpFields;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * <p>Set the maximum number of responses to pipelined HTTP/1.1 requests that may be
+     * coalesced into a single write.</p>
+     * <p>When a response completes while the next pipelined request is already buffered,
+     * the response is held in an aggregation buffer and written together with the
+     * responses that follow it, in order, rather than being flushed on its own.</p>
+     * @param maxPipelinedResponses the maximum number of responses held before a write,
+     * or 0 (the default) to write every response as it completes
+     * @see #setPipelinedResponsesBufferSize(int)
+     */
+    public void setMaxPipelinedResponses(int maxPipelinedResponses)
+    {
+        _maxPipelinedResponses = maxPipelinedResponses;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("The maximum number of pipelined responses coalesced into a single write")
+    public int getMaxPipelinedResponses()
+    {
+        return _maxPipelinedResponses;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param pipelinedResponsesBufferSize the size in bytes of the buffer used to coalesce
+     * pipelined responses. Responses that do not fit are written immediately, together with
+     * any responses already held.
+     * @see #setMaxPipelinedResponses(int)
+     */
+    public void setPipelinedResponsesBufferSize(int pipelinedResponsesBufferSize)
+    {
+        _pipelinedResponsesBufferSize = pipelinedResponsesBufferSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("The size in bytes of the buffer used to coalesce pipelined responses")
+    public int getPipelinedResponsesBufferSize()
+    {
+        return _pipelinedResponsesBufferSize;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * <p>Set whether the resources pushed to a client are recorded in a digest cookie.</p>
+     * <p>When enabled, {@link PushBuilder#push()} adds the pushed resources to a
+     * {@link PushCacheDigest} sent to the client as a cookie, and does not push again
+     * the resources that the digest received from the client says it already holds.</p>
+     * @param pushCacheDigest true to skip pushing resources the client already holds
+     */
+    public void setPushCacheDigest(boolean pushCacheDigest)
+    {
+        _pushCacheDigest = pushCacheDigest;
+    }
+
+    /* ------------------------------------------------------------ */
+    @ManagedAttribute("Whether pushed resources are recorded in a digest cookie to avoid pushing them again")
+    public boolean isPushCacheDigest()
+    {
+        return _pushCacheDigest;
+    }
+
     /* ------------------------------------------------------------ */
     /**
      * <p>Set the {@link Customizer}s that are invoked for every 
@@ -21,6 +21,7 @@ package org.eclipse.jetty.server;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritePendingException;
+import java.util.Arrays;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -71,6 +72,9 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     private final BlockingReadCallback _blockingReadCallback = new BlockingReadCallback();
     private final AsyncReadCallback _asyncReadCallback = new AsyncReadCallback();
     private final SendCallback _sendCallback = new SendCallback();
+    private final PipelinedCallback _pipelinedCallback = new PipelinedCallback();
+    private ByteBuffer _pipelined;
+    private int _pipelinedResponses;
     private final boolean _recordHttpComplianceViolations;
 
     /**
@@ -241,6 +245,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
                 // Handle closed parser.
                 if (_parser.isClose() || _parser.isClosed())
                 {
+                    flushPipelined();
                     close();
                     break;
                 }
@@ -248,6 +253,11 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
                 // Handle channel event
                 if (handle)
                 {
+                    // Held responses may only wait for requests that are fully buffered,
+                    // not for a request that must first read the rest of its content.
+                    if (!_parser.isComplete())
+                        flushPipelined();
+
                     boolean suspended = !_channel.handle();
 
                     // We should break iteration if we have suspended or changed connection or this is not the handling thread.
@@ -267,12 +277,27 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         }
         finally
         {
+            // Held responses must not wait for a suspended, upgraded or closed request.
+            flushPipelined();
             setCurrentConnection(last);
             if (LOG.isDebugEnabled())
                 LOG.debug("{} onFillable exit {} {}", this, _channel.getState(),BufferUtil.toDetailString(_requestBuffer));
         }
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Write any responses to pipelined requests that have been coalesced but not yet written.
+     * Called by the handling thread before it dispatches a request that may not complete
+     * promptly, and whenever it stops handling requests.
+     * The write is asynchronous; a response write that starts before it completes is queued
+     * behind it by the {@link PipelinedCallback}.
+     */
+    private void flushPipelined()
+    {
+        _pipelinedCallback.flush();
+    }
+
     /* ------------------------------------------------------------ */
     /** Fill and parse data looking for content
      * @return true if an {@link RequestHandler} method was called and it returned true;
@@ -490,6 +515,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     public void onClose()
     {
         _sendCallback.close();
+        _pipelinedCallback.close();
         super.onClose();
     }
 
@@ -646,6 +672,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         private boolean _lastContent;
         private Callback _callback;
         private ByteBuffer _header;
+        private ByteBuffer _pipelinedHeader;
         private boolean _shutdownOut;
 
         private SendCallback()
@@ -731,6 +758,20 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
                             BufferUtil.clear(_content);
                         }
 
+                        // If this completes a response and another pipelined request is buffered, hold the response
+                        if (_lastContent && coalescePipelined(chunk))
+                        {
+                            succeeded(); // coalesced
+                            return Action.SCHEDULED;
+                        }
+
+                        // Write any held pipelined responses ahead of this one
+                        if (_config.getMaxPipelinedResponses()>0)
+                        {
+                            _pipelinedCallback.write(_header, chunk, _content);
+                            return Action.SCHEDULED;
+                        }
+
                         // If we have a header
                         if (BufferUtil.hasContent(_header))
                         {
@@ -782,12 +823,56 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
             }
         }
 
+        private boolean coalescePipelined(ByteBuffer chunk)
+        {
+            int max=_config.getMaxPipelinedResponses();
+            if (max<=0)
+                return false;
+
+            // Only the handling thread may coalesce, and only while a pipelined request is buffered
+            if (getCurrentConnection()!=HttpConnection.this || BufferUtil.isEmpty(_requestBuffer))
+                return false;
+            if (!_generator.isPersistent() || _channel.getResponse().getStatus()==HttpStatus.SWITCHING_PROTOCOLS_101)
+                return false;
+
+            int length=BufferUtil.length(_header)+BufferUtil.length(chunk)+BufferUtil.length(_content);
+            synchronized (_pipelinedCallback)
+            {
+                if (_pipelinedResponses>=max)
+                    return false;
+                if (_pipelined==null)
+                {
+                    int size=_config.getPipelinedResponsesBufferSize();
+                    if (length>size)
+                        return false;
+                    _pipelined=_bufferPool.acquire(size,HEADER_BUFFER_DIRECT);
+                }
+                else if (length>BufferUtil.space(_pipelined))
+                    return false;
+
+                if (BufferUtil.hasContent(_header))
+                    BufferUtil.append(_pipelined,_header);
+                if (BufferUtil.hasContent(chunk))
+                    BufferUtil.append(_pipelined,chunk);
+                if (BufferUtil.hasContent(_content))
+                    BufferUtil.append(_pipelined,_content);
+                _pipelinedResponses++;
+                if (LOG.isDebugEnabled())
+                    LOG.debug("{} coalesced pipelined response {} {}",this,_pipelinedResponses,BufferUtil.toDetailString(_pipelined));
+                return true;
+            }
+        }
+
         private void releaseHeader()
         {
             ByteBuffer h=_header;
             _header=null;
             if (h!=null)
                 _bufferPool.release(h);
+            h=_pipelinedHeader;
+            _pipelinedHeader=null;
+            if (h!=null)
+                _bufferPool.release(h);
         }
 
         @Override
@@ -814,4 +899,148 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
             return String.format("%s[i=%s,cb=%s]",super.toString(),_info,_callback);
         }
     }
+
+    /**
+     * <p>Writes the responses to pipelined requests that have been coalesced and held by
+     * the {@link SendCallback}, and serializes that write with the {@link SendCallback}
+     * writes, which may be performed concurrently by an application thread once the
+     * request has been suspended.</p>
+     * <p>A response write that starts while held responses are being written is queued
+     * and performed once that write has completed, ahead of any responses held meanwhile.</p>
+     */
+    private class PipelinedCallback implements Callback
+    {
+        private ByteBuffer _writing;
+        private ByteBuffer[] _queued;
+
+        private void flush()
+        {
+            ByteBuffer pipelined;
+            synchronized (this)
+            {
+                // A write in progress will flush any further held responses when it completes
+                if (_writing!=null || _pipelined==null)
+                    return;
+                pipelined=_writing=_pipelined;
+                _pipelined=null;
+                _pipelinedResponses=0;
+            }
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("{} flush pipelined {}",HttpConnection.this,BufferUtil.toDetailString(pipelined));
+            getEndPoint().write(this,pipelined);
+        }
+
+        private void write(ByteBuffer... buffers)
+        {
+            ByteBuffer[] nonEmpty=nonEmpty(buffers);
+            ByteBuffer pipelined;
+            synchronized (this)
+            {
+                if (_writing!=null)
+                {
+                    if (nonEmpty.length>0)
+                    {
+                        _queued=nonEmpty;
+                        return;
+                    }
+                    pipelined=null;
+                }
+                else
+                {
+                    pipelined=_pipelined;
+                    _pipelined=null;
+                    _pipelinedResponses=0;
+                }
+            }
+
+            if (pipelined!=null)
+            {
+                if (_sendCallback._pipelinedHeader!=null)
+                    _bufferPool.release(_sendCallback._pipelinedHeader);
+                _sendCallback._pipelinedHeader=pipelined;
+
+                ByteBuffer[] all=new ByteBuffer[nonEmpty.length+1];
+                all[0]=pipelined;
+                System.arraycopy(nonEmpty,0,all,1,nonEmpty.length);
+                nonEmpty=all;
+            }
+
+            if (nonEmpty.length==0)
+                _sendCallback.succeeded(); // nothing to write
+            else
+                getEndPoint().write(_sendCallback,nonEmpty);
+        }
+
+        @Override
+        public void succeeded()
+        {
+            ByteBuffer written;
+            ByteBuffer[] queued;
+            ByteBuffer pipelined=null;
+            synchronized (this)
+            {
+                written=_writing;
+                _writing=null;
+                queued=_queued;
+                _queued=null;
+                if (queued==null && _pipelined!=null)
+                {
+                    pipelined=_writing=_pipelined;
+                    _pipelined=null;
+                    _pipelinedResponses=0;
+                }
+            }
+            _bufferPool.release(written);
+
+            if (queued!=null)
+                write(queued);
+            else if (pipelined!=null)
+                getEndPoint().write(this,pipelined);
+        }
+
+        @Override
+        public void failed(Throwable x)
+        {
+            ByteBuffer written;
+            ByteBuffer[] queued;
+            synchronized (this)
+            {
+                written=_writing;
+                _writing=null;
+                queued=_queued;
+                _queued=null;
+            }
+            _bufferPool.release(written);
+
+            if (LOG.isDebugEnabled())
+                LOG.debug(x);
+            getEndPoint().close();
+            if (queued!=null)
+                _sendCallback.failed(x);
+        }
+
+        private void close()
+        {
+            ByteBuffer pipelined;
+            synchronized (this)
+            {
+                pipelined=_pipelined;
+                _pipelined=null;
+                _pipelinedResponses=0;
+            }
+            if (pipelined!=null)
+                _bufferPool.release(pipelined);
+        }
+
+    }
+
+    private static ByteBuffer[] nonEmpty(ByteBuffer... buffers)
+    {
+        int n=0;
+        for (ByteBuffer buffer : buffers)
+            if (BufferUtil.hasContent(buffer))
+                buffers[n++]=buffer;
+        return n==buffers.length?buffers:Arrays.copyOf(buffers,n);
+    }
 }
@@ -49,6 +49,22 @@ public interface HttpTransport
      */
     void push(MetaData.Request request);
 
+    /**
+     * <p>Pushes a resource, notifying the callback of whether the push was sent.</p>
+     * <p>The callback is failed if the push is not sent, for example because it is
+     * not supported, not enabled or not worthwhile.
+     * This implementation calls {@link #push(MetaData.Request)}, but cannot know the
+     * outcome so it always fails the callback.</p>
+     *
+     * @param request A request to use as the basis for generating a pushed response.
+     * @param callback The Callback instance that success or failure of the push is notified on
+     */
+    default void push(MetaData.Request request, Callback callback)
+    {
+        push(request);
+        callback.failed(new UnsupportedOperationException("Push outcome not reported by " + this));
+    }
+
     /**
      * Called to indicated the end of the current request/response cycle (which may be
      * some time after the last content is sent).
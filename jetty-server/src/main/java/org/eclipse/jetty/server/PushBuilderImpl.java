@@ -26,6 +26,7 @@ import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpURI;
 import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.URIUtil;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
@@ -229,6 +230,23 @@ public class PushBuilderImpl implements PushBuilder
         if (!path.startsWith("/"))
             path=URIUtil.addPaths(_request.getContextPath(),path);
 
+        PushCacheDigest digest=null;
+        String key=null;
+        if (_request.getHttpChannel().getHttpConfiguration().isPushCacheDigest())
+        {
+            digest=PushCacheDigest.from(_request);
+            key=PushCacheDigest.key(path,query,_etag);
+            if (digest.contains(key))
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Push {} {} skipped, held by client",_method,key);
+                _path=null;
+                _etag=null;
+                _lastModified=null;
+                return;
+            }
+        }
+
         String param=null;
         if (_sessionId!=null)
         {
@@ -252,7 +270,34 @@ public class PushBuilderImpl implements PushBuilder
         if (LOG.isDebugEnabled())
             LOG.debug("Push {} {} inm={} ims={}",_method,uri,_fields.get(HttpHeader.IF_NONE_MATCH),_fields.get(HttpHeader.IF_MODIFIED_SINCE));
 
-        _request.getHttpChannel().getHttpTransport().push(push);
+        if (digest==null)
+        {
+            _request.getHttpChannel().getHttpTransport().push(push);
+        }
+        else
+        {
+            // Only record the resource in the digest once its push has been sent.
+            // If that happens after this method returns, the digest cookie is only
+            // updated by a later push, or not at all, and the resource may be pushed again.
+            PushCacheDigest pushed=digest;
+            String pushedKey=key;
+            _request.getHttpChannel().getHttpTransport().push(push,new Callback()
+            {
+                @Override
+                public void succeeded()
+                {
+                    pushed.add(pushedKey);
+                }
+
+                @Override
+                public void failed(Throwable x)
+                {
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Push {} not recorded in digest",pushedKey,x);
+                }
+            });
+            digest.update(_request);
+        }
         _path=null;
         _etag=null;
         _lastModified=null;
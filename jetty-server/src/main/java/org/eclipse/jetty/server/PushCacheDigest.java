@@ -0,0 +1,256 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.server;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.ListIterator;
+
+import javax.servlet.http.Cookie;
+
+import org.eclipse.jetty.http.HttpCookie;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+
+/* ------------------------------------------------------------ */
+/**
+ * <p>A compact record of the resources pushed to a client.</p>
+ * <p>The digest is a Bloom filter over the keys of the pushed resources
+ * (their path and query, and their ETag when known), sent to the client in
+ * the {@value #COOKIE_NAME} cookie, so that resources that were already
+ * pushed, and are therefore likely held by the client, are not pushed again.</p>
+ * <p>A false positive only means that a resource is not pushed, and the
+ * client requests it as it would have done without push.
+ * To bound the false positive rate, the digest is reset once half of its
+ * bits are set, so that after many pushes the oldest resources may be
+ * pushed again rather than the newest ones never being pushed.</p>
+ * <p>Resources are added once their push has been sent, which may happen
+ * in another thread, so the digest is thread safe; the cookie is however
+ * only updated by the thread handling the request.</p>
+ *
+ * @see HttpConfiguration#setPushCacheDigest(boolean)
+ */
+public class PushCacheDigest
+{
+    public static final String COOKIE_NAME = "jetty_push";
+    private static final String ATTRIBUTE = PushCacheDigest.class.getName();
+    private static final int BITS = 512;
+    private static final int HASHES = 3;
+    private static final int MAX_BITS_SET = BITS / 2;
+
+    private final long[] _bits = new long[BITS / 64];
+    private boolean _modified;
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param request the request
+     * @return the digest of the resources pushed to the client that sent the request,
+     * shared by all the pushes of the request
+     */
+    public static PushCacheDigest from(Request request)
+    {
+        Object attribute = request.getAttribute(ATTRIBUTE);
+        if (attribute instanceof PushCacheDigest)
+            return (PushCacheDigest)attribute;
+
+        PushCacheDigest digest = new PushCacheDigest();
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null)
+        {
+            for (Cookie cookie : cookies)
+            {
+                if (COOKIE_NAME.equals(cookie.getName()))
+                    digest.decode(cookie.getValue());
+            }
+        }
+        request.setAttribute(ATTRIBUTE, digest);
+        return digest;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param path the resource path
+     * @param query the resource query, or null
+     * @param etag the resource ETag, or null if not known
+     * @return the key of the resource in the digest
+     */
+    public static String key(String path, String query, String etag)
+    {
+        StringBuilder key = new StringBuilder(path);
+        if (query != null && query.length() > 0)
+            key.append('?').append(query);
+        if (etag != null)
+            key.append(' ').append(etag);
+        return key.toString();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param key the resource key
+     * @return whether the resource is (probably) in the digest
+     * @see #key(String, String, String)
+     */
+    public boolean contains(String key)
+    {
+        int hash = hash(key);
+        int step = step(hash);
+        synchronized (this)
+        {
+            for (int i = 0; i < HASHES; ++i)
+            {
+                int bit = (hash + i * step) & (BITS - 1);
+                if ((_bits[bit >>> 6] & (1L << bit)) == 0)
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * <p>Adds a resource to the digest, first resetting the digest
+     * if too many of its bits are set.</p>
+     *
+     * @param key the resource key to add to the digest
+     * @return whether the digest changed
+     * @see #key(String, String, String)
+     */
+    public boolean add(String key)
+    {
+        int hash = hash(key);
+        int step = step(hash);
+        synchronized (this)
+        {
+            boolean modified = false;
+            if (getBitsSet() >= MAX_BITS_SET)
+            {
+                Arrays.fill(_bits, 0);
+                modified = true;
+            }
+            for (int i = 0; i < HASHES; ++i)
+            {
+                int bit = (hash + i * step) & (BITS - 1);
+                long mask = 1L << bit;
+                if ((_bits[bit >>> 6] & mask) == 0)
+                {
+                    _bits[bit >>> 6] |= mask;
+                    modified = true;
+                }
+            }
+            _modified |= modified;
+            return modified;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the ratio of the bits set in the digest, between 0 and 1
+     */
+    public double getFillRatio()
+    {
+        synchronized (this)
+        {
+            return (double)getBitsSet() / BITS;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private int getBitsSet()
+    {
+        int count = 0;
+        for (long bits : _bits)
+            count += Long.bitCount(bits);
+        return count;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * <p>Sends the digest to the client if it changed since the last update,
+     * replacing the digest cookie already set on the response, if any.</p>
+     * <p>Must be called by the thread handling the request.</p>
+     * @param request the request whose response carries the digest
+     */
+    public void update(Request request)
+    {
+        Response response = request.getResponse();
+        if (response.isCommitted())
+            return;
+
+        String value;
+        synchronized (this)
+        {
+            if (!_modified)
+                return;
+            _modified = false;
+            value = encode();
+        }
+
+        HttpFields fields = response.getHttpFields();
+        for (ListIterator<HttpField> i = fields.listIterator(); i.hasNext();)
+        {
+            HttpField field = i.next();
+            if (field.getHeader() == HttpHeader.SET_COOKIE && field.getValue().startsWith(COOKIE_NAME + "="))
+                i.remove();
+        }
+        response.addCookie(new HttpCookie(COOKIE_NAME, value, null, "/", -1, true, request.isSecure()));
+    }
+
+    /* ------------------------------------------------------------ */
+    public String encode()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(BITS / 8);
+        synchronized (this)
+        {
+            buffer.asLongBuffer().put(_bits);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /* ------------------------------------------------------------ */
+    private void decode(String value)
+    {
+        try
+        {
+            byte[] bytes = Base64.getUrlDecoder().decode(value);
+            if (bytes.length == BITS / 8)
+                ByteBuffer.wrap(bytes).asLongBuffer().get(_bits);
+        }
+        catch (IllegalArgumentException x)
+        {
+            // Not a digest, ignore it.
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    private static int hash(String key)
+    {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /* ------------------------------------------------------------ */
+    private static int step(int hash)
+    {
+        // An odd step visits distinct bits for each of the hashes.
+        return (Integer.rotateLeft(hash, 13) * 0x85EBCA6B) | 1;
+    }
+}
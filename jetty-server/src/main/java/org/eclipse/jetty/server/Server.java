@@ -65,6 +65,7 @@ import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.thread.Locker;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.Scheduler;
 import org.eclipse.jetty.util.thread.ShutdownThread;
 import org.eclipse.jetty.util.thread.ThreadPool;
 import org.eclipse.jetty.util.thread.ThreadPool.SizedThreadPool;
@@ -93,6 +94,8 @@ public class Server extends HandlerWrapper implements Attributes
 
     private final Locker _dateLocker = new Locker();
     private volatile DateField _dateField;
+    private volatile DateField _nextDateField;
+    private Scheduler.Task _dateTick;
 
 
     /* ------------------------------------------------------------ */
@@ -331,6 +334,14 @@ public class Server extends HandlerWrapper implements Attributes
 
         if (df==null || df._seconds!=seconds)
         {
+            // Use the field prepared in advance by the date tick if we can
+            df = _nextDateField;
+            if (df!=null && df._seconds==seconds)
+            {
+                _dateField=df;
+                return df._dateField;
+            }
+
             try(Locker.Lock lock = _dateLocker.lock())
             {
                 df = _dateField;
@@ -345,6 +356,25 @@ public class Server extends HandlerWrapper implements Attributes
         return df._dateField;
     }
 
+    /* ------------------------------------------------------------ */
+    /**
+     * Prepare the pre-encoded Date field for the next second, so that the
+     * formatting and encoding is not done by the first request of each second.
+     * Reschedules itself for the middle of each second while the server is running.
+     */
+    private void tickDate(Scheduler scheduler)
+    {
+        long now=System.currentTimeMillis();
+        long next=(now/1000+1)*1000;
+        _nextDateField=new DateField(next/1000,new PreEncodedHttpField(HttpHeader.DATE,DateGenerator.formatDate(next)));
+
+        synchronized (this)
+        {
+            if (isStarting() || isStarted())
+                _dateTick=scheduler.schedule(()->tickDate(scheduler),next+500-now,TimeUnit.MILLISECONDS);
+        }
+    }
+
     /* ------------------------------------------------------------ */
     @Override
     protected void doStart() throws Exception
@@ -433,6 +463,17 @@ public class Server extends HandlerWrapper implements Attributes
             }
         }
 
+        // tick the date field using the scheduler of the first connector that has one
+        for (Connector connector : _connectors)
+        {
+            Scheduler scheduler=connector.getScheduler();
+            if (scheduler!=null && scheduler.isStarted())
+            {
+                tickDate(scheduler);
+                break;
+            }
+        }
+
         if (isDumpAfterStart())
             dumpStdErr();
 
@@ -459,6 +500,13 @@ public class Server extends HandlerWrapper implements Attributes
         if (LOG.isDebugEnabled())
             LOG.debug("doStop {}",this);
 
+        synchronized (this)
+        {
+            if (_dateTick!=null)
+                _dateTick.cancel();
+            _dateTick=null;
+        }
+
         MultiException mex=new MultiException();
 
         // list if graceful futures
@@ -0,0 +1,121 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.server.handler;
+
+import java.io.IOException;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.PreEncodedHttpFields;
+import org.eclipse.jetty.server.Request;
+
+/**
+ * Response Headers Handler.
+ * <p>
+ * Adds a fixed set of headers (eg <code>Server</code>, <code>Content-Type</code> or security headers such as
+ * <code>X-Frame-Options</code>) to every response handled by the wrapped handler, typically a context.
+ * The headers are held as a {@link PreEncodedHttpFields} template, so they are encoded once rather than for
+ * every response.  The wrapped handler may still replace or remove any of the headers.
+ * <p>
+ * The headers are only added by the initial {@link DispatcherType#REQUEST} dispatch, so that
+ * async, error and forward redispatches of the same response do not duplicate them.
+ */
+public class ResponseHeadersHandler extends HandlerWrapper
+{
+    private final HttpFields _headers = new HttpFields();
+    private volatile PreEncodedHttpFields _template = new PreEncodedHttpFields();
+
+    /**
+     * @return a copy of the headers added to each response
+     */
+    public HttpFields getHeaders()
+    {
+        synchronized (this)
+        {
+            return new HttpFields(_headers);
+        }
+    }
+
+    /**
+     * @param headers the headers to add to each response, replacing any previously set
+     */
+    public void setHeaders(HttpFields headers)
+    {
+        synchronized (this)
+        {
+            _headers.clear();
+            _headers.addAll(headers);
+            _template = new PreEncodedHttpFields(_headers);
+        }
+    }
+
+    /**
+     * @param name the name of a header to add to each response
+     * @param value the value of the header
+     */
+    public void setHeader(String name, String value)
+    {
+        put(new HttpField(name,value));
+    }
+
+    /**
+     * @param header the header to add to each response
+     * @param value the value of the header
+     */
+    public void setHeader(HttpHeader header, String value)
+    {
+        put(new HttpField(header,value));
+    }
+
+    /**
+     * @param name the name of a header to no longer add to each response
+     */
+    public void removeHeader(String name)
+    {
+        synchronized (this)
+        {
+            if (_headers.remove(name)!=null)
+                _template = new PreEncodedHttpFields(_headers);
+        }
+    }
+
+    private void put(HttpField field)
+    {
+        synchronized (this)
+        {
+            _headers.put(field);
+            _template = new PreEncodedHttpFields(_headers);
+        }
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+    {
+        if (baseRequest.getDispatcherType()==DispatcherType.REQUEST)
+            _template.addTo(baseRequest.getResponse().getHttpFields());
+        super.handle(target,baseRequest,request,response);
+    }
+}
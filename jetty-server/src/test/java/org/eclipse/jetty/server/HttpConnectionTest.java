@@ -37,7 +37,9 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -331,6 +333,104 @@ public class HttpConnectionTest
         checkContains(response,offset,"/R1");
     }
 
+    @Test
+    public void testCoalescedPipelinedResponses() throws Exception
+    {
+        HttpConfiguration config=connector.getConnectionFactory(HttpConnectionFactory.class).getHttpConfiguration();
+        config.setMaxPipelinedResponses(2);
+
+        StringBuilder requests=new StringBuilder();
+        for (int i=1;i<=5;i++)
+            requests.append("GET /R").append(i).append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+        // The last pipelined response is written once there are no more buffered requests
+        LocalConnector.LocalEndPoint endp=connector.executeRequest(requests.toString());
+        for (int i=1;i<=5;i++)
+        {
+            String response=endp.getResponse(false,5,TimeUnit.SECONDS);
+            int offset = checkContains(response,0,"HTTP/1.1 200");
+            checkContains(response,offset,"/R"+i);
+        }
+
+        // Responses are written in order up to a closing request
+        requests.append("GET /R6 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+        endp=connector.executeRequest(requests.toString());
+        for (int i=1;i<=6;i++)
+        {
+            String response=endp.getResponse(false,5,TimeUnit.SECONDS);
+            int offset = checkContains(response,0,"HTTP/1.1 200");
+            checkContains(response,offset,"/R"+i);
+        }
+        Assert.assertNull(endp.getResponse(false,5,TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCoalescedPipelinedResponseNotHeldBySuspendedRequest() throws Exception
+    {
+        CountDownLatch suspended=new CountDownLatch(1);
+        AtomicReference<AsyncContext> poll=new AtomicReference<>();
+        server.stop();
+        server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                if (target.equals("/poll"))
+                {
+                    AsyncContext async=request.startAsync();
+                    async.setTimeout(0);
+                    poll.set(async);
+                    suspended.countDown();
+                    return;
+                }
+                response.getWriter().print(target);
+            }
+        });
+        server.start();
+        connector.getConnectionFactory(HttpConnectionFactory.class).getHttpConfiguration().setMaxPipelinedResponses(2);
+
+        LocalEndPoint endp=connector.executeRequest(
+            "GET /R1 HTTP/1.1\r\nHost: localhost\r\n\r\n"+
+            "GET /poll HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+        // The response to R1 is written while the long poll is suspended
+        String response=endp.getResponse(false,5,TimeUnit.SECONDS);
+        Assert.assertNotNull(response);
+        int offset=checkContains(response,0,"HTTP/1.1 200");
+        checkContains(response,offset,"/R1");
+        Assert.assertTrue(suspended.await(5,TimeUnit.SECONDS));
+
+        AsyncContext async=poll.get();
+        async.getResponse().getWriter().print("polled");
+        async.complete();
+        response=endp.getResponse();
+        offset=checkContains(response,0,"HTTP/1.1 200");
+        checkContains(response,offset,"polled");
+    }
+
+    @Test
+    public void testCoalescedPipelinedResponseNotHeldByRequestContent() throws Exception
+    {
+        connector.getConnectionFactory(HttpConnectionFactory.class).getHttpConfiguration().setMaxPipelinedResponses(2);
+
+        // The content of the second request is not fully buffered
+        LocalEndPoint endp=connector.executeRequest(
+            "GET /R1 HTTP/1.1\r\nHost: localhost\r\n\r\n"+
+            "POST /R2 HTTP/1.1\r\nHost: localhost\r\nContent-Type: text/plain\r\nContent-Length: 10\r\n\r\n12345");
+
+        String response=endp.getResponse(false,5,TimeUnit.SECONDS);
+        Assert.assertNotNull(response);
+        int offset=checkContains(response,0,"HTTP/1.1 200");
+        checkContains(response,offset,"/R1");
+
+        endp.addInput("67890");
+        response=endp.getResponse();
+        offset=checkContains(response,0,"HTTP/1.1 200");
+        offset=checkContains(response,offset,"/R2");
+        checkContains(response,offset,"1234567890");
+    }
+
     @Test
     public void testChunk() throws Exception
     {
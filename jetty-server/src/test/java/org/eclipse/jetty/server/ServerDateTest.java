@@ -0,0 +1,117 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.http.DateGenerator;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ServerDateTest
+{
+    private RecordingScheduler scheduler;
+    private Server server;
+
+    @Before
+    public void init() throws Exception
+    {
+        // Started before the server, so that it keeps running after the server stops.
+        scheduler = new RecordingScheduler();
+        scheduler.start();
+        server = new Server();
+        server.addConnector(new LocalConnector(server, null, scheduler, null, -1, new HttpConnectionFactory()));
+    }
+
+    @After
+    public void destroy() throws Exception
+    {
+        server.stop();
+        scheduler.stop();
+    }
+
+    @Test
+    public void testDateFieldIsTickedEverySecond() throws Exception
+    {
+        server.start();
+        Assert.assertEquals(1, scheduler.scheduled.get());
+
+        for (int i = 0; i < 3; ++i)
+        {
+            // Just after the second boundary, the field prepared by the tick is used.
+            long now = System.currentTimeMillis();
+            Thread.sleep(1000 - now % 1000 + 50);
+
+            long before = System.currentTimeMillis();
+            HttpField field = server.getDateField();
+            long after = System.currentTimeMillis();
+            Assert.assertEquals(HttpHeader.DATE, field.getHeader());
+            Assert.assertThat(field, Matchers.instanceOf(PreEncodedHttpField.class));
+            if (before / 1000 == after / 1000)
+            {
+                Assert.assertEquals(DateGenerator.formatDate(before), field.getValue());
+                Assert.assertSame(field, server.getDateField());
+            }
+        }
+
+        // The tick has rescheduled itself once per second.
+        Assert.assertThat(scheduler.scheduled.get(), Matchers.greaterThanOrEqualTo(3));
+    }
+
+    @Test
+    public void testDateTickIsCancelledOnStop() throws Exception
+    {
+        server.start();
+        Assert.assertEquals(1, scheduler.scheduled.get());
+
+        server.stop();
+        Assert.assertEquals(1, scheduler.cancelled.get());
+
+        // The tick is not rescheduled once the server is stopped.
+        int scheduled = scheduler.scheduled.get();
+        Thread.sleep(1500);
+        Assert.assertEquals(scheduled, scheduler.scheduled.get());
+    }
+
+    private static class RecordingScheduler extends ScheduledExecutorScheduler
+    {
+        private final AtomicInteger scheduled = new AtomicInteger();
+        private final AtomicInteger cancelled = new AtomicInteger();
+
+        @Override
+        public Task schedule(Runnable task, long delay, TimeUnit unit)
+        {
+            scheduled.incrementAndGet();
+            Task result = super.schedule(task, delay, unit);
+            return () ->
+            {
+                cancelled.incrementAndGet();
+                return result.cancel();
+            };
+        }
+    }
+}
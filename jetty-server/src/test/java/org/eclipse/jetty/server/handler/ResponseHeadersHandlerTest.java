@@ -0,0 +1,126 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.server.handler;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ResponseHeadersHandlerTest
+{
+    private static Server _server;
+    private static LocalConnector _local;
+
+    @BeforeClass
+    public static void setUp() throws Exception
+    {
+        _server = new Server();
+        _local = new LocalConnector(_server);
+        _server.addConnector(_local);
+
+        ResponseHeadersHandler headersHandler = new ResponseHeadersHandler();
+        headersHandler.setHeader(HttpHeader.SERVER, "TestServer");
+        headersHandler.setHeader("X-Frame-Options", "DENY");
+        headersHandler.setHeader("X-Content-Type-Options", "nosniff");
+        headersHandler.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                baseRequest.setHandled(true);
+                if (target.endsWith("/async") && baseRequest.getDispatcherType()==DispatcherType.REQUEST)
+                {
+                    request.startAsync().dispatch();
+                    return;
+                }
+                if (target.endsWith("/override"))
+                    response.setHeader("X-Frame-Options", "SAMEORIGIN");
+                response.getWriter().println("OK");
+            }
+        });
+
+        ContextHandler context = new ContextHandler("/ctx");
+        context.setHandler(headersHandler);
+        _server.setHandler(context);
+        _server.start();
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception
+    {
+        _server.stop();
+    }
+
+    @Test
+    public void testHeaders() throws Exception
+    {
+        String response = _local.getResponse("GET /ctx/path HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertThat(response,containsString(" 200 OK"));
+        assertThat(response,containsString("Server: TestServer\r\n"));
+        assertThat(response,not(containsString("Server: Jetty")));
+        assertThat(response,containsString("X-Frame-Options: DENY\r\n"));
+        assertThat(response,containsString("X-Content-Type-Options: nosniff\r\n"));
+    }
+
+    @Test
+    public void testOverride() throws Exception
+    {
+        String response = _local.getResponse("GET /ctx/override HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertThat(response,containsString(" 200 OK"));
+        assertThat(response,containsString("Server: TestServer\r\n"));
+        assertThat(response,containsString("X-Frame-Options: SAMEORIGIN\r\n"));
+        assertThat(response,not(containsString("X-Frame-Options: DENY")));
+        assertThat(response,containsString("X-Content-Type-Options: nosniff\r\n"));
+    }
+
+    @Test
+    public void testAsyncRedispatch() throws Exception
+    {
+        String response = _local.getResponse("GET /ctx/async HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        assertThat(response,containsString(" 200 OK"));
+        assertThat(count(response,"Server: TestServer\r\n"),is(1));
+        assertThat(count(response,"X-Frame-Options: DENY\r\n"),is(1));
+        assertThat(count(response,"X-Content-Type-Options: nosniff\r\n"),is(1));
+    }
+
+    private static int count(String response, String header)
+    {
+        int count=0;
+        for (int i=response.indexOf(header); i>=0; i=response.indexOf(header,i+header.length()))
+            count++;
+        return count;
+    }
+}
@@ -23,14 +23,20 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.thread.Scheduler;
@@ -194,4 +200,322 @@ public interface SocketAddressResolver
             });
         }
     }
+
+    /**
+     * <p>Caches the results of another {@link SocketAddressResolver}.</p>
+     * <p>{@link InetAddress} does not expose the TTL of DNS records, so resolved
+     * addresses are cached for a configurable {@link #getTimeToLive() time to live}.
+     * Entries that are used after a fraction of their time to live has elapsed are
+     * refreshed in background, so that hot hosts do not pay the DNS resolution
+     * latency when their entry expires.</p>
+     * <p>Each resolution rotates the cached addresses, so that connections are spread
+     * across all the addresses of a host. Addresses that recently failed to connect,
+     * as reported via {@link #connectFailed(InetSocketAddress)}, are moved to the end
+     * of the list so that connection attempts fall back to healthy addresses first.</p>
+     * <p>Example usage:</p>
+     * <pre>
+     * SocketAddressResolver.Async async = new SocketAddressResolver.Async(executor, scheduler, timeout);
+     * httpClient.setSocketAddressResolver(new SocketAddressResolver.Caching(async));
+     * </pre>
+     */
+    @ManagedObject("The caching address resolver")
+    public static class Caching implements SocketAddressResolver
+    {
+        private static final Logger LOG = Log.getLogger(SocketAddressResolver.class);
+
+        private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+        private final ConcurrentMap<InetSocketAddress, Long> failures = new ConcurrentHashMap<>();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder refreshes = new LongAdder();
+        private final SocketAddressResolver resolver;
+        private long timeToLive = 60000;
+        private int refreshPercent = 75;
+        private long failurePenalty = 30000;
+        private int maxEntries = 1024;
+
+        /**
+         * @param resolver the resolver that performs the actual address resolution
+         */
+        public Caching(SocketAddressResolver resolver)
+        {
+            this.resolver = resolver;
+        }
+
+        public SocketAddressResolver getSocketAddressResolver()
+        {
+            return resolver;
+        }
+
+        /**
+         * @return the time, in milliseconds, resolved addresses are cached for
+         */
+        @ManagedAttribute("The time, in milliseconds, resolved addresses are cached for")
+        public long getTimeToLive()
+        {
+            return timeToLive;
+        }
+
+        /**
+         * @param timeToLive the time, in milliseconds, resolved addresses are cached for
+         */
+        public void setTimeToLive(long timeToLive)
+        {
+            this.timeToLive = timeToLive;
+        }
+
+        /**
+         * @return the percentage of the time to live after which a used entry is refreshed in background
+         */
+        @ManagedAttribute("The percentage of the time to live after which a used entry is refreshed")
+        public int getRefreshPercent()
+        {
+            return refreshPercent;
+        }
+
+        /**
+         * @param refreshPercent the percentage of the time to live after which a used entry
+         * is refreshed in background, or 100 to never refresh entries before they expire
+         */
+        public void setRefreshPercent(int refreshPercent)
+        {
+            if (refreshPercent < 0 || refreshPercent > 100)
+                throw new IllegalArgumentException("Invalid refresh percent " + refreshPercent);
+            this.refreshPercent = refreshPercent;
+        }
+
+        /**
+         * @return the time, in milliseconds, an address that failed to connect is tried after the others
+         */
+        @ManagedAttribute("The time, in milliseconds, an address that failed to connect is tried last")
+        public long getFailurePenalty()
+        {
+            return failurePenalty;
+        }
+
+        /**
+         * @param failurePenalty the time, in milliseconds, an address that failed to connect is tried after the others
+         */
+        public void setFailurePenalty(long failurePenalty)
+        {
+            this.failurePenalty = failurePenalty;
+        }
+
+        /**
+         * @return the max number of cached hosts
+         */
+        @ManagedAttribute("The max number of cached hosts")
+        public int getMaxEntries()
+        {
+            return maxEntries;
+        }
+
+        /**
+         * @param maxEntries the max number of cached hosts
+         */
+        public void setMaxEntries(int maxEntries)
+        {
+            this.maxEntries = maxEntries;
+        }
+
+        @ManagedAttribute(value = "The number of cached hosts", readonly = true)
+        public int getEntryCount()
+        {
+            return entries.size();
+        }
+
+        @ManagedAttribute(value = "The number of resolutions served from the cache", readonly = true)
+        public long getHitCount()
+        {
+            return hits.longValue();
+        }
+
+        @ManagedAttribute(value = "The number of resolutions not served from the cache", readonly = true)
+        public long getMissCount()
+        {
+            return misses.longValue();
+        }
+
+        @ManagedAttribute(value = "The number of background refreshes of cached hosts", readonly = true)
+        public long getRefreshCount()
+        {
+            return refreshes.longValue();
+        }
+
+        @ManagedOperation(value = "Clears the cached hosts and connect failures", impact = "ACTION")
+        public void clear()
+        {
+            entries.clear();
+            failures.clear();
+        }
+
+        @Override
+        public void resolve(String host, int port, Promise<List<InetSocketAddress>> promise)
+        {
+            long now = System.nanoTime();
+            Entry entry = entries.get(host);
+            if (entry != null && !entry.isExpired(now))
+            {
+                hits.increment();
+                if (entry.needsRefresh(now))
+                    refresh(host, entry);
+                promise.succeeded(entry.toSocketAddresses(port, now));
+                return;
+            }
+
+            misses.increment();
+            resolver.resolve(host, port, new Promise<List<InetSocketAddress>>()
+            {
+                @Override
+                public void succeeded(List<InetSocketAddress> result)
+                {
+                    promise.succeeded(cache(host, result).toSocketAddresses(port, System.nanoTime()));
+                }
+
+                @Override
+                public void failed(Throwable x)
+                {
+                    promise.failed(x);
+                }
+            });
+        }
+
+        private void refresh(String host, Entry entry)
+        {
+            if (!entry.refreshing.compareAndSet(false, true))
+                return;
+            if (LOG.isDebugEnabled())
+                LOG.debug("Refreshing {}", host);
+            refreshes.increment();
+            resolver.resolve(host, 0, new Promise<List<InetSocketAddress>>()
+            {
+                @Override
+                public void succeeded(List<InetSocketAddress> result)
+                {
+                    cache(host, result);
+                }
+
+                @Override
+                public void failed(Throwable x)
+                {
+                    // Keep the current entry until it expires.
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Could not refresh " + host, x);
+                    entry.refreshing.set(false);
+                }
+            });
+        }
+
+        private Entry cache(String host, List<InetSocketAddress> result)
+        {
+            List<InetAddress> addresses = new ArrayList<>(result.size());
+            for (InetSocketAddress address : result)
+                addresses.add(address.getAddress());
+            long now = System.nanoTime();
+            long ttl = TimeUnit.MILLISECONDS.toNanos(getTimeToLive());
+            Entry entry = new Entry(addresses, now, ttl, ttl * getRefreshPercent() / 100);
+            if (ttl > 0)
+            {
+                if (entries.size() >= getMaxEntries())
+                    entries.values().removeIf(e -> e.isExpired(now));
+                if (entries.size() < getMaxEntries() || entries.containsKey(host))
+                    entries.put(host, entry);
+            }
+            if (LOG.isDebugEnabled())
+                LOG.debug("Resolved {} to {}", host, addresses);
+            return entry;
+        }
+
+        /**
+         * <p>Records that a connection to the given address failed, so that the address
+         * is tried after the other addresses of the same host for the
+         * {@link #getFailurePenalty() failure penalty} time.</p>
+         *
+         * @param address the address that failed to connect
+         */
+        public void connectFailed(InetSocketAddress address)
+        {
+            if (getFailurePenalty() <= 0)
+                return;
+            long now = System.nanoTime();
+            if (failures.size() >= getMaxEntries())
+                failures.values().removeIf(time -> !isRecentFailure(time, now));
+            failures.put(address, now);
+        }
+
+        /**
+         * <p>Records that a connection to the given address succeeded, clearing
+         * previous connect failures for that address.</p>
+         *
+         * @param address the address that connected successfully
+         */
+        public void connectSucceeded(InetSocketAddress address)
+        {
+            if (!failures.isEmpty())
+                failures.remove(address);
+        }
+
+        private boolean isPenalized(InetSocketAddress address, long now)
+        {
+            Long time = failures.get(address);
+            return time != null && isRecentFailure(time, now);
+        }
+
+        private boolean isRecentFailure(long time, long now)
+        {
+            return now - time < TimeUnit.MILLISECONDS.toNanos(getFailurePenalty());
+        }
+
+        private class Entry
+        {
+            private final AtomicBoolean refreshing = new AtomicBoolean();
+            private final AtomicInteger rotation = new AtomicInteger();
+            private final List<InetAddress> addresses;
+            private final long created;
+            private final long timeToLive;
+            private final long refreshAfter;
+
+            private Entry(List<InetAddress> addresses, long created, long timeToLive, long refreshAfter)
+            {
+                this.addresses = addresses;
+                this.created = created;
+                this.timeToLive = timeToLive;
+                this.refreshAfter = refreshAfter;
+            }
+
+            private boolean isExpired(long now)
+            {
+                return now - created >= timeToLive;
+            }
+
+            private boolean needsRefresh(long now)
+            {
+                return refreshAfter < timeToLive && now - created >= refreshAfter;
+            }
+
+            private List<InetSocketAddress> toSocketAddresses(int port, long now)
+            {
+                int size = addresses.size();
+                List<InetSocketAddress> result = new ArrayList<>(size);
+                List<InetSocketAddress> penalized = Collections.emptyList();
+                int start = size > 1 ? Math.floorMod(rotation.getAndIncrement(), size) : 0;
+                for (int i = 0; i < size; ++i)
+                {
+                    InetSocketAddress address = new InetSocketAddress(addresses.get((start + i) % size), port);
+                    if (isPenalized(address, now))
+                    {
+                        if (penalized.isEmpty())
+                            penalized = new ArrayList<>(size);
+                        penalized.add(address);
+                    }
+                    else
+                    {
+                        result.add(address);
+                    }
+                }
+                result.addAll(penalized);
+                return result;
+            }
+        }
+    }
 }
@@ -0,0 +1,173 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util.statistic;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/* ------------------------------------------------------------ */
+/** Statistics on the distribution of non negative sample values.
+ * <p>
+ * Samples are counted in log-linear buckets, in the style of HDR histograms:
+ * every power of two range is split into 8 linear buckets, so that the
+ * values returned by {@link #getValueAtPercentile(double)} are within
+ * 12.5% of the actual sample values.
+ * <p>
+ * Recording a sample does not lock nor allocate, apart from the lazy
+ * creation of a bucket the first time one of its values is recorded,
+ * so that only the range of values actually sampled uses memory.
+ */
+public class HistogramStatistic
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    protected final AtomicReferenceArray<LongAdder> _buckets = new AtomicReferenceArray<>(BUCKETS);
+    protected final LongAccumulator _max = new LongAccumulator(Math::max,0L);
+    protected final LongAdder _total = new LongAdder();
+    protected final LongAdder _count = new LongAdder();
+
+    /* ------------------------------------------------------------ */
+    public void reset()
+    {
+        for (int i=0;i<BUCKETS;++i)
+        {
+            LongAdder bucket=_buckets.get(i);
+            if (bucket!=null)
+                bucket.reset();
+        }
+        _max.reset();
+        _total.reset();
+        _count.reset();
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param sample the value to record, negative values are recorded as zero
+     */
+    public void record(long sample)
+    {
+        if (sample<0)
+            sample=0;
+        int index=indexOf(sample);
+        LongAdder bucket=_buckets.get(index);
+        if (bucket==null)
+        {
+            _buckets.compareAndSet(index,null,new LongAdder());
+            bucket=_buckets.get(index);
+        }
+        bucket.increment();
+        _count.increment();
+        _total.add(sample);
+        _max.accumulate(sample);
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @return the max value
+     */
+    public long getMax()
+    {
+        return _max.get();
+    }
+
+    public long getTotal()
+    {
+        return _total.sum();
+    }
+
+    public long getCount()
+    {
+        return _count.sum();
+    }
+
+    public double getMean()
+    {
+        long count=getCount();
+        return count==0?0.0:(double)getTotal()/count;
+    }
+
+    /* ------------------------------------------------------------ */
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the highest value equivalent to the sample at the given percentile,
+     * or 0 if there are no samples
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        if (percentile<0 || percentile>100)
+            throw new IllegalArgumentException("Invalid percentile " + percentile);
+
+        // Take a snapshot, as the buckets may be updated concurrently.
+        long[] counts=new long[BUCKETS];
+        long count=0;
+        for (int i=0;i<BUCKETS;++i)
+        {
+            LongAdder bucket=_buckets.get(i);
+            if (bucket!=null)
+            {
+                counts[i]=bucket.sum();
+                count+=counts[i];
+            }
+        }
+        if (count==0)
+            return 0;
+
+        long target=Math.max(1,(long)Math.ceil(count*percentile/100));
+        long cumulative=0;
+        for (int i=0;i<BUCKETS;++i)
+        {
+            cumulative+=counts[i];
+            if (cumulative>=target)
+                return Math.min(highestValueOf(i),getMax());
+        }
+        return getMax();
+    }
+
+    /* ------------------------------------------------------------ */
+    static int indexOf(long value)
+    {
+        if (value<SUB_BUCKETS)
+            return (int)value;
+        int shift=63-Long.numberOfLeadingZeros(value)-SUB_BUCKET_BITS;
+        int subBucket=(int)(value>>>shift)-SUB_BUCKETS;
+        return SUB_BUCKETS+shift*SUB_BUCKETS+subBucket;
+    }
+
+    /* ------------------------------------------------------------ */
+    static long highestValueOf(int index)
+    {
+        if (index<SUB_BUCKETS)
+            return index;
+        int shift=(index-SUB_BUCKETS)/SUB_BUCKETS;
+        int subBucket=(index-SUB_BUCKETS)%SUB_BUCKETS;
+        long lowest=(long)(SUB_BUCKETS+subBucket)<<shift;
+        return lowest+(1L<<shift)-1;
+    }
+
+    /* ------------------------------------------------------------ */
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{c=%d,m=%d,t=%d,p50=%d,p99=%d}",this.getClass().getSimpleName(),hashCode(),getCount(),getMax(),getTotal(),getValueAtPercentile(50),getValueAtPercentile(99));
+    }
+}
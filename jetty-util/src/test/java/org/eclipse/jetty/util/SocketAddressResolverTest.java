@@ -0,0 +1,139 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SocketAddressResolverTest
+{
+    private final AtomicInteger resolutions = new AtomicInteger();
+    private final SocketAddressResolver resolver = (host, port, promise) ->
+    {
+        try
+        {
+            resolutions.incrementAndGet();
+            List<InetSocketAddress> result = new ArrayList<>();
+            for (int i = 1; i <= 3; ++i)
+                result.add(new InetSocketAddress(InetAddress.getByAddress(host, new byte[]{10, 0, 0, (byte)i}), port));
+            promise.succeeded(result);
+        }
+        catch (Throwable x)
+        {
+            promise.failed(x);
+        }
+    };
+
+    private List<InetSocketAddress> resolve(SocketAddressResolver resolver, String host, int port) throws Exception
+    {
+        FuturePromise<List<InetSocketAddress>> promise = new FuturePromise<>();
+        resolver.resolve(host, port, promise);
+        return promise.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testCachingResolvesOnce() throws Exception
+    {
+        SocketAddressResolver.Caching caching = new SocketAddressResolver.Caching(resolver);
+
+        List<InetSocketAddress> result = resolve(caching, "example.org", 80);
+        Assert.assertEquals(3, result.size());
+        result = resolve(caching, "example.org", 8080);
+        Assert.assertEquals(3, result.size());
+        Assert.assertEquals(8080, result.get(0).getPort());
+
+        Assert.assertEquals(1, resolutions.get());
+        Assert.assertEquals(1, caching.getMissCount());
+        Assert.assertEquals(1, caching.getHitCount());
+    }
+
+    @Test
+    public void testCachingExpires() throws Exception
+    {
+        SocketAddressResolver.Caching caching = new SocketAddressResolver.Caching(resolver);
+        caching.setTimeToLive(100);
+        caching.setRefreshPercent(100);
+
+        resolve(caching, "example.org", 80);
+        Thread.sleep(200);
+        resolve(caching, "example.org", 80);
+
+        Assert.assertEquals(2, resolutions.get());
+        Assert.assertEquals(0, caching.getRefreshCount());
+    }
+
+    @Test
+    public void testCachingRefreshesUsedEntries() throws Exception
+    {
+        SocketAddressResolver.Caching caching = new SocketAddressResolver.Caching(resolver);
+        caching.setTimeToLive(1000);
+        caching.setRefreshPercent(10);
+
+        resolve(caching, "example.org", 80);
+        Thread.sleep(200);
+        // Served from the cache, but triggers a refresh.
+        resolve(caching, "example.org", 80);
+        Assert.assertEquals(1, caching.getRefreshCount());
+        Assert.assertEquals(2, resolutions.get());
+        Assert.assertEquals(1, caching.getHitCount());
+
+        // The refreshed entry is fresh again.
+        resolve(caching, "example.org", 80);
+        Assert.assertEquals(1, caching.getRefreshCount());
+        Assert.assertEquals(2, resolutions.get());
+    }
+
+    @Test
+    public void testCachingRotatesAddresses() throws Exception
+    {
+        SocketAddressResolver.Caching caching = new SocketAddressResolver.Caching(resolver);
+
+        Set<InetSocketAddress> firsts = new HashSet<>();
+        for (int i = 0; i < 3; ++i)
+            firsts.add(resolve(caching, "example.org", 80).get(0));
+        Assert.assertEquals(3, firsts.size());
+    }
+
+    @Test
+    public void testCachingTriesFailedAddressesLast() throws Exception
+    {
+        SocketAddressResolver.Caching caching = new SocketAddressResolver.Caching(resolver);
+
+        InetSocketAddress failed = resolve(caching, "example.org", 80).get(0);
+        caching.connectFailed(failed);
+        for (int i = 0; i < 3; ++i)
+            Assert.assertEquals(failed, resolve(caching, "example.org", 80).get(2));
+
+        caching.connectSucceeded(failed);
+        Set<InetSocketAddress> firsts = new HashSet<>();
+        for (int i = 0; i < 3; ++i)
+            firsts.add(resolve(caching, "example.org", 80).get(0));
+        Assert.assertTrue(firsts.contains(failed));
+    }
+}
@@ -0,0 +1,100 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2017 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util.statistic;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+
+/* ------------------------------------------------------------ */
+public class HistogramStatisticTest
+{
+    @Test
+    public void testBuckets()
+        throws Exception
+    {
+        for (long value : new long[]{0,1,7,8,9,15,16,17,1000,123456789,Long.MAX_VALUE})
+        {
+            int index=HistogramStatistic.indexOf(value);
+            long highest=HistogramStatistic.highestValueOf(index);
+            assertThat(highest,greaterThanOrEqualTo(value));
+            assertThat(highest-value,lessThanOrEqualTo(value/8));
+            if (index>0)
+                assertThat(HistogramStatistic.highestValueOf(index-1),lessThanOrEqualTo(value-1));
+        }
+    }
+
+    @Test
+    public void testHistogram()
+        throws Exception
+    {
+        HistogramStatistic histogram = new HistogramStatistic();
+        assertThat(histogram.getCount(),equalTo(0L));
+        assertThat(histogram.getValueAtPercentile(99),equalTo(0L));
+
+        for (int i=1;i<=1000;++i)
+            histogram.record(i);
+
+        assertThat(histogram.getCount(),equalTo(1000L));
+        assertThat(histogram.getTotal(),equalTo(500500L));
+        assertThat(histogram.getMax(),equalTo(1000L));
+        assertThat(histogram.getMean(),equalTo(500.5));
+        assertThat(histogram.getValueAtPercentile(50),greaterThanOrEqualTo(500L));
+        assertThat(histogram.getValueAtPercentile(50),lessThanOrEqualTo(500L+500/8));
+        assertThat(histogram.getValueAtPercentile(99),greaterThanOrEqualTo(990L));
+        assertThat(histogram.getValueAtPercentile(100),equalTo(1000L));
+
+        histogram.reset();
+        assertThat(histogram.getCount(),equalTo(0L));
+        assertThat(histogram.getMax(),equalTo(0L));
+        assertThat(histogram.getValueAtPercentile(50),equalTo(0L));
+    }
+
+    @Test
+    public void testHistogramContended()
+        throws Exception
+    {
+        final HistogramStatistic histogram = new HistogramStatistic();
+        final int N=16;
+        final int L=10000;
+        Thread[] threads = new Thread[N];
+        for (int i=N;i-->0;)
+        {
+            threads[i]=new Thread(() ->
+            {
+                Random random = new Random();
+                for (int l=L;l-->0;)
+                    histogram.record(random.nextInt(1000000));
+            });
+            threads[i].start();
+        }
+        for (int i=N;i-->0;)
+            threads[i].join();
+
+        assertThat(histogram.getCount(),equalTo((long)N*L));
+        assertThat(histogram.getValueAtPercentile(100),equalTo(histogram.getMax()));
+    }
+}